@@ -0,0 +1,31 @@
+package logic;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * starts the benchmarks. Without arguments all benchmarks run with the gc profiler, so the allocation rate
+ * is reported next to the throughput. Arguments are passed to JMH unchanged.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            Main.main(args);
+        } else {
+            run();
+        }
+    }
+
+    private static void run() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include("logic\\..*Benchmark")
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
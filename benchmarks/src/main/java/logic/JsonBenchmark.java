@@ -0,0 +1,90 @@
+package logic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * loading a game from a json file, including the validation of the read data, and reading and writing
+ * the json content with the codec compared to a Gson instance using reflection.
+ * Only maps up to the size allowed in json files are used.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonBenchmark {
+
+    @Param({Tracks.SIMPLE_OVAL, "40"})
+    public String track;
+
+    private String file;
+
+    private Logic logic;
+
+    //content of the file and the game read from it
+    private String json;
+    private GameFromAndToJSON game;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Tracks.jsonFile(track);
+        logic = new Logic(Tracks.HEADLESS);
+        if (logic.getGameFromJson(file) != ErrorCodes.NoError) {
+            throw new IllegalStateException("track " + track + " can not be loaded");
+        }
+        json = Tracks.SIMPLE_OVAL.equals(track)
+                ? new String(Objects.requireNonNull(getClass().getResourceAsStream("/" + file)).readAllBytes())
+                : Files.readString(Path.of(file));
+        game = GameCodec.read(new StringReader(json));
+    }
+
+    @Benchmark
+    public ErrorCodes getGameFromJson() {
+        return logic.getGameFromJson(file);
+    }
+
+    @Benchmark
+    public GameFromAndToJSON readCodec() {
+        return GameCodec.read(new StringReader(json));
+    }
+
+    @Benchmark
+    public GameFromAndToJSON readReflective() {
+        return new Gson().fromJson(new StringReader(json), GameFromAndToJSON.class);
+    }
+
+    @Benchmark
+    public StringWriter writeCodec() throws IOException {
+        StringWriter writer = new StringWriter(json.length());
+        GameCodec.write(game, writer);
+        return writer;
+    }
+
+    @Benchmark
+    public StringWriter writeReflective() {
+        StringWriter writer = new StringWriter(json.length());
+        new Gson().toJson(game, writer);
+        return writer;
+    }
+}
@@ -0,0 +1,145 @@
+package logic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * hot paths of the logic during a race and while editing a map. Every benchmark works on a race with one
+ * AI player that has chosen its starting position.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LogicBenchmark {
+
+    //largest distance of the route targets from the start, in both directions
+    private static final int MAX_SPEED = 4;
+
+    @Param({Tracks.SIMPLE_OVAL, "40", "120", "400"})
+    public String track;
+
+    private Logic logic;
+
+    private Board board;
+
+    private Position start;
+
+    //targets around the start and the routes to them
+    private Position[] targets;
+    private Position[][] routes;
+
+    //fields of a route as packed by LineRasterizer
+    private final int[] routeBuffer = new int[2 * RouteTable.MAX_DISPLACEMENT + 1];
+
+    @Setup
+    public void setUp() {
+        logic = Tracks.race(track);
+        board = logic.getOwnBoard();
+        start = logic.getPlayers()[0].getCurrentPos();
+        ArrayList<Position> reachable = new ArrayList<>();
+        for (int dx = -MAX_SPEED; dx <= MAX_SPEED; dx++) {
+            for (int dy = -MAX_SPEED; dy <= MAX_SPEED; dy++) {
+                int x = start.getPosX() + dx;
+                int y = start.getPosY() + dy;
+                if (!board.isOutOfBounds(x, y)) {
+                    reachable.add(new Position(x, y));
+                }
+            }
+        }
+        targets = reachable.toArray(new Position[0]);
+        routes = new Position[targets.length][];
+        for (int i = 0; i < targets.length; i++) {
+            routes[i] = logic.calcRoute(start, targets[i]);
+        }
+        // two known positions, so the distance values are not calculated again on every AI move
+        logic.replayData.get(0).add(start);
+        logic.replayData.get(0).add(start);
+        logic.instantiateMapDistanceValues();
+    }
+
+    @Benchmark
+    public void calcRoute(Blackhole bh) {
+        for (Position target : targets) {
+            bh.consume(logic.calcRoute(start, target));
+        }
+    }
+
+    /**
+     * the line calcRoute would follow, calculated for every target
+     */
+    @Benchmark
+    public void rasterizeRoute(Blackhole bh) {
+        for (Position target : targets) {
+            int length = LineRasterizer.rasterize(start.getPosX(), start.getPosY(), target.getPosX(),
+                    target.getPosY(), routeBuffer);
+            bh.consume(routeBuffer[length - 1]);
+        }
+    }
+
+    /**
+     * the same lines taken from the route table
+     */
+    @Benchmark
+    public void lookUpRoute(Blackhole bh) {
+        for (Position target : targets) {
+            int length = RouteTable.route(start.getPosX(), start.getPosY(), target.getPosX(), target.getPosY(),
+                    routeBuffer);
+            bh.consume(routeBuffer[length - 1]);
+        }
+    }
+
+    @Benchmark
+    public void isRouteValid(Blackhole bh) {
+        for (int i = 0; i < routes.length; i++) {
+            bh.consume(logic.isRouteValid(routes[i], targets[i], true));
+        }
+    }
+
+    /**
+     * the AI stays at its position, so a new plan is made on every call
+     */
+    @Benchmark
+    public RouteResult calculateNextAIMove() {
+        return logic.calculateNextAIMove(start);
+    }
+
+    /**
+     * the values of the map are in the cache after the setup, so this only finds them there
+     */
+    @Benchmark
+    public Logic instantiateMapDistanceValues() {
+        logic.instantiateMapDistanceValues();
+        return logic;
+    }
+
+    @Benchmark
+    public DistanceField calculateDistanceValues() {
+        return DistanceField.calculate(board, logic.getDir());
+    }
+
+    @Benchmark
+    public ErrorCodes isBoardValidForRace() {
+        return board.isBoardValidForRace(board);
+    }
+
+    @Benchmark
+    public ArrayList<Position> getCurrStartingLine() {
+        return board.getCurrStartingLine();
+    }
+}
@@ -0,0 +1,50 @@
+package logic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * loading a game from a binary track file, including the validation of the read data. The first two tracks
+ * can be compared with JsonBenchmark, the others are too large for json files.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TrackFileBenchmark {
+
+    @Param({Tracks.SIMPLE_OVAL, "40", "1000", "4000"})
+    public String track;
+
+    private Path file;
+
+    private Logic logic;
+
+    @Setup
+    public void setUp() {
+        file = Tracks.trackFile(track);
+        logic = new Logic(Tracks.HEADLESS);
+        if (logic.getGameFromTrackFile(file) != ErrorCodes.NoError) {
+            throw new IllegalStateException("track " + track + " can not be loaded");
+        }
+    }
+
+    @Benchmark
+    public ErrorCodes getGameFromTrackFile() {
+        return logic.getGameFromTrackFile(file);
+    }
+}
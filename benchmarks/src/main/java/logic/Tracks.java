@@ -0,0 +1,159 @@
+package logic;
+
+import com.google.gson.Gson;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * tracks the benchmarks run on: the shipped example map and generated ring tracks of any size
+ */
+public final class Tracks {
+
+    /**
+     * name of the example map shipped with the game
+     */
+    public static final String SIMPLE_OVAL = "SimpleOval";
+
+    /**
+     * gui connector that ignores every output
+     */
+    protected static final GUIConnector HEADLESS = new GUIConnector() {
+    };
+
+    //width of the road of generated tracks
+    private static final int ROAD_WIDTH = 8;
+
+    //values of the surfaces in json files
+    private static final int ROAD = 1;
+    private static final int START = 2;
+
+    private Tracks() {
+    }
+
+    /**
+     * generates a square ring track. The starting line crosses the bottom part of the ring and is crossed
+     * to the right.
+     *
+     * @param size x and y length of the track
+     * @return the track as it is saved in json files, indexed by x first
+     */
+    public static int[][] generate(int size) {
+        int road = Math.min(ROAD_WIDTH, (size - 4) / 3);
+        int[][] track = new int[size][size];
+        for (int x = 1; x < size - 1; x++) {
+            for (int y = 1; y < size - 1; y++) {
+                boolean hole = x > road && x < size - 1 - road && y > road && y < size - 1 - road;
+                if (!hole) {
+                    track[x][y] = ROAD;
+                }
+            }
+        }
+        for (int y = size - 1 - road; y < size - 1; y++) {
+            track[size / 2][y] = START;
+        }
+        return track;
+    }
+
+    /**
+     * returns the board of a track
+     *
+     * @param name SIMPLE_OVAL or the size of a generated track
+     * @return the board
+     */
+    public static Board board(String name) {
+        if (SIMPLE_OVAL.equals(name)) {
+            Logic logic = new Logic(HEADLESS);
+            logic.getGameFromJson("maps/SimpleOval.json");
+            return logic.getOwnBoard();
+        }
+        Board board = new Board();
+        board.setValues(Board.convertBoardIntToStates(generate(Integer.parseInt(name))));
+        return board;
+    }
+
+    /**
+     * returns the direction the starting line of a track has to be crossed
+     *
+     * @param name SIMPLE_OVAL or the size of a generated track
+     * @return the direction
+     */
+    public static StartCrossDirection direction(String name) {
+        if (SIMPLE_OVAL.equals(name)) {
+            Logic logic = new Logic(HEADLESS);
+            logic.getGameFromJson("maps/SimpleOval.json");
+            return logic.getDir();
+        }
+        return StartCrossDirection.RIGHT;
+    }
+
+    /**
+     * creates a race on a track with one active AI player, that player has chosen its starting position
+     * and is the current player
+     *
+     * @param name SIMPLE_OVAL or the size of a generated track
+     * @return logic of the race
+     */
+    public static Logic race(String name) {
+        Player[] players = new Player[Logic.MAX_PLAYER_NUMBER];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new Player(i == 0, true, "AI " + i, new Position(0, 0), new Position(0, 0), (byte) 0);
+        }
+        Logic logic = new Logic(HEADLESS, board(name), direction(name), players);
+        logic.setCurrentPlayer(0);
+        logic.placeAI();
+        logic.setGameMode(GameMode.Race_Mode);
+        return logic;
+    }
+
+    /**
+     * returns a json file of a track that can be passed to Logic.getGameFromJson
+     *
+     * @param name SIMPLE_OVAL or the size of a generated track
+     * @return resource name of the example map or path of a written temporary file
+     */
+    public static String jsonFile(String name) {
+        if (SIMPLE_OVAL.equals(name)) {
+            return "maps/SimpleOval.json";
+        }
+        Player[] players = new Player[Logic.MAX_PLAYER_NUMBER];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new Player();
+        }
+        GameFromAndToJSON game = new GameFromAndToJSON(generate(Integer.parseInt(name)), 1, 0, players);
+        try {
+            Path file = Files.createTempFile("track" + name, ".json");
+            file.toFile().deleteOnExit();
+            try (FileWriter writer = new FileWriter(file.toFile())) {
+                new Gson().toJson(game, writer);
+            }
+            return file.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * returns a track file of a track
+     *
+     * @param name SIMPLE_OVAL or the size of a generated track
+     * @return path of a written temporary file
+     */
+    public static Path trackFile(String name) {
+        Player[] players = new Player[Logic.MAX_PLAYER_NUMBER];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new Player();
+        }
+        try {
+            Path file = Files.createTempFile("track" + name, TrackFile.EXTENSION);
+            file.toFile().deleteOnExit();
+            TrackFile.write(file, board(name), 1, 0, players);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package gui;
+
+import javafx.animation.PauseTransition;
+import javafx.animation.SequentialTransition;
+import javafx.animation.Transition;
+import javafx.geometry.Point2D;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Hyperlink;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.ColumnConstraints;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.RowConstraints;
+import javafx.scene.paint.Color;
+import javafx.util.Duration;
+import logic.*;
+
+import java.util.Arrays;
+
+/**
+ * outputs the game onto one canvas instead of one pane per field. Only the fields that changed are drawn again,
+ * the whole board only when the canvas changes its size. The flow of the game is the same as in JavaFXGUI.
+ */
+public class CanvasGUI extends JavaFXGUI {
+
+    //space between two fields in pixels, like the gaps of the grid pane
+    private static final double GAP = 2;
+
+    private final Canvas canvas = new Canvas();
+
+    private final Pane holder = new Pane(canvas);
+
+    private int columns;
+
+    private int rows;
+
+    //surface of every field as y * columns + x
+    private Surfaces[] cells = new Surfaces[0];
+
+    //fields shown as possible fields
+    private boolean[] highlighted = new boolean[0];
+
+    private StartCrossDirection dir = StartCrossDirection.UP;
+
+    //position of the player markers in fields, NaN if a player is not shown
+    private double[] markerX = new double[0];
+    private double[] markerY = new double[0];
+
+    protected CanvasGUI(GridPane gp, TextField modeTextfield, Hyperlink hl, UserInterfaceController controller) {
+        super(gp, modeTextfield, hl, controller);
+        holder.setMinSize(0, 0);
+        canvas.widthProperty().bind(holder.widthProperty());
+        canvas.heightProperty().bind(holder.heightProperty());
+        canvas.widthProperty().addListener((observable, oldValue, newValue) -> repaintAll());
+        canvas.heightProperty().addListener((observable, oldValue, newValue) -> repaintAll());
+    }
+
+    /**
+     * @param x x value in the grid pane
+     * @param y y value in the grid pane
+     * @return field at the point, null if the point is outside the board
+     */
+    @Override
+    public Position cellAt(double x, double y) {
+        Point2D point = canvas.sceneToLocal(gp.localToScene(x, y));
+        return canvasCellAt(point.getX(), point.getY());
+    }
+
+    /**
+     * @param x x value in the canvas
+     * @param y y value in the canvas
+     * @return field at the point, null if the point is outside the board
+     */
+    private Position canvasCellAt(double x, double y) {
+        if (columns == 0 || rows == 0 || x < 0 || y < 0) {
+            return null;
+        }
+        int cellX = (int) (x / cellWidth());
+        int cellY = (int) (y / cellHeight());
+        if (cellX >= columns || cellY >= rows) {
+            return null;
+        }
+        return new Position(cellX, cellY);
+    }
+
+    private double cellWidth() {
+        return canvas.getWidth() / columns;
+    }
+
+    private double cellHeight() {
+        return canvas.getHeight() / rows;
+    }
+
+    private boolean isOnBoard(int x, int y) {
+        return x >= 0 && y >= 0 && x < columns && y < rows;
+    }
+
+    /**
+     * Gives the GUI all information to set up a game
+     *
+     * @param b   board
+     * @param dir direction the starting line should be crossed
+     */
+    @Override
+    public void initializeGame(Board b, StartCrossDirection dir, boolean inRace, Player[] players) {
+        resetReplay();
+        gp.getChildren().removeAll(gp.getChildren());
+        gp.setHgap(0);
+        gp.setVgap(0);
+        gp.getColumnConstraints().removeAll(gp.getColumnConstraints());
+        gp.getRowConstraints().removeAll(gp.getRowConstraints());
+        ColumnConstraints column = new ColumnConstraints();
+        column.setPercentWidth(100);
+        gp.getColumnConstraints().add(column);
+        RowConstraints row = new RowConstraints();
+        row.setPercentHeight(100);
+        gp.getRowConstraints().add(row);
+        gp.add(holder, 0, 0);
+
+        initializePaneStyles(b, dir);
+        markerX = new double[players.length];
+        markerY = new double[players.length];
+        for (int i = 0; i < players.length; i++) {
+            boolean shown = inRace && players[i].isActive();
+            markerX[i] = shown ? players[i].getCurrentPos().getPosX() : Double.NaN;
+            markerY[i] = shown ? players[i].getCurrentPos().getPosY() : Double.NaN;
+        }
+        if (inRace) {
+            startRace_link.setText("Stop Race");
+        }
+        repaintAll();
+    }
+
+    /**
+     * takes over the surfaces of the board
+     * @param b board
+     * @param dir direction the starting line should be crossed
+     */
+    @Override
+    public void initializePaneStyles(Board b, StartCrossDirection dir) {
+        this.dir = dir;
+        this.columns = b.getLength();
+        this.rows = b.getLength(0);
+        this.cells = new Surfaces[columns * rows];
+        this.highlighted = new boolean[columns * rows];
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+                cells[y * columns + x] = b.surfaceAt(x, y);
+            }
+        }
+    }
+
+    /**
+     * changes the graphic of a field
+     * @param i x coordinate
+     * @param j y coordinate
+     * @param sur surface to be changed to
+     * @param dir direction the starting line should be crossed
+     * @param isStart true if the surface currently on the field is the start surface
+     */
+    @Override
+    public void changeGridPaneCell(int i, int j, Surfaces sur, StartCrossDirection dir, boolean isStart) {
+        if (isOnBoard(i, j)) {
+            this.dir = dir;
+            cells[j * columns + i] = sur;
+            highlighted[j * columns + i] = false;
+            repaint(i, j, i + 1, j + 1);
+        }
+    }
+
+    /**
+     * updates one of the possible fields that the player can choose
+     * @param pos position of field to be updated
+     * @param sur surface at the given field
+     * @param dir direction of starting line
+     */
+    @Override
+    public void showPossibleField(Position pos, Surfaces sur, StartCrossDirection dir) {
+        int x = pos.getPosX();
+        int y = pos.getPosY();
+        if (isOnBoard(x, y)) {
+            this.dir = dir;
+            cells[y * columns + x] = sur;
+            highlighted[y * columns + x] = true;
+            repaint(x, y, x + 1, y + 1);
+        }
+    }
+
+    /**
+     * handles any update in player position deciding between in race and in preparation
+     * @param logic instance of logic
+     * @param players player array
+     * @param isAI true if moving player is AI player false if not
+     * @param crashFound if the player crashed this turn
+     * @param currActPl currently active player
+     * @param oldPos old position before move
+     * @param newPos new position player moved to
+     */
+    @Override
+    public void updatePlayerPosGUI(Logic logic, Player[] players, boolean isAI, Position oldPos,
+                                   Position newPos, int currActPl, boolean crashFound) {
+        GameMode gameMode = logic.getGameMode();
+        controller.getStage().setResizable(false);
+        if (gameMode == GameMode.Race_Mode) {
+            logic.setInAnimation(true);
+            MarkerTransition move = new MarkerTransition(3 * logic.getCurrAnimationSpeed() + 1);
+            move.add(currActPl, oldPos, newPos);
+            SequentialTransition seqTransition = new SequentialTransition(
+                    new PauseTransition(Duration.millis(3 * logic.getCurrAnimationSpeed() + 1)), move);
+            seqTransition.setOnFinished(event -> finishMoveGUI(logic, players, crashFound, currActPl,
+                    oldPos, newPos));
+            seqTransition.play();
+        } else if (gameMode == GameMode.Preparation_Mode) {
+            ensurePlayer(currActPl);
+            if (isAI) {
+                logic.setInAnimation(true);
+                PauseTransition pause = new PauseTransition(Duration.millis(10 * logic.getCurrAnimationSpeed() + 2));
+                pause.setOnFinished(event -> {
+                    moveMarker(currActPl, newPos.getPosX(), newPos.getPosY());
+                    prepareRaceGUI(logic, currActPl, players);
+                });
+                pause.play();
+            } else {
+                moveMarker(currActPl, newPos.getPosX(), newPos.getPosY());
+                prepareRaceGUI(logic, currActPl, players);
+            }
+        }
+    }
+
+    /**
+     * moves the players to their positions after several AI turns were played without animation
+     * @param logic instance of logic
+     * @param players player array
+     * @param oldPositions positions of the players before the turns
+     */
+    @Override
+    public void updatePlayerPositionsGUI(Logic logic, Player[] players, Position[] oldPositions) {
+        for (int i = 0; i < players.length; i++) {
+            if (players[i].isActive()) {
+                ensurePlayer(i);
+                moveMarker(i, players[i].getCurrentPos().getPosX(), players[i].getCurrentPos().getPosY());
+            }
+        }
+        finishTurnsGUI(logic, players);
+    }
+
+    /**
+     * plays out one replay move to the canvas, also handles replay interruption
+     * @param logic instance of logic
+     * @param replayData player replay data to play move from
+     * @param moveCount current move the replay is at
+     * @param animationSpeed speed of replay animation
+     */
+    @Override
+    public void playReplayMove(Logic logic, ReplayData replayData, int moveCount, int animationSpeed) {
+        controller.getStage().setResizable(false);
+        ReplayIndex replayIndex = logic.getReplayIndex();
+        MarkerTransition move = new MarkerTransition(3 * logic.getCurrAnimationSpeed() + 1);
+        for (int i = 0; i < Logic.MAX_PLAYER_NUMBER; i++) {
+            if (logic.getPlayers()[i].isActive()) {
+                ensurePlayer(i);
+                move.add(i, replayIndex.getPosition(i, moveCount), replayIndex.getPosition(i, moveCount + 1));
+            }
+        }
+        SequentialTransition seqTransition = new SequentialTransition(
+                new PauseTransition(Duration.millis(3 * logic.getCurrAnimationSpeed() + 1)), move);
+        startReplayMove();
+        seqTransition.setOnFinished(event -> {
+            controller.getStage().setResizable(true);
+            if (moveCount < replayData.get(logic.findFirstActivePlayer()).size() - 1) {
+                int setToMove = replayTarget(logic, replayData, moveCount);
+                showMarkers(logic, replayIndex, setToMove);
+                finishReplayMove(logic, replayData, moveCount, setToMove);
+            }
+        });
+        seqTransition.play();
+    }
+
+    /**
+     * shows the players at a move of the replay at once
+     * @param logic instance of logic
+     * @param replayIndex index of the replay
+     * @param move move that is shown
+     */
+    @Override
+    public void showReplayMove(Logic logic, ReplayIndex replayIndex, int move) {
+        if (deferReplaySeek(move)) {
+            return;
+        }
+        showMarkers(logic, replayIndex, move);
+        setShownReplayMove(move);
+    }
+
+    private void showMarkers(Logic logic, ReplayIndex replayIndex, int move) {
+        for (int i = 0; i < Logic.MAX_PLAYER_NUMBER; i++) {
+            if (logic.getPlayers()[i].isActive()) {
+                ensurePlayer(i);
+                moveMarker(i, replayIndex.getX(i, move), replayIndex.getY(i, move));
+            }
+        }
+    }
+
+    /**
+     * makes room for the marker of a player
+     * @param player number of the player
+     */
+    private void ensurePlayer(int player) {
+        if (player >= markerX.length) {
+            int oldLength = markerX.length;
+            markerX = Arrays.copyOf(markerX, player + 1);
+            markerY = Arrays.copyOf(markerY, player + 1);
+            Arrays.fill(markerX, oldLength, markerX.length, Double.NaN);
+            Arrays.fill(markerY, oldLength, markerY.length, Double.NaN);
+        }
+    }
+
+    /**
+     * moves the marker of a player and draws the fields it left and entered again
+     * @param player number of the player
+     * @param x new x value in fields
+     * @param y new y value in fields
+     */
+    private void moveMarker(int player, double x, double y) {
+        double oldX = markerX[player];
+        double oldY = markerY[player];
+        markerX[player] = x;
+        markerY[player] = y;
+        if (!Double.isNaN(oldX)) {
+            repaint(oldX, oldY, oldX + 1, oldY + 1);
+        }
+        repaint(x, y, x + 1, y + 1);
+    }
+
+    /**
+     * draws the whole board
+     */
+    private void repaintAll() {
+        repaint(0, 0, columns, rows);
+    }
+
+    /**
+     * draws a part of the board again, only the fields touching it are drawn
+     * @param fromX left border in fields
+     * @param fromY upper border in fields
+     * @param toX right border in fields
+     * @param toY lower border in fields
+     */
+    private void repaint(double fromX, double fromY, double toX, double toY) {
+        if (columns == 0 || rows == 0 || canvas.getWidth() <= 0 || canvas.getHeight() <= 0) {
+            return;
+        }
+        final double cellWidth = cellWidth();
+        final double cellHeight = cellHeight();
+        int firstX = Math.max(0, (int) Math.floor(fromX));
+        int firstY = Math.max(0, (int) Math.floor(fromY));
+        int lastX = Math.min(columns, (int) Math.ceil(toX));
+        int lastY = Math.min(rows, (int) Math.ceil(toY));
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.save();
+        gc.beginPath();
+        gc.rect(firstX * cellWidth, firstY * cellHeight, (lastX - firstX) * cellWidth, (lastY - firstY) * cellHeight);
+        gc.clip();
+        gc.clearRect(firstX * cellWidth, firstY * cellHeight, (lastX - firstX) * cellWidth,
+                (lastY - firstY) * cellHeight);
+        for (int y = firstY; y < lastY; y++) {
+            for (int x = firstX; x < lastX; x++) {
+                drawCell(gc, x, y, cellWidth, cellHeight);
+            }
+        }
+        for (int i = 0; i < markerX.length; i++) {
+            if (!Double.isNaN(markerX[i]) && markerX[i] + 1 > firstX && markerX[i] < lastX
+                    && markerY[i] + 1 > firstY && markerY[i] < lastY) {
+                gc.setFill(playerColor(i));
+                double radius = cellWidth / 2.5;
+                gc.fillOval((markerX[i] + 0.5) * cellWidth - radius, (markerY[i] + 0.5) * cellHeight - radius,
+                        2 * radius, 2 * radius);
+            }
+        }
+        gc.restore();
+    }
+
+    /**
+     * draws one field
+     */
+    private void drawCell(GraphicsContext gc, int x, int y, double cellWidth, double cellHeight) {
+        double left = x * cellWidth + GAP / 2;
+        double top = y * cellHeight + GAP / 2;
+        double width = Math.max(0, cellWidth - GAP);
+        double height = Math.max(0, cellHeight - GAP);
+        boolean green = highlighted[y * columns + x];
+        switch (cells[y * columns + x]) {
+            case GRAVEL -> gc.setFill(Color.web(green ? Logic.GreenGravel_Color : "grey"));
+            case ROAD -> gc.setFill(Color.web(green ? Logic.GreenRoad_Color : "white"));
+            case RED_GRAVEL -> gc.setFill(Color.RED);
+            case START -> {
+                StartImageAtlas atlas = StartImageAtlas.get();
+                Rectangle2D source = atlas.getViewport(dir, green);
+                gc.drawImage(atlas.getImage(), source.getMinX(), source.getMinY(), source.getWidth(),
+                        source.getHeight(), left, top, width, height);
+                return;
+            }
+        }
+        gc.fillRect(left, top, width, height);
+    }
+
+    /**
+     * @param player number of the player
+     * @return color of the player
+     */
+    private static Color playerColor(int player) {
+        return switch (player) {
+            case Logic.PLAYER_1 -> Color.web(Logic.P1_COLOR);
+            case Logic.PLAYER_2 -> Color.web(Logic.P2_COLOR);
+            case Logic.PLAYER_3 -> Color.web(Logic.P3_COLOR);
+            default -> Color.web(Logic.P4_COLOR);
+        };
+    }
+
+    /**
+     * moves markers in a straight line from one field to another, only the fields they pass are drawn again
+     */
+    private class MarkerTransition extends Transition {
+
+        private final int[] movedPlayers = new int[Logic.MAX_PLAYER_NUMBER];
+        private final double[] from = new double[2 * Logic.MAX_PLAYER_NUMBER];
+        private final double[] to = new double[2 * Logic.MAX_PLAYER_NUMBER];
+        private int count;
+
+        private MarkerTransition(double millis) {
+            setCycleDuration(Duration.millis(millis));
+        }
+
+        private void add(int player, Position start, Position target) {
+            movedPlayers[count] = player;
+            from[2 * count] = start.getPosX();
+            from[2 * count + 1] = start.getPosY();
+            to[2 * count] = target.getPosX();
+            to[2 * count + 1] = target.getPosY();
+            count++;
+        }
+
+        @Override
+        protected void interpolate(double frac) {
+            for (int i = 0; i < count; i++) {
+                moveMarker(movedPlayers[i], from[2 * i] + (to[2 * i] - from[2 * i]) * frac,
+                        from[2 * i + 1] + (to[2 * i + 1] - from[2 * i + 1]) * frac);
+            }
+        }
+    }
+}
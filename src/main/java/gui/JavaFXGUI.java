@@ -4,10 +4,10 @@ import javafx.animation.ParallelTransition;
 import javafx.animation.PauseTransition;
 import javafx.animation.SequentialTransition;
 import javafx.animation.TranslateTransition;
+import javafx.geometry.Bounds;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Hyperlink;
 import javafx.scene.control.TextField;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
@@ -16,10 +16,6 @@ import javafx.stage.Stage;
 import javafx.util.Duration;
 import logic.*;
 
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.ArrayList;
 
 /**
  * this class is responsible for outputting information the logic provides to the gui
@@ -27,14 +23,21 @@ import java.util.ArrayList;
 public class JavaFXGUI implements GUIConnector {
 
 
-    private final GridPane gp;
+    protected final GridPane gp;
 
-    private final TextField modeTextfield;
+    protected final TextField modeTextfield;
 
-    private final Hyperlink startRace_link;
+    protected final Hyperlink startRace_link;
 
-    private final UserInterfaceController controller;
+    protected final UserInterfaceController controller;
 
+    //move of the replay the circles are shown at, -1 if they are at the current positions
+    private int shownReplayMove = -1;
+
+    //move chosen while a replay move was animated, -1 if there is none
+    private int pendingReplaySeek = -1;
+
+    private boolean replayMoveRunning;
 
     protected JavaFXGUI(GridPane gp, TextField modeTextfield, Hyperlink hl,
                         UserInterfaceController controller) {
@@ -53,6 +56,56 @@ public class JavaFXGUI implements GUIConnector {
         modeTextfield.setText(s);
     }
 
+    /**
+     * finds the field at a point of the board, searching the borders of the panes of the first row and column
+     * @param x x value in the grid pane
+     * @param y y value in the grid pane
+     * @return field at the point, null if the point is outside the board or between two fields
+     */
+    public Position cellAt(double x, double y) {
+        int columns = gp.getColumnConstraints().size();
+        int rows = gp.getRowConstraints().size();
+        if (columns == 0 || rows == 0 || gp.getChildren().size() < columns * rows) {
+            return null;
+        }
+        int column = findLine(x, columns, rows, true);
+        int row = findLine(y, rows, 1, false);
+        if (column == -1 || row == -1) {
+            return null;
+        }
+        return new Position(column, row);
+    }
+
+    /**
+     * @param value x or y value
+     * @param count number of columns or rows
+     * @param step distance of the panes of two neighbouring columns or rows in the children of the grid pane
+     * @param horizontal true to search the columns, false for the rows
+     * @return column or row containing the value, -1 if there is none
+     */
+    private int findLine(double value, int count, int step, boolean horizontal) {
+        int low = 0;
+        int high = count - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Bounds bounds = gp.getChildren().get(mid * step).getBoundsInParent();
+            if ((horizontal ? bounds.getMinX() : bounds.getMinY()) <= value) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found != -1) {
+            Bounds bounds = gp.getChildren().get(found * step).getBoundsInParent();
+            if ((horizontal ? bounds.getMaxX() : bounds.getMaxY()) < value) {
+                return -1;
+            }
+        }
+        return found;
+    }
+
     /**
      * creates a circle and binds it to a pane
      * @param currActPl decides the color of the circle
@@ -75,7 +128,7 @@ public class JavaFXGUI implements GUIConnector {
      * @param currActPl currently active player
      * @param players player array
      */
-    private void prepareRaceGUI(Logic logic, int currActPl, Player[] players) {
+    protected void prepareRaceGUI(Logic logic, int currActPl, Player[] players) {
         logic.setInAnimation(false);
         controller.getStage().setResizable(true);
         int nextPlayerNumber = logic.getNextActivePlayer(currActPl);
@@ -121,6 +174,20 @@ public class JavaFXGUI implements GUIConnector {
         circle.setTranslateY(0);
         circle.setTranslateX(0);
         circle.toFront();
+        finishMoveGUI(logic, players, crashFound, currActPl, oldPos, newPos);
+    }
+
+    /**
+     * books the move that was just animated into the logic and starts the next one, or shows the victory screen
+     * @param logic instance of logic
+     * @param players player array
+     * @param crashFound if the player crashed this turn
+     * @param currActPl currently active player
+     * @param oldPos old position before move
+     * @param newPos new position player moved to
+     */
+    protected void finishMoveGUI(Logic logic, Player[] players, boolean crashFound, int currActPl,
+                                 Position oldPos, Position newPos) {
         logic.setInAnimation(false);
         controller.getStage().setResizable(true);
         if (logic.getIsGameWon()) {
@@ -234,6 +301,46 @@ public class JavaFXGUI implements GUIConnector {
         seqTransition.play();
     }
 
+    /**
+     * moves the players to their positions after several AI turns were played without animation, then shows
+     * the victory screen or starts the turn of the next player
+     * @param logic instance of logic
+     * @param players player array
+     * @param oldPositions positions of the players before the turns
+     */
+    public void updatePlayerPositionsGUI(Logic logic, Player[] players, Position[] oldPositions) {
+        for (int i = 0; i < players.length; i++) {
+            if (players[i].isActive() && !players[i].getCurrentPos().isEqualTo(oldPositions[i])) {
+                Pane oldPane = (Pane) gp.getChildren().get(oldPositions[i].getPosX()
+                        * gp.getRowConstraints().size() + oldPositions[i].getPosY());
+                Pane newPane = (Pane) gp.getChildren().get(players[i].getCurrentPos().getPosX()
+                        * gp.getRowConstraints().size() + players[i].getCurrentPos().getPosY());
+                Circle circle = (Circle) oldPane.getChildren().get(oldPane.getChildren().size() - 1);
+                oldPane.getChildren().remove(oldPane.getChildren().size() - 1);
+                setCircleStyle(circle, i);
+                newPane.getChildren().add(circle);
+                circle.toFront();
+            }
+        }
+        finishTurnsGUI(logic, players);
+    }
+
+    /**
+     * shows the victory screen or starts the turn of the next player after turns without animation
+     * @param logic instance of logic
+     * @param players player array
+     */
+    protected void finishTurnsGUI(Logic logic, Player[] players) {
+        if (logic.getIsGameWon()) {
+            modeTextfield.setText("Game is Won!");
+            controller.handleVictoryScreen();
+        } else {
+            Player next = players[logic.getCurrentPlayer()];
+            modeTextfield.setText(next.getName() + (next.isAI() ? "(AI) is choosing..." : " make your move!"));
+            logic.startTurn();
+        }
+    }
+
     /**
      * handles any update in player position deciding between in race and in preparation
      * @param logic instance of logic
@@ -262,9 +369,10 @@ public class JavaFXGUI implements GUIConnector {
      * @param moveCount current move the replay is at
      * @param animationSpeed speed of replay animation
      */
-    public void playReplayMove(Logic logic, ArrayList<ArrayList<Position>> replayData,
+    public void playReplayMove(Logic logic, ReplayData replayData,
                                int moveCount, int animationSpeed) {
         TranslateTransition[] animations = new TranslateTransition[logic.howManyActivePlayers()];
+        ReplayIndex replayIndex = logic.getReplayIndex();
         controller.getStage().setResizable(false);
 
         for (int i = 0; i < Logic.MAX_PLAYER_NUMBER; i++) {
@@ -278,16 +386,9 @@ public class JavaFXGUI implements GUIConnector {
                 Pane targetPane = (Pane) gp.getChildren().get(targetPanePosition);
                 Pane tempPane = (Pane) gp.getChildren().get(gp.getChildren().size() - 1);
 
-
-                if (moveCount != 0) {
-                    circle = (Circle) paneWithCircle.getChildren().get(paneWithCircle.getChildren().size() - 1);
-                    paneWithCircle.getChildren().remove(paneWithCircle.getChildren().size() - 1);
-                } else {
-                    Pane oldPos = (Pane)gp.getChildren().get(logic.getPlayers()[i].getCurrentPos().getPosX()
-                            * gp.getRowConstraints().size() + logic.getPlayers()[i].getCurrentPos().getPosY());
-                    circle = (Circle)oldPos.getChildren().get(oldPos.getChildren().size() - 1);
-                    oldPos.getChildren().remove(oldPos.getChildren().size() - 1);
-                }
+                Pane oldPos = shownReplayPane(logic, replayIndex, i);
+                circle = (Circle) oldPos.getChildren().get(oldPos.getChildren().size() - 1);
+                oldPos.getChildren().remove(oldPos.getChildren().size() - 1);
                 circle.setVisible(true);
                 circle.centerXProperty().bind(tempPane.widthProperty().divide(2));
                 circle.centerYProperty().bind(tempPane.heightProperty().divide(2));
@@ -309,13 +410,11 @@ public class JavaFXGUI implements GUIConnector {
                 new PauseTransition(Duration.millis(3*logic.getCurrAnimationSpeed() + 1)));
         parallelTransition.getChildren().addAll(animations);
 
+        startReplayMove();
         parallelTransition.setOnFinished(event -> {
             controller.getStage().setResizable(true);
             if (moveCount < replayData.get(logic.findFirstActivePlayer()).size() - 1) {
-                int setToMove = moveCount + 1;
-                if (!logic.isInReplay()) {
-                    setToMove = replayData.get(logic.findFirstActivePlayer()).size() - 1;
-                }
+                int setToMove = replayTarget(logic, replayData, moveCount);
                 for (int i = 0; i < Logic.MAX_PLAYER_NUMBER; i++) {
                     if (logic.getPlayers()[i].isActive()) {
                         int targetPanePosition = (replayData.get(i).get(setToMove)).getPosX()
@@ -324,30 +423,154 @@ public class JavaFXGUI implements GUIConnector {
                         Pane tempPane = ((Pane)gp.getChildren().get(gp.getChildren().size() - 1));
                         Circle circle = (Circle)tempPane.getChildren().get(tempPane.getChildren().size() - 1);
                         tempPane.getChildren().remove(tempPane.getChildren().size() - 1);
-                        switch (i) {
-                            case Logic.PLAYER_1 -> circle.setStyle("-fx-fill: " + Logic.P1_COLOR+ ";");
-                            case Logic.PLAYER_2 -> circle.setStyle("-fx-fill: " + Logic.P2_COLOR+ ";");
-                            case Logic.PLAYER_3 -> circle.setStyle("-fx-fill: " + Logic.P3_COLOR+ ";");
-                            case Logic.PLAYER_4 -> circle.setStyle("-fx-fill: " + Logic.P4_COLOR+ ";");
-                        }
+                        setCircleStyle(circle, i);
                         ((Pane)gp.getChildren().get(targetPanePosition)).getChildren().add(circle);
                         circle.setVisible(false);
                     }
                 }
-                if (!logic.isInReplay()) {
-                    controller.handleVictoryScreen();
-                    logic.setInAnimation(false);
-                } else if (moveCount == replayData.get(logic.findFirstActivePlayer()).size() - 2 || !logic.isInReplay()) {
-                    controller.handleVictoryScreen();
-                } else {
-                    logic.playReplay(moveCount + 1);
-                }
+                finishReplayMove(logic, replayData, moveCount, setToMove);
             }
         });
 
         parallelTransition.play();
     }
 
+    /**
+     * @param logic instance of logic
+     * @param replayData player replay data
+     * @param moveCount move that was just played
+     * @return move the players are shown at after it, the last one if the replay was stopped
+     */
+    protected int replayTarget(Logic logic, ReplayData replayData, int moveCount) {
+        if (!logic.isInReplay()) {
+            return replayData.get(logic.findFirstActivePlayer()).size() - 1;
+        }
+        return moveCount + 1;
+    }
+
+    /**
+     * goes on with the replay after a move was played, or shows the victory screen at its end
+     * @param logic instance of logic
+     * @param replayData player replay data
+     * @param moveCount move that was just played
+     * @param setToMove move the players are shown at now
+     */
+    protected void finishReplayMove(Logic logic, ReplayData replayData, int moveCount, int setToMove) {
+        replayMoveRunning = false;
+        shownReplayMove = setToMove;
+        if (pendingReplaySeek != -1 && logic.isInReplay()) {
+            int seek = pendingReplaySeek;
+            pendingReplaySeek = -1;
+            showReplayMove(logic, logic.getReplayIndex(), seek);
+            if (seek < replayData.get(logic.findFirstActivePlayer()).size() - 1) {
+                logic.playReplay(seek);
+            } else {
+                controller.handleVictoryScreen();
+            }
+        } else if (!logic.isInReplay()) {
+            controller.handleVictoryScreen();
+            logic.setInAnimation(false);
+        } else if (moveCount == replayData.get(logic.findFirstActivePlayer()).size() - 2 || !logic.isInReplay()) {
+            controller.handleVictoryScreen();
+        } else {
+            logic.playReplay(moveCount + 1);
+        }
+    }
+
+    /**
+     * remembers a move of the replay to be shown when the running replay move is finished
+     * @param move move that should be shown
+     * @return true if a replay move is running, the move is shown later then
+     */
+    protected boolean deferReplaySeek(int move) {
+        if (replayMoveRunning) {
+            pendingReplaySeek = move;
+        }
+        return replayMoveRunning;
+    }
+
+    /**
+     * @return move of the replay the players are shown at, -1 if they are at their current positions
+     */
+    protected int getShownReplayMove() {
+        return shownReplayMove;
+    }
+
+    /**
+     * @param move move of the replay the players are shown at, -1 for their current positions
+     */
+    protected void setShownReplayMove(int move) {
+        shownReplayMove = move;
+    }
+
+    /**
+     * forgets the shown replay move, the players are at their current positions
+     */
+    protected void resetReplay() {
+        shownReplayMove = -1;
+        pendingReplaySeek = -1;
+    }
+
+    /**
+     * marks that a replay move is animated
+     */
+    protected void startReplayMove() {
+        replayMoveRunning = true;
+    }
+
+    /**
+     * shows the players at a move of the replay at once. If a replay move is animated right now, the players
+     * are moved when it is finished and the replay goes on from there
+     * @param logic instance of logic
+     * @param replayIndex index of the replay
+     * @param move move that is shown
+     */
+    public void showReplayMove(Logic logic, ReplayIndex replayIndex, int move) {
+        if (deferReplaySeek(move)) {
+            return;
+        }
+        for (int i = 0; i < Logic.MAX_PLAYER_NUMBER; i++) {
+            if (logic.getPlayers()[i].isActive()) {
+                Pane oldPos = shownReplayPane(logic, replayIndex, i);
+                Circle circle = (Circle) oldPos.getChildren().get(oldPos.getChildren().size() - 1);
+                oldPos.getChildren().remove(oldPos.getChildren().size() - 1);
+                circle.setTranslateX(0);
+                circle.setTranslateY(0);
+                setCircleStyle(circle, i);
+                ((Pane) gp.getChildren().get(replayIndex.getX(i, move) * gp.getRowConstraints().size()
+                        + replayIndex.getY(i, move))).getChildren().add(circle);
+                circle.setVisible(true);
+            }
+        }
+        shownReplayMove = move;
+    }
+
+    /**
+     * @param logic instance of logic
+     * @param replayIndex index of the replay
+     * @param player number of the player
+     * @return pane the circle of the player is in right now
+     */
+    private Pane shownReplayPane(Logic logic, ReplayIndex replayIndex, int player) {
+        Position pos = shownReplayMove == -1 ? logic.getPlayers()[player].getCurrentPos()
+                : replayIndex.getPosition(player, shownReplayMove);
+        return (Pane) gp.getChildren().get(pos.getPosX() * gp.getRowConstraints().size() + pos.getPosY());
+    }
+
+    /**
+     * colors the circle of a player
+     * @param circle the circle
+     * @param player number of the player
+     */
+    private void setCircleStyle(Circle circle, int player) {
+        switch (player) {
+            case Logic.PLAYER_1 -> circle.setStyle("-fx-fill: " + Logic.P1_COLOR+ ";");
+            case Logic.PLAYER_2 -> circle.setStyle("-fx-fill: " + Logic.P2_COLOR+ ";");
+            case Logic.PLAYER_3 -> circle.setStyle("-fx-fill: " + Logic.P3_COLOR+ ";");
+            case Logic.PLAYER_4 -> circle.setStyle("-fx-fill: " + Logic.P4_COLOR+ ";");
+        }
+    }
+
     /**
      * creates the start image and adds it to a pane
      * @param dir direction the starting line should be crossed
@@ -355,39 +578,10 @@ public class JavaFXGUI implements GUIConnector {
      * @param green true if image needs green background, false if not
      */
     private void setStartImage(StartCrossDirection dir, Pane lb, boolean green) {
-        try {
-            String s = "";
-            /* couldn't get the JavaFX rotation-bug fixed in time*/
-            if (green) {
-                switch (dir) {
-                    case LEFT     ->  s = "/img/finishLeft_green.png";
-                    case RIGHT    ->  s = "/img/finishRight_green.png";
-                    case UP, DOWN ->  s = "/img/finishUp_green.png";
-                }
-            } else {
-                switch (dir) {
-                    case LEFT     ->  s = "/img/finishLeft.png";
-                    case RIGHT    ->  s = "/img/finishRight.png";
-                    case UP, DOWN ->  s = "/img/finishUp.png";
-                }
-            }
-            InputStream inputStream = getClass().getResourceAsStream(s);
-            if (inputStream != null) {
-                Image img = new Image(inputStream);
-                ImageView imgV = new ImageView(img);
-                lb.getChildren().add(0, imgV);
-
-                if (dir == StartCrossDirection.DOWN) {
-                    imgV.setRotate(180);
-                }
-                imgV.fitWidthProperty().bind(lb.widthProperty());
-                imgV.fitHeightProperty().bind(lb.heightProperty());
-            } else {
-                throw new FileNotFoundException("Image not found: " + s);
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        ImageView imgV = StartImageAtlas.get().createView(dir, green);
+        lb.getChildren().add(0, imgV);
+        imgV.fitWidthProperty().bind(lb.widthProperty());
+        imgV.fitHeightProperty().bind(lb.heightProperty());
     }
 
     /**
@@ -396,12 +590,11 @@ public class JavaFXGUI implements GUIConnector {
      * @param dir direction the starting line should be crossed
      */
     public void initializePaneStyles(Board b, StartCrossDirection dir) {
-        Surfaces[][] values = b.getValues();
         for (int i = 0; i < b.getLength(); i++) {
             for (int j = 0; j < b.getLength(0); j++) {
                 Pane lb = new Pane();
                 this.gp.add(lb, i, j);
-                switch (values[i][j]) {
+                switch (b.surfaceAt(i, j)) {
                     case GRAVEL -> lb.setStyle("-fx-background-color : grey");
                     case ROAD -> lb.setStyle("-fx-background-color : white");
                     case START -> setStartImage(dir, lb, false);
@@ -517,6 +710,8 @@ public class JavaFXGUI implements GUIConnector {
     @Override
     public void initializeGame(Board b, StartCrossDirection dir, boolean inRace, Player[] players) {
 
+        resetReplay();
+
         // Resets the gridPanes values
         this.gp.getChildren().removeAll(gp.getChildren());
         this.gp.setHgap(2);
@@ -0,0 +1,129 @@
+package gui;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import logic.StartCrossDirection;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * all images of the starting line in one image. Every image file is decoded once, the line crossed downwards is
+ * the upwards one turned around. The directions are the columns, the first row has the plain and the second row
+ * the green images. All image views and the canvas share the one decoded image.
+ */
+public final class StartImageAtlas {
+
+    //size of one image in the atlas in pixels, more than a field of the board ever gets
+    private static final int TILE = 128;
+
+    private static final StartCrossDirection[] DIRECTIONS = StartCrossDirection.values();
+
+    private static StartImageAtlas instance;
+
+    //number of image files decoded since the start of the program
+    private static int decodeCount;
+
+    private final WritableImage atlas;
+
+    private StartImageAtlas() {
+        atlas = new WritableImage(DIRECTIONS.length * TILE, 2 * TILE);
+        for (int row = 0; row < 2; row++) {
+            boolean green = row == 1;
+            Image up = decode("/img/finishUp" + (green ? "_green.png" : ".png"));
+            copy(up, StartCrossDirection.UP, green, false);
+            copy(up, StartCrossDirection.DOWN, green, true);
+            copy(decode("/img/finishLeft" + (green ? "_green.png" : ".png")), StartCrossDirection.LEFT, green, false);
+            copy(decode("/img/finishRight" + (green ? "_green.png" : ".png")), StartCrossDirection.RIGHT, green,
+                    false);
+        }
+    }
+
+    /**
+     * returns the atlas, it is created on the first call. Has to be called on the JavaFX thread
+     *
+     * @return the atlas
+     */
+    public static StartImageAtlas get() {
+        if (instance == null) {
+            instance = new StartImageAtlas();
+        }
+        return instance;
+    }
+
+    /**
+     * @return number of image files decoded so far, it does not grow once the atlas exists
+     */
+    public static int getDecodeCount() {
+        return decodeCount;
+    }
+
+    /**
+     * @param path path of the image resource
+     * @return the image, scaled to the size of a tile
+     */
+    private static Image decode(String path) {
+        try (InputStream inputStream = StartImageAtlas.class.getResourceAsStream(path)) {
+            if (inputStream == null) {
+                throw new FileNotFoundException("Image not found: " + path);
+            }
+            decodeCount++;
+            return new Image(inputStream, TILE, TILE, false, true);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * copies an image into its tile
+     *
+     * @param image   decoded image of the size of a tile
+     * @param dir     direction the tile is for
+     * @param green   true for the tile with green background
+     * @param turned  true if the image is turned by 180 degrees
+     */
+    private void copy(Image image, StartCrossDirection dir, boolean green, boolean turned) {
+        PixelReader reader = image.getPixelReader();
+        PixelWriter writer = atlas.getPixelWriter();
+        int left = dir.ordinal() * TILE;
+        int top = green ? TILE : 0;
+        for (int y = 0; y < TILE; y++) {
+            for (int x = 0; x < TILE; x++) {
+                int argb = turned ? reader.getArgb(TILE - 1 - x, TILE - 1 - y) : reader.getArgb(x, y);
+                writer.setArgb(left + x, top + y, argb);
+            }
+        }
+    }
+
+    /**
+     * @return the image holding all tiles
+     */
+    public Image getImage() {
+        return atlas;
+    }
+
+    /**
+     * @param dir   direction the starting line has to be crossed
+     * @param green true for the image with green background
+     * @return part of the atlas with the image
+     */
+    public Rectangle2D getViewport(StartCrossDirection dir, boolean green) {
+        return new Rectangle2D(dir.ordinal() * TILE, green ? TILE : 0, TILE, TILE);
+    }
+
+    /**
+     * @param dir   direction the starting line has to be crossed
+     * @param green true for the image with green background
+     * @return new view showing the image, it shares the atlas with all other views
+     */
+    public ImageView createView(StartCrossDirection dir, boolean green) {
+        ImageView view = new ImageView(atlas);
+        view.setViewport(getViewport(dir, green));
+        return view;
+    }
+}
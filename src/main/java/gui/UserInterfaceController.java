@@ -6,6 +6,7 @@ import javafx.event.EventHandler;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
+import javafx.geometry.Point2D;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -38,6 +39,8 @@ public class UserInterfaceController implements Initializable {
     private GameMode gameMode;
     private int currAnimationSpeed = Logic.HIGHEST_ANIM_SPEED;
     private MouseButton mouseButton;
+    private Slider replay_slider;
+    private boolean canvasBoard;
     public static final double TARGET_RATIO = 16.0 / 9.0;
 
 
@@ -63,6 +66,10 @@ public class UserInterfaceController implements Initializable {
     private HBox display_hbox;
     @FXML
     private RadioMenuItem editor_radioMenuItem;
+    @FXML
+    private RadioMenuItem canvas_radioMenuItem;
+    @FXML
+    private RadioMenuItem aiLine_radioMenuItem;
 
     private GUIConnector guiCon;
     private Logic logic;
@@ -211,74 +218,133 @@ public class UserInterfaceController implements Initializable {
     }
 
     /**
-     * adds a handler for each pane that handles mouseClicks in editor mode
+     * adds the handlers for mouse input on the board. They are added once to the board container, which finds the
+     * field from the mouse position and passes the input to the editor or the race, so nothing has to be added
+     * when a board is loaded or changes its size
      */
-    public void setEditorEventHandlers() {
-        for (int i = 0; i < game_GP.getColumnConstraints().size(); i++) {
-            for (int j = 0; j < game_GP.getRowConstraints().size(); j++) {
-                final int indexI = i;
-                final int indexJ = j;
-                Pane p = (Pane) game_GP.getChildren().get(i* game_GP.getRowConstraints().size()+j);
-
-                EventHandler<MouseEvent> onMousePressedHandler = new EventHandler<MouseEvent>() {
-                    @Override
-                    public void handle(MouseEvent mouseEvent) {
-                        if(mouseEvent.getButton() == MouseButton.PRIMARY) {
-                            if (logic.getBoard().getValues()[indexI][indexJ] != Surfaces.START) {
-                                logic.getBoard().changeBoardCell(indexI, indexJ,
-                                        Surfaces.ROAD, logic.getBoard(), guiCon, logic.getDir());
-                            }
-                        } else if (mouseEvent.getButton() == MouseButton.SECONDARY) {
-                            if (logic.getBoard().getValues()[indexI][indexJ] == Surfaces.START) {
-                                logic.handleTheStartingLine(indexI, indexJ, false, true);
-                            } else {
-                                logic.getBoard().changeBoardCell(indexI, indexJ,
-                                        Surfaces.GRAVEL, logic.getBoard(), guiCon, logic.getDir());
-                            }
-                        }  else if (mouseEvent.getButton() == MouseButton.MIDDLE) {
-                            if (logic.getBoard().getValues()[indexI][indexJ] == Surfaces.START) {
-                                logic.handleTheStartingLine(indexI, indexJ,true, false);
-                            } else if (logic.getBoard().getValues()[indexI][indexJ] == Surfaces.ROAD) {
-                                logic.handleTheStartingLine(indexI, indexJ, false, false);
-                            }
-                        }
-                    }
-                };
-                p.setOnMousePressed(onMousePressedHandler);
-
-                EventHandler<MouseEvent> onDragDetectedHandler = (MouseEvent event) -> {
-                    mouseButton = event.getButton();
-                    Dragboard db = game_GP.getChildren().get(
-                            indexI* game_GP.getRowConstraints().size()+indexJ).startDragAndDrop(TransferMode.ANY);
-                    ClipboardContent content = new ClipboardContent();
-                    content.putString("has key");
-                    db.setContent(content);
-
-                    event.consume();
-                };
-                p.setOnDragDetected(onDragDetectedHandler);
-
-                EventHandler<DragEvent> onDragOverHandler = (DragEvent event) -> {
-                    if (event.getGestureSource() != game_GP.getChildren().get(
-                            indexI* game_GP.getRowConstraints().size()+indexJ) &&
-                            event.getDragboard().hasString()) {
-                        event.acceptTransferModes(TransferMode.COPY_OR_MOVE);
-                    }
-                    if(mouseButton == MouseButton.PRIMARY) {
-                        if (logic.getBoard().getValues()[indexI][indexJ] != Surfaces.START) {
-                            logic.getBoard().changeBoardCell(indexI, indexJ,
-                                    Surfaces.ROAD, logic.getBoard(), guiCon, logic.getDir());
-                        }
-                    } else if(mouseButton == MouseButton.SECONDARY) {
-                        if (logic.getBoard().getValues()[indexI][indexJ] != Surfaces.START) {
-                            logic.getBoard().changeBoardCell(indexI, indexJ,
-                                    Surfaces.GRAVEL, logic.getBoard(), guiCon, logic.getDir());
-                        }
-                    }
-                    event.consume();
-                };
-                p.setOnDragOver(onDragOverHandler);
+    private void setBoardEventHandlers() {
+        Position[] hovered = new Position[1];
+        game_GP.addEventHandler(MouseEvent.MOUSE_PRESSED, event -> {
+            mouseButton = event.getButton();
+            Position cell = boardCellAt(event);
+            if (cell == null) {
+                return;
+            }
+            if (gameMode == GameMode.Editor_Mode) {
+                editorMousePressed(cell.getPosX(), cell.getPosY(), event.getButton());
+            } else if (event.getButton() == MouseButton.PRIMARY) {
+                logic.updatePlayerPosition(cell);
+            }
+        });
+        game_GP.addEventHandler(MouseEvent.MOUSE_DRAGGED, event -> {
+            Position cell = boardCellAt(event);
+            if (cell != null && gameMode == GameMode.Editor_Mode) {
+                editorDragOver(cell.getPosX(), cell.getPosY());
+            }
+        });
+        game_GP.addEventHandler(MouseEvent.MOUSE_MOVED, event -> {
+            Position cell = boardCellAt(event);
+            if (hovered[0] != null && (cell == null || !cell.isEqualTo(hovered[0]))) {
+                showCrashPoint(hovered[0].getPosX(), hovered[0].getPosY(), true);
+                hovered[0] = null;
+            }
+            if (cell != null && hovered[0] == null) {
+                hovered[0] = cell;
+                showCrashPoint(cell.getPosX(), cell.getPosY(), false);
             }
+        });
+        game_GP.setOnMouseExited(event -> {
+            if (hovered[0] != null) {
+                showCrashPoint(hovered[0].getPosX(), hovered[0].getPosY(), true);
+                hovered[0] = null;
+            }
+        });
+    }
+
+    /**
+     * @param event mouse event on the board
+     * @return field under the mouse, null if there is none
+     */
+    private Position boardCellAt(MouseEvent event) {
+        if (logic == null || !(guiCon instanceof JavaFXGUI javaFXGUI)) {
+            return null;
+        }
+        Point2D point = game_GP.sceneToLocal(event.getSceneX(), event.getSceneY());
+        return javaFXGUI.cellAt(point.getX(), point.getY());
+    }
+
+    /**
+     * changes a field in editor mode after a click
+     * @param x x value of the field
+     * @param y y value of the field
+     * @param button mouse button that was pressed
+     */
+    private void editorMousePressed(int x, int y, MouseButton button) {
+        if (button == MouseButton.PRIMARY) {
+            if (logic.getBoard().surfaceAt(x, y) != Surfaces.START) {
+                logic.changeBoardCell(x, y, Surfaces.ROAD);
+            }
+        } else if (button == MouseButton.SECONDARY) {
+            if (logic.getBoard().surfaceAt(x, y) == Surfaces.START) {
+                logic.handleTheStartingLine(x, y, false, true);
+            } else {
+                logic.changeBoardCell(x, y, Surfaces.GRAVEL);
+            }
+        } else if (button == MouseButton.MIDDLE) {
+            if (logic.getBoard().surfaceAt(x, y) == Surfaces.START) {
+                logic.handleTheStartingLine(x, y, true, false);
+            } else if (logic.getBoard().surfaceAt(x, y) == Surfaces.ROAD) {
+                logic.handleTheStartingLine(x, y, false, false);
+            }
+        }
+    }
+
+    /**
+     * paints a field in editor mode while the mouse is dragged over it
+     * @param x x value of the field
+     * @param y y value of the field
+     */
+    private void editorDragOver(int x, int y) {
+        if (mouseButton == MouseButton.PRIMARY) {
+            if (logic.getBoard().surfaceAt(x, y) != Surfaces.START) {
+                logic.changeBoardCell(x, y, Surfaces.ROAD);
+            }
+        } else if (mouseButton == MouseButton.SECONDARY) {
+            if (logic.getBoard().surfaceAt(x, y) != Surfaces.START) {
+                logic.changeBoardCell(x, y, Surfaces.GRAVEL);
+            }
+        }
+    }
+
+    /**
+     * @return gui connector for the chosen way of drawing the board
+     */
+    private GUIConnector createGUIConnector() {
+        if (canvasBoard) {
+            return new CanvasGUI(game_GP, mode_textfield, startRace_link, this);
+        }
+        return new JavaFXGUI(game_GP, mode_textfield, startRace_link, this);
+    }
+
+    /**
+     * switches between drawing the board onto one canvas and one pane per field
+     */
+    public void toggleCanvasBoard() {
+        if (gameMode != GameMode.Race_Mode && gameMode != GameMode.Preparation_Mode && !logic.getInAnimation()) {
+            canvasBoard = canvas_radioMenuItem.isSelected();
+            guiCon = createGUIConnector();
+            logic.setGUIConnector(guiCon);
+        } else {
+            canvas_radioMenuItem.setSelected(canvasBoard);
+        }
+    }
+
+    /**
+     * shows or hides the line the AI is led along, it is only shown in the editor
+     */
+    public void toggleAILinePreview() {
+        if (gameMode == GameMode.Editor_Mode) {
+            logic.setAILinePreview(aiLine_radioMenuItem.isSelected());
         }
     }
 
@@ -334,7 +400,7 @@ public class UserInterfaceController implements Initializable {
      */
     public void newMap() {
         if(gameMode != GameMode.Race_Mode && gameMode != GameMode.Preparation_Mode) {
-            this.guiCon = new JavaFXGUI(game_GP, mode_textfield, startRace_link, this);
+            this.guiCon = createGUIConnector();
             this.logic = new Logic(guiCon);
             logic.getGameFromJson("maps/newMap.json");
             if (gameMode == GameMode.Editor_Mode) {
@@ -415,7 +481,6 @@ public class UserInterfaceController implements Initializable {
                         case 6 -> logic.addOrDeleteLine(StartCrossDirection.DOWN, true);
                         case 7 -> logic.addOrDeleteLine(StartCrossDirection.DOWN, false);
                     }
-                    setEditorEventHandlers();
                 }
             });
         }
@@ -433,27 +498,25 @@ public class UserInterfaceController implements Initializable {
      */
     private void loadGame(String s) {
         if (logic == null)  {
-            guiCon = new JavaFXGUI(game_GP, mode_textfield, startRace_link, this);
+            guiCon = createGUIConnector();
             this.logic = new Logic(guiCon);
             this.logic.getGameFromJson(s);
             this.gameMode = logic.getGameMode();
             logic.setAnimSpeed(this.currAnimationSpeed);
             if (gameMode == GameMode.Race_Mode) {
-                setGameEventHandlers();
                 initializePlayerInfo();
             }
         } else if (ErrorCodes.NoError == this.logic.getGameFromJson(s)) {
-            guiCon = new JavaFXGUI(game_GP, mode_textfield, startRace_link, this);
+            guiCon = createGUIConnector();
             this.logic = new Logic(guiCon);
             this.logic.getGameFromJson(s);
             this.gameMode = logic.getGameMode();
             logic.setAnimSpeed(this.currAnimationSpeed);
             if (gameMode == GameMode.Race_Mode) {
-                setGameEventHandlers();
                 initializePlayerInfo();
             }
         } else {
-            guiCon = new JavaFXGUI(game_GP, mode_textfield, startRace_link, this);
+            guiCon = createGUIConnector();
             this.logic = new Logic(guiCon);
             this.logic.getGameFromJson("maps/SimpleOval.json");
             logic.setAnimSpeed(this.currAnimationSpeed);
@@ -480,13 +543,13 @@ public class UserInterfaceController implements Initializable {
                 this.mode_textfield.textProperty().set("Editor Mode");
 
                 createEditorButtons();
-
-                setEditorEventHandlers();
+                logic.setAILinePreview(aiLine_radioMenuItem.isSelected());
             } else {
                 this.gameMode = GameMode.Menu_Mode;
                 this.mode_textfield.textProperty().set("");
                 this.display_hbox.getChildren().clear();
-                guiCon.initializeGame(logic.getBoard(), logic.getDir(), false, logic.getPlayers());
+                logic.setAILinePreview(false);
+                logic.reInitializeGame();
             }
         } else if (stopRaceOrPreparations(true, true)) {
             reloadGameData();
@@ -584,6 +647,7 @@ public class UserInterfaceController implements Initializable {
             logic.setInReplay(true);
             this.startRace_link.setText("Stop Replay");
             logic.playReplay(0);
+            addReplaySlider();
             alert.close();
         });
 
@@ -598,6 +662,23 @@ public class UserInterfaceController implements Initializable {
         alert.show();
     }
 
+    /**
+     * adds a slider to jump to any move of the replay, forwards and backwards
+     */
+    private void addReplaySlider() {
+        display_hbox.getChildren().remove(replay_slider);
+        replay_slider = new Slider(0, Math.max(0, logic.getReplayIndex().getLength() - 1), 0);
+        replay_slider.setBlockIncrement(1);
+        replay_slider.setFocusTraversable(false);
+        replay_slider.valueProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue.intValue() != oldValue.intValue()) {
+                logic.seekReplay(newValue.intValue());
+            }
+        });
+        display_hbox.getChildren().add(replay_slider);
+        HBox.setHgrow(replay_slider, Priority.ALWAYS);
+    }
+
     /**
      * changes the background color of a given textField depending on the given int value
      * @param i int value
@@ -613,46 +694,15 @@ public class UserInterfaceController implements Initializable {
     }
 
     /**
-     * activates the event handlers needed for the game. shows user fields he can go to and where he crashes.
+     * shows or hides where a human player would crash when moving to a field
+     * @param x x value of the field
+     * @param y y value of the field
+     * @param exit true if the mouse leaves the field, false if it enters it
      */
-    private void setGameEventHandlers() {
-        for (int i = 0; i < game_GP.getColumnCount(); i++) {
-            for (int j = 0; j < game_GP.getRowCount(); j++) {
-                final int indexI = i;
-                final int indexJ = j;
-                Pane p = (Pane) game_GP.getChildren().get(i * game_GP.getRowConstraints().size() + j);
-
-                EventHandler<MouseEvent> onMousePressedHandler = new EventHandler<MouseEvent>() {
-                    @Override
-                    public void handle(MouseEvent mouseEvent) {
-                        if (mouseEvent.getButton() == MouseButton.PRIMARY) {
-                            logic.updatePlayerPosition(new Position(indexI, indexJ));
-                        }
-                    }
-                };
-                EventHandler<MouseEvent> onMouseEnteredHandler = new EventHandler<MouseEvent>() {
-                    @Override
-                    public void handle(MouseEvent mouseEvent) {
-                        if (logic.getGameMode() == GameMode.Race_Mode) {
-                            if (!logic.getPlayers()[logic.getCurrentPlayer()].isAI()) {
-                                logic.showWallCrashPoint(new Position(indexI, indexJ), false);
-                            }
-                        }
-                    }
-                };
-                EventHandler<MouseEvent> onMouseExitedHandler = new EventHandler<MouseEvent>() {
-                    @Override
-                    public void handle(MouseEvent mouseEvent) {
-                        if (logic.getGameMode() == GameMode.Race_Mode) {
-                            if (!logic.getPlayers()[logic.getCurrentPlayer()].isAI()) {
-                                logic.showWallCrashPoint(new Position(indexI, indexJ), true);
-                            }
-                        }
-                    }
-                };
-                p.setOnMouseEntered(onMouseEnteredHandler);
-                p.setOnMouseExited(onMouseExitedHandler);
-                p.setOnMousePressed(onMousePressedHandler);
+    private void showCrashPoint(int x, int y, boolean exit) {
+        if (logic.getGameMode() == GameMode.Race_Mode) {
+            if (!logic.getPlayers()[logic.getCurrentPlayer()].isAI()) {
+                logic.showWallCrashPoint(new Position(x, y), exit);
             }
         }
     }
@@ -706,7 +756,6 @@ public class UserInterfaceController implements Initializable {
                     } else {
                         mode_textfield.setText(temp.getName() + " choose starting position!");
                     }
-                    setGameEventHandlers();
                 }
             }
         } else {
@@ -736,6 +785,9 @@ public class UserInterfaceController implements Initializable {
             startRace_link.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
             animSpeed_middle.setSelected(true);
             currAnimationSpeed = Logic.MIDDLE_ANIM_SPEED;
+            // the images of the starting line are decoded once before the first board is shown
+            StartImageAtlas.get();
+            setBoardEventHandlers();
             loadGame("maps/SimpleOval.json");
         }
     }
@@ -0,0 +1,447 @@
+package logic;
+
+import java.util.Arrays;
+
+/**
+ * plans the moves of an AI player until the race is won. The search runs A* over the real state space
+ * of a car (position, velocity and lap), so the momentum of the car is taken into account.
+ * The distance values of the map are used as heuristic. All states are kept in primitive arrays.
+ */
+public class AIPlanner {
+
+    /**
+     * lap that has to be reached to win the race
+     */
+    private static final int WINNING_LAP = 2;
+
+    /**
+     * upper limit of states that are looked at before the search is cancelled
+     */
+    private static final int MAX_EXPANDED_STATES = 2_000_000;
+
+    private final Board board;
+
+    private final StartCrossDirection direction;
+
+    private final DistanceField distanceValues;
+
+    private final int width, height;
+
+    private final int maxSpeed;
+
+    /**
+     * distance values that are at least left after the starting line was crossed the first time
+     */
+    private final int lapLength;
+
+    //node storage, one entry per reached state
+    private int nodeCount;
+    private int[] nodeX, nodeY, nodeVX, nodeVY, nodeLap, nodeCost, nodeParent;
+    private boolean[] nodeClosed;
+
+    //binary heap of node indices ordered by estimated total cost
+    private int heapSize;
+    private int[] heap, heapPriority;
+
+    //open addressing hash table from state key to node index
+    private long[] tableKeys;
+    private int[] tableNodes;
+
+    //route buffer with packed fields, see LineRasterizer
+    private int[] route = new int[16];
+
+    /**
+     * creates a planner for a map
+     *
+     * @param board          the map
+     * @param direction      direction the starting line has to be crossed
+     * @param distanceValues distance of each field to the starting line, see DistanceField.calculate
+     */
+    protected AIPlanner(Board board, StartCrossDirection direction, DistanceField distanceValues) {
+        this.board = board;
+        this.direction = direction;
+        this.distanceValues = distanceValues;
+        this.width = board.getLength();
+        this.height = board.getLength(0);
+        this.maxSpeed = Math.max(width, height);
+        this.lapLength = calculateLapLength();
+    }
+
+    /**
+     * calculates the smallest distance value of the road right behind the starting line
+     *
+     * @return smallest distance value, 0 if there is none
+     */
+    private int calculateLapLength() {
+        int dx = 0;
+        int dy = 0;
+        switch (direction) {
+            case UP -> dy = -1;
+            case DOWN -> dy = 1;
+            case RIGHT -> dx = 1;
+            case LEFT -> dx = -1;
+        }
+        int min = Integer.MAX_VALUE;
+        for (Position start : board.getCurrStartingLine()) {
+            int x = start.getPosX() + dx;
+            int y = start.getPosY() + dy;
+            if (isInside(x, y) && board.surfaceAt(x, y) == Surfaces.ROAD) {
+                min = Math.min(min, distanceValues.get(x, y));
+            }
+        }
+        return min == Integer.MAX_VALUE ? 0 : min;
+    }
+
+    /**
+     * plans all moves from the given state until the car has won the race. Other players are not taken into
+     * account.
+     *
+     * @param x    x value of the car
+     * @param y    y value of the car
+     * @param vx   current speed in x direction
+     * @param vy   current speed in y direction
+     * @param lap  current lap of the car
+     * @return the fields the car moves to, encoded as x * height + y, or null if no plan was found
+     */
+    protected int[] plan(int x, int y, int vx, int vy, int lap) {
+        if (!isInside(x, y) || lap >= WINNING_LAP) {
+            return null;
+        }
+        initializeSearch();
+        int startNode = addNode(x, y, vx, vy, lap, 0, -1);
+        push(startNode, estimate(x, y, vx, vy, lap));
+
+        int expanded = 0;
+        while (heapSize > 0 && expanded < MAX_EXPANDED_STATES) {
+            int node = pop();
+            if (nodeClosed[node]) {
+                continue;
+            }
+            if (nodeLap[node] >= WINNING_LAP) {
+                return buildPlan(node);
+            }
+            nodeClosed[node] = true;
+            expanded++;
+            expand(node);
+        }
+        return null;
+    }
+
+    /**
+     * adds all states that can be reached from a node within one move
+     *
+     * @param node node to be expanded
+     */
+    private void expand(int node) {
+        final int x = nodeX[node];
+        final int y = nodeY[node];
+        final int cost = nodeCost[node] + 1;
+        for (int ax = -1; ax <= 1; ax++) {
+            for (int ay = -1; ay <= 1; ay++) {
+                int vx = nodeVX[node] + ax;
+                int vy = nodeVY[node] + ay;
+                int targetX = x + vx;
+                int targetY = y + vy;
+                if (!isInside(targetX, targetY) || Math.abs(vx) > maxSpeed || Math.abs(vy) > maxSpeed) {
+                    continue;
+                }
+                int length = rasterizeRoute(x, y, targetX, targetY);
+                if (!isRouteFree(length)) {
+                    continue;
+                }
+                int lap = lapAfterMove(nodeLap[node], x - nodeVX[node], y - nodeVY[node], length);
+                if (lap < nodeLap[node]) {
+                    continue;
+                }
+                long key = stateKey(targetX, targetY, vx, vy, lap);
+                int slot = findSlot(key);
+                int next = tableNodes[slot];
+                if (next == -1) {
+                    next = addNode(targetX, targetY, vx, vy, lap, cost, node);
+                    tableKeys[slot] = key;
+                    tableNodes[slot] = next;
+                    growTableIfNeeded();
+                } else if (nodeClosed[next] || nodeCost[next] <= cost) {
+                    continue;
+                } else {
+                    nodeCost[next] = cost;
+                    nodeParent[next] = node;
+                }
+                push(next, cost + estimate(targetX, targetY, vx, vy, lap));
+            }
+        }
+    }
+
+    /**
+     * estimates how many moves are at least needed to win from the given state. A move with speed s passes
+     * s + 1 fields, so the distance to the starting line can shrink by at most 2 * s per move.
+     *
+     * @return lower bound of the moves left
+     */
+    private int estimate(int x, int y, int vx, int vy, int lap) {
+        if (lap >= WINNING_LAP) {
+            return 0;
+        }
+        long remaining = distanceValues.get(x, y);
+        if (lap < WINNING_LAP - 1) {
+            remaining += (long) lapLength * (WINNING_LAP - 1 - lap);
+        }
+        int speed = Math.max(Math.abs(vx), Math.abs(vy));
+        int moves = 0;
+        long covered = 0;
+        while (covered < remaining) {
+            moves++;
+            covered += 2L * (speed + moves);
+        }
+        return moves;
+    }
+
+    /**
+     * calculates the lap after a move, following the rules of Logic.handleStartCross
+     *
+     * @param lap    lap before the move
+     * @param lastX  x value of the field the car came from before this move
+     * @param lastY  y value of the field the car came from before this move
+     * @param length number of fields in the route buffer
+     * @return lap after the move
+     */
+    private int lapAfterMove(int lap, int lastX, int lastY, int length) {
+        for (int i = 0; i < length - 1; i++) {
+            if (surfaceAt(routeX(i), routeY(i)) == Surfaces.START) {
+                final int startX = routeX(i);
+                final int startY = routeY(i);
+                int beforeX;
+                int beforeY;
+                if (surfaceAt(routeX(0), routeY(0)) == Surfaces.ROAD) {
+                    beforeX = routeX(0);
+                    beforeY = routeY(0);
+                } else if (isInside(lastX, lastY) && surfaceAt(lastX, lastY) == Surfaces.ROAD) {
+                    beforeX = lastX;
+                    beforeY = lastY;
+                } else {
+                    // the field before the cross is unknown, such a move is never planned
+                    return -1;
+                }
+                while (i < length - 1) {
+                    i++;
+                    if (surfaceAt(routeX(i), routeY(i)) == Surfaces.ROAD) {
+                        return switch (direction) {
+                            case UP -> crossLap(lap, beforeY > startY && routeY(i) < startY, beforeY < startY);
+                            case DOWN -> crossLap(lap, beforeY < startY && routeY(i) > startY, beforeY > startY);
+                            case RIGHT -> crossLap(lap, beforeX < startX && routeX(i) > startX, beforeX > startX);
+                            case LEFT -> crossLap(lap, beforeX > startX && routeX(i) < startX, beforeX < startX);
+                        };
+                    }
+                }
+            }
+        }
+        return lap;
+    }
+
+    /**
+     * @return new lap after the starting line was crossed
+     */
+    private int crossLap(int lap, boolean forward, boolean backward) {
+        if (forward) {
+            return lap + 1;
+        } else if (backward) {
+            return Math.max(lap - 1, 0);
+        }
+        return lap;
+    }
+
+    /**
+     * checks the route buffer like Logic.isRouteValid does for a route without crash
+     *
+     * @param length number of fields in the route buffer
+     * @return true if the car can drive the route without crashing
+     */
+    private boolean isRouteFree(int length) {
+        for (int i = 0; i < length; i++) {
+            if (surfaceAt(routeX(i), routeY(i)) == Surfaces.GRAVEL
+                    || ((routeX(i) == 0 || routeY(i) == 0) && length > 2)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * writes the route between two fields into the route buffer
+     *
+     * @return number of fields on the route
+     */
+    private int rasterizeRoute(int startX, int startY, int targetX, int targetY) {
+        int length = LineRasterizer.routeLength(startX, startY, targetX, targetY);
+        if (route.length < length) {
+            route = new int[length * 2];
+        }
+        return RouteTable.route(startX, startY, targetX, targetY, route);
+    }
+
+    /**
+     * @return x value of the field at the given index of the route buffer
+     */
+    private int routeX(int i) {
+        return LineRasterizer.unpackX(route[i]);
+    }
+
+    /**
+     * @return y value of the field at the given index of the route buffer
+     */
+    private int routeY(int i) {
+        return LineRasterizer.unpackY(route[i]);
+    }
+
+    /**
+     * collects the fields of the plan by walking back from the goal
+     *
+     * @param goal node that reached the winning lap
+     * @return fields of the plan
+     */
+    private int[] buildPlan(int goal) {
+        int length = nodeCost[goal];
+        int[] plan = new int[length];
+        for (int node = goal; nodeParent[node] != -1; node = nodeParent[node]) {
+            plan[--length] = nodeX[node] * height + nodeY[node];
+        }
+        return plan;
+    }
+
+    private boolean isInside(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    private Surfaces surfaceAt(int x, int y) {
+        return board.surfaceAt(x, y);
+    }
+
+    private long stateKey(int x, int y, int vx, int vy, int lap) {
+        long speeds = 2L * maxSpeed + 1;
+        return ((((long) lap * width + x) * height + y) * speeds + vx + maxSpeed) * speeds + vy + maxSpeed;
+    }
+
+    //STORAGE
+
+    private void initializeSearch() {
+        nodeCount = 0;
+        heapSize = 0;
+        if (nodeX == null) {
+            int capacity = 1 << 12;
+            nodeX = new int[capacity];
+            nodeY = new int[capacity];
+            nodeVX = new int[capacity];
+            nodeVY = new int[capacity];
+            nodeLap = new int[capacity];
+            nodeCost = new int[capacity];
+            nodeParent = new int[capacity];
+            nodeClosed = new boolean[capacity];
+            heap = new int[capacity];
+            heapPriority = new int[capacity];
+            tableKeys = new long[capacity * 2];
+            tableNodes = new int[capacity * 2];
+        }
+        Arrays.fill(tableNodes, -1);
+    }
+
+    private int addNode(int x, int y, int vx, int vy, int lap, int cost, int parent) {
+        if (nodeCount == nodeX.length) {
+            int capacity = nodeX.length * 2;
+            nodeX = Arrays.copyOf(nodeX, capacity);
+            nodeY = Arrays.copyOf(nodeY, capacity);
+            nodeVX = Arrays.copyOf(nodeVX, capacity);
+            nodeVY = Arrays.copyOf(nodeVY, capacity);
+            nodeLap = Arrays.copyOf(nodeLap, capacity);
+            nodeCost = Arrays.copyOf(nodeCost, capacity);
+            nodeParent = Arrays.copyOf(nodeParent, capacity);
+            nodeClosed = Arrays.copyOf(nodeClosed, capacity);
+        }
+        nodeX[nodeCount] = x;
+        nodeY[nodeCount] = y;
+        nodeVX[nodeCount] = vx;
+        nodeVY[nodeCount] = vy;
+        nodeLap[nodeCount] = lap;
+        nodeCost[nodeCount] = cost;
+        nodeParent[nodeCount] = parent;
+        nodeClosed[nodeCount] = false;
+        return nodeCount++;
+    }
+
+    private int findSlot(long key) {
+        int mask = tableKeys.length - 1;
+        int slot = (int) (mix(key) & mask);
+        while (tableNodes[slot] != -1 && tableKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void growTableIfNeeded() {
+        if (nodeCount * 2 < tableKeys.length) {
+            return;
+        }
+        long[] oldKeys = tableKeys;
+        int[] oldNodes = tableNodes;
+        tableKeys = new long[oldKeys.length * 2];
+        tableNodes = new int[oldNodes.length * 2];
+        Arrays.fill(tableNodes, -1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldNodes[i] != -1) {
+                int slot = findSlot(oldKeys[i]);
+                tableKeys[slot] = oldKeys[i];
+                tableNodes[slot] = oldNodes[i];
+            }
+        }
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private void push(int node, int priority) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+            heapPriority = Arrays.copyOf(heapPriority, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (heapPriority[parent] <= priority) {
+                break;
+            }
+            heap[i] = heap[parent];
+            heapPriority[i] = heapPriority[parent];
+            i = parent;
+        }
+        heap[i] = node;
+        heapPriority[i] = priority;
+    }
+
+    private int pop() {
+        int top = heap[0];
+        int node = heap[--heapSize];
+        int priority = heapPriority[heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapPriority[child + 1] < heapPriority[child]) {
+                child++;
+            }
+            if (heapPriority[child] >= priority) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapPriority[i] = heapPriority[child];
+            i = child;
+        }
+        heap[i] = node;
+        heapPriority[i] = priority;
+        return top;
+    }
+}
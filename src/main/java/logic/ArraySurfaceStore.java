@@ -0,0 +1,54 @@
+package logic;
+
+/**
+ * surfaces of a map kept in a byte array on the heap, row after row
+ */
+public class ArraySurfaceStore implements SurfaceStore {
+
+    private final int width;
+
+    private final int height;
+
+    private final byte[] cells;
+
+    /**
+     * creates a map of the given size only containing gravel
+     *
+     * @param width  x length
+     * @param height y length
+     */
+    protected ArraySurfaceStore(int width, int height) {
+        this(width, height, new byte[width * height]);
+    }
+
+    private ArraySurfaceStore(int width, int height, byte[] cells) {
+        this.width = width;
+        this.height = height;
+        this.cells = cells;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public byte get(int x, int y) {
+        return cells[y * width + x];
+    }
+
+    @Override
+    public void set(int x, int y, byte value) {
+        cells[y * width + x] = value;
+    }
+
+    @Override
+    public SurfaceStore copy() {
+        return new ArraySurfaceStore(width, height, cells.clone());
+    }
+}
@@ -6,26 +6,71 @@ import java.util.Arrays;
 /**
  * class for the map
  */
-public class Board {
+public class Board implements BoardView {
+
+    private static final Surfaces[] SURFACES = Surfaces.values();
+
+    /**
+     * maps with more fields are not kept on the heap but in a memory mapped file
+     */
+    protected static final long ARRAY_STORE_LIMIT = 1 << 24;
 
     /**
-     * values for the map
+     * values for the map, one byte per field holding the ordinal of its surface
      */
-    private Surfaces[][] values;
+    private SurfaceStore cells;
+
+    private int width;
 
+    private int height;
 
+    /**
+     * fields with start surface as x * height + y, sorted ascending. Kept up to date on every change
+     * so the starting line can be found without scanning the board.
+     */
+    private int[] startCells = new int[8];
+
+    private int startCount;
+
+    /**
+     * number of fields of each surface, indexed by ordinal
+     */
+    private int[] surfaceCounts = new int[SURFACES.length];
 
     /**
-     * returns reference to values
-     * @return reference
+     * number of changes to the fields, used to notice that a cached check result is outdated
      */
-    public Surfaces[][] getValues() {
-        Surfaces[][] temp = new Surfaces[values.length][];
-        for (int i = 0; i < values.length; i++) {
-            temp[i] = Arrays.copyOf(values[i], values[i].length);
+    private int modCount;
+
+    //result of the last round course check and the modCount it belongs to, -1 if there is none
+    private int roundCourseModCount = -1;
+
+    private boolean hasRoundCourse;
+
+    //hash of the fields and the modCount it belongs to, -1 if there is none
+    private int contentHashModCount = -1;
+
+    private long contentHash;
+
+    /**
+     * read only view handed out by view()
+     */
+    private final BoardView view = new BoardView() {
+        @Override
+        public int getWidth() {
+            return width;
         }
-        return temp;
-    }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public Surfaces surfaceAt(int x, int y) {
+            return Board.this.surfaceAt(x, y);
+        }
+    };
 
     /**
      * standard constructor
@@ -33,6 +78,26 @@ public class Board {
     protected Board (){
     }
 
+    /**
+     * creates a board showing the fields of an existing store, changes of the board are written to the store
+     * @param store the fields
+     */
+    protected Board(SurfaceStore store) {
+        this.cells = store;
+        this.width = store.getWidth();
+        this.height = store.getHeight();
+        //row after row, so a tiled store is read tile by tile
+        for (int j = 0; j < height; j++) {
+            for (int i = 0; i < width; i++) {
+                Surfaces sur = SURFACES[store.get(i, j)];
+                surfaceCounts[sur.ordinal()]++;
+                if (sur == Surfaces.START) {
+                    addStartCell(i * height + j);
+                }
+            }
+        }
+    }
+
     /**
      * creates board from string for testing purposes
      * @param s string board is created from
@@ -40,7 +105,7 @@ public class Board {
      * @param y y length of board
      */
     protected Board (String s, int x, int y){
-        values = new Surfaces[x][y];
+        setSize(x, y);
         String[] rows = s.split("\n");
         for (int i = 0; i < rows.length; i++) {
             for (int j = 0; j < rows[i].length(); j++) {
@@ -61,10 +126,41 @@ public class Board {
 
     /**
      * instantiates the values
-     * @param values instantiation
+     * @param values instantiation, indexed by x first
      */
     protected void setValues(Surfaces[][] values) {
-        this.values = values;
+        setSize(values.length, values[0].length);
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                setValueAt(i, j, values[i][j]);
+            }
+        }
+    }
+
+    /**
+     * creates an empty store fitting the size of a map, on the heap or in a file for very large maps
+     * @param width x length
+     * @param height y length
+     * @return store only containing gravel
+     */
+    protected static SurfaceStore createStore(int width, int height) {
+        return (long) width * height > ARRAY_STORE_LIMIT ? TiledSurfaceStore.createTemporary(width, height)
+                : new ArraySurfaceStore(width, height);
+    }
+
+    /**
+     * replaces the values by a board of the given size only containing gravel
+     * @param width x length
+     * @param height y length
+     */
+    private void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.cells = createStore(width, height);
+        this.startCount = 0;
+        this.surfaceCounts = new int[SURFACES.length];
+        this.surfaceCounts[Surfaces.GRAVEL.ordinal()] = width * height;
+        this.modCount++;
     }
 
     /**
@@ -74,7 +170,103 @@ public class Board {
      * @param sur surface to be changed to
      */
     private void setValueAt(int i, int j, Surfaces sur) {
-        this.values[i][j] = sur;
+        Surfaces old = SURFACES[cells.get(i, j)];
+        if (old == sur) {
+            return;
+        }
+        this.cells.set(i, j, (byte) sur.ordinal());
+        this.modCount++;
+        surfaceCounts[old.ordinal()]--;
+        surfaceCounts[sur.ordinal()]++;
+        if (old == Surfaces.START) {
+            removeStartCell(i * height + j);
+        } else if (sur == Surfaces.START) {
+            addStartCell(i * height + j);
+        }
+    }
+
+    /**
+     * adds a field to the start index
+     * @param key x * height + y of the field
+     */
+    private void addStartCell(int key) {
+        if (startCount == startCells.length) {
+            startCells = Arrays.copyOf(startCells, startCount * 2);
+        }
+        int insert = -Arrays.binarySearch(startCells, 0, startCount, key) - 1;
+        System.arraycopy(startCells, insert, startCells, insert + 1, startCount - insert);
+        startCells[insert] = key;
+        startCount++;
+    }
+
+    /**
+     * removes a field from the start index
+     * @param key x * height + y of the field
+     */
+    private void removeStartCell(int key) {
+        int remove = Arrays.binarySearch(startCells, 0, startCount, key);
+        System.arraycopy(startCells, remove + 1, startCells, remove, startCount - remove - 1);
+        startCount--;
+    }
+
+    /**
+     * returns how many fields have the given surface
+     * @param sur surface
+     * @return number of fields
+     */
+    public int getSurfaceCount(Surfaces sur) {
+        return surfaceCounts[sur.ordinal()];
+    }
+
+    /**
+     * compares the start index and surface counts with the fields, for testing
+     * @return true if both match the fields
+     */
+    protected boolean isIndexConsistent() {
+        int[] counts = new int[SURFACES.length];
+        int starts = 0;
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                Surfaces sur = surfaceAt(i, j);
+                counts[sur.ordinal()]++;
+                if (sur == Surfaces.START) {
+                    if (starts >= startCount || startCells[starts] != i * height + j) {
+                        return false;
+                    }
+                    starts++;
+                }
+            }
+        }
+        return starts == startCount && Arrays.equals(counts, surfaceCounts);
+    }
+
+    /**
+     * returns a hash of the size and all fields of the board, boards with the same fields have the same hash.
+     * The result is kept until the board is changed.
+     * @return 64 bit FNV-1a hash
+     */
+    protected long contentHash() {
+        if (contentHashModCount != modCount) {
+            long hash = 0xcbf29ce484222325L;
+            hash = (hash ^ width) * 0x100000001b3L;
+            hash = (hash ^ height) * 0x100000001b3L;
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    hash = (hash ^ cells.get(x, y)) * 0x100000001b3L;
+                }
+            }
+            contentHash = hash;
+            contentHashModCount = modCount;
+        }
+        return contentHash;
+    }
+
+    /**
+     * returns a read only view of this board, it is not copied so it shows later changes too
+     * @return view
+     */
+    public BoardView view() {
+        return view;
     }
 
     /**
@@ -119,9 +311,9 @@ public class Board {
      */
     protected String boardToString() {
         StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < values[0].length; i++) {
-            for (int j = 0; j < values.length; j++) {
-                Surfaces surface = this.getSurfaceAt(new Position(j,i));
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                Surfaces surface = this.surfaceAt(j, i);
                 char surfaceChar;
                 switch (surface) {
                     case GRAVEL:
@@ -148,11 +340,11 @@ public class Board {
      * @param board
      * @return the converted board
      */
-    protected static int[][] convertBoardStatesToInt(Surfaces[][] board) {
-        int[][] b = new int[board.length][board[0].length];
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[i].length; j++) {
-                switch (board[i][j]) {
+    protected static int[][] convertBoardStatesToInt(BoardView board) {
+        int[][] b = new int[board.getWidth()][board.getHeight()];
+        for (int i = 0; i < b.length; i++) {
+            for (int j = 0; j < b[i].length; j++) {
+                switch (board.surfaceAt(i, j)) {
                     case GRAVEL:
                         b[i][j] = 0;
                         break;
@@ -174,14 +366,24 @@ public class Board {
      * @return length
      */
     public int getLength(int i) {
-        return this.values[i].length;
+        return this.height;
     }
 
     /**
      * return the length of the array
      */
     public int getLength() {
-        return this.values.length;
+        return this.width;
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.height;
     }
 
     /**
@@ -191,7 +393,7 @@ public class Board {
      * @param sur surface of the cell to be changed
      */
     private void setSurfaceAt(int i, int j, Surfaces sur) {
-        this.values[i][j] = sur;
+        setValueAt(i, j, sur);
     }
 
     /**
@@ -200,7 +402,15 @@ public class Board {
      * @return surface
      */
     protected Surfaces getSurfaceAt(Position pos) {
-        return this.values[pos.getPosX()][pos.getPosY()];
+        return surfaceAt(pos.getPosX(), pos.getPosY());
+    }
+
+    @Override
+    public Surfaces surfaceAt(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new ArrayIndexOutOfBoundsException("field " + x + ", " + y + " is outside the board");
+        }
+        return SURFACES[cells.get(x, y)];
     }
 
     /**
@@ -215,7 +425,7 @@ public class Board {
     public void changeBoardCell(int x, int y, Surfaces sur, Board b,
                                 GUIConnector gui, StartCrossDirection dir) {
         boolean isStart;
-        isStart = b.getValues()[x][y] == Surfaces.START;
+        isStart = b.surfaceAt(x, y) == Surfaces.START;
         b.setValueAt(x, y, sur);
         gui.changeGridPaneCell(x, y, sur, dir, isStart);
     }
@@ -226,14 +436,10 @@ public class Board {
      * @return the position of the surface, if none is found null
      */
     private Position findStart(Board b) {
-        for (int i = 0; i < b.getLength(); i++) {
-            for (int j = 0; j < b.getLength(0); j++) {
-                if (b.getSurfaceAt(new Position(i, j)) == Surfaces.START) {
-                    return new Position(i, j);
-                }
-            }
+        if (b.startCount == 0) {
+            return null;
         }
-        return null;
+        return new Position(b.startCells[0] / b.height, b.startCells[0] % b.height);
     }
 
     /**
@@ -241,14 +447,10 @@ public class Board {
      * @return arraylist of the positions
      */
     protected ArrayList<Position> getCurrStartingLine() {
-        ArrayList<Position> oldStartPositions = new ArrayList<>();
-            for (int i = 0; i < this.getLength(); i++) {
-                for (int j = 0; j < this.getLength(0); j++) {
-                    if (this.getValues()[i][j] == Surfaces.START) {
-                        oldStartPositions.add(new Position(i, j));
-                    }
-                }
-            }
+        ArrayList<Position> oldStartPositions = new ArrayList<>(startCount);
+        for (int i = 0; i < startCount; i++) {
+            oldStartPositions.add(new Position(startCells[i] / height, startCells[i] % height));
+        }
         return oldStartPositions;
     }
 
@@ -286,9 +488,9 @@ public class Board {
         boolean horizontal = false;
         for (int i = 0; i < neighbours.length; i++) {
             if(neighbours[i] != null) {
-                if (i % 2 == 0 && values[neighbours[i].getPosX()][neighbours[i].getPosY()] == Surfaces.START) {
+                if (i % 2 == 0 && getSurfaceAt(neighbours[i]) == Surfaces.START) {
                     horizontal = false;
-                } else if (values[neighbours[i].getPosX()][neighbours[i].getPosY()] == Surfaces.START) {
+                } else if (getSurfaceAt(neighbours[i]) == Surfaces.START) {
                     horizontal = true;
                 }
             }
@@ -297,40 +499,68 @@ public class Board {
     }
 
     /**
-     * traverses the board until round course is found or every accessible field has been visited
-     * @param visited boolean representation of the real field with already visited squares marked as true
-     * @param neighbours neighbours of the start
+     * traverses the board depth first until round course is found or every accessible field has been visited.
+     * The fields are visited in the same order as by a recursive search, but the search path is kept in arrays.
      * @param b board
+     * @param start field the search starts at as y * width + x, has to be part of the starting line
      * @param isHorizontal true if starting line is horizontal false if not
      * @param isSlOne true if starting line is one block long, false if not
      * @return true if map hs round course false if not
      */
-    private boolean traverseBoard(boolean[][] visited, Position[] neighbours, Board b, boolean isHorizontal,
-                                 boolean isSlOne) {
-        for (int i = 0; i < neighbours.length; i++) {
-            //checks edge case where starting line is vertical but only one long
-            if (isSlOne) {
-                if (!isHorizontal && i == 0 && neighbours[i] != null
-                        && b.getSurfaceAt(neighbours[i]) == Surfaces.START) {
-                    return true;
-                }
+    private static boolean traverseBoard(Board b, int start, boolean isHorizontal, boolean isSlOne) {
+        final int width = b.width;
+        final int height = b.height;
+        final byte startSurface = (byte) Surfaces.START.ordinal();
+        final byte gravel = (byte) Surfaces.GRAVEL.ordinal();
+        long[] visited = new long[(int) (((long) width * height + 63) >> 6)];
+        //fields on the search path and the index of the neighbour each of them looks at next
+        int[] path = new int[64];
+        byte[] nextNeighbour = new byte[64];
+        int depth = 0;
+        path[0] = start;
+        mark(visited, start);
+
+        while (depth >= 0) {
+            final int cell = path[depth];
+            final int i = nextNeighbour[depth];
+            if (i == 4) {
+                depth--;
+                continue;
+            }
+            nextNeighbour[depth]++;
+            final int x = cell % width;
+            final int y = cell / width;
+            final int neighbour;
+            switch (i) {
+                case Logic.TOP -> neighbour = y == 0 ? -1 : cell - width;
+                case Logic.RIGHT -> neighbour = x >= width - 1 ? -1 : cell + 1;
+                case Logic.DOWN -> neighbour = y >= height - 1 ? -1 : cell + width;
+                default -> neighbour = x == 0 ? -1 : cell - 1;
+            }
+            if (neighbour == -1) {
+                continue;
             }
-            //returns true if top neighbour is start(round course found)
-            if (isHorizontal && i == Logic.TOP && neighbours[i] != null && b.getSurfaceAt(neighbours[i]) == Surfaces.START) {
+            final byte surface = b.cells.get(neighbour % width, neighbour / width);
+            //checks edge case where starting line is vertical but only one long
+            if (isSlOne && !isHorizontal && i == Logic.TOP && surface == startSurface) {
                 return true;
-                //returns true if right neighbour is start(round course found)
-            } else if (!isHorizontal && i == Logic.RIGHT && neighbours[i] != null
-                    && b.getSurfaceAt(neighbours[i]) == Surfaces.START) {
+            }
+            //round course found if the top (horizontal) or right (vertical) neighbour is start
+            if ((isHorizontal && i == Logic.TOP || !isHorizontal && i == Logic.RIGHT) && surface == startSurface) {
                 return true;
-            } else if (neighbours[i] != null && !visited[neighbours[i].getPosY()][neighbours[i].getPosX()]
-                    && b.getSurfaceAt(neighbours[i]) != Surfaces.GRAVEL) {
-                visited[neighbours[i].getPosY()][neighbours[i].getPosX()] = true;
-                Position[] newNeighbours = {neighbours[i].getTopNeighbour(), neighbours[i].getRightNeighbour(b),
-                        neighbours[i].getBottomNeighbour(b), neighbours[i].getLeftNeighbour()};
-                if (!(isHorizontal && i == Logic.DOWN && b.getSurfaceAt(neighbours[i].getTopNeighbour()) == Surfaces.START)
-                && !(!isHorizontal && i == Logic.LEFT && b.getSurfaceAt(neighbours[i].getRightNeighbour(b)) == Surfaces.START)
-                && traverseBoard(visited, newNeighbours, b, isHorizontal, isSlOne)) {
-                    return true;
+            } else if (!isMarked(visited, neighbour) && surface != gravel) {
+                mark(visited, neighbour);
+                //the starting line must not be left the wrong way
+                boolean leavesStart = b.cells.get(x, y) == startSurface
+                        && (isHorizontal && i == Logic.DOWN || !isHorizontal && i == Logic.LEFT);
+                if (!leavesStart) {
+                    depth++;
+                    if (depth == path.length) {
+                        path = Arrays.copyOf(path, depth * 2);
+                        nextNeighbour = Arrays.copyOf(nextNeighbour, depth * 2);
+                    }
+                    path[depth] = neighbour;
+                    nextNeighbour[depth] = 0;
                 }
             }
         }
@@ -338,27 +568,25 @@ public class Board {
     }
 
     /**
-     * tries to find a round course by calling traverseBoard
+     * tries to find a round course by calling traverseBoard. The result is kept until the board is changed.
      * @param b the board
      * @return true if map has round course, false if not
      */
     private boolean checkForRoundCourse(Board b, ArrayList<Position> currSL) {
         Position start = findStart(b);
-        //because the b is mirrored here Right = Bottom, Top = Left
-        Position[] neighbours = {start.getTopNeighbour(), start.getRightNeighbour(b),
-                start.getBottomNeighbour(b), start.getLeftNeighbour()};
-        boolean isHorizontal = getStartingLineDir(neighbours);
-        boolean[][] visited = new boolean[b.getLength(0)][b.getLength()];
-        for (int i = 0; i < visited.length; i++) {
-            for (int j = 0; j < visited[0].length; j++) {
-                visited[i][j] = false;
-            }
+        if (start == null) {
+            return true;
         }
-        visited[start.getPosY()][start.getPosX()] = true;
-        if (start != null) {
-            return traverseBoard(visited, neighbours, b, isHorizontal, currSL.size() == 1);
+        if (b.roundCourseModCount != b.modCount) {
+            //because the b is mirrored here Right = Bottom, Top = Left
+            Position[] neighbours = {start.getTopNeighbour(), start.getRightNeighbour(b),
+                    start.getBottomNeighbour(b), start.getLeftNeighbour()};
+            boolean isHorizontal = getStartingLineDir(neighbours);
+            b.hasRoundCourse = traverseBoard(b, start.getPosY() * b.width + start.getPosX(), isHorizontal,
+                    currSL.size() == 1);
+            b.roundCourseModCount = b.modCount;
         }
-        return true;
+        return b.hasRoundCourse;
     }
 
     /**
@@ -426,51 +654,46 @@ public class Board {
      * @return true if valid position, false if not
      */
     protected boolean isValidPositionInGameMode(Player[] players, Position pos, int currentPlayer, GameMode gameMode) {
+        return isValidPositionInGameMode(new OccupancyGrid(width, height, players), pos.getPosX(), pos.getPosY(),
+                currentPlayer, gameMode);
+    }
+
+    /**
+     * checks if the given position is a valid position in the current gameMode
+     * @param occupancy positions of the players
+     * @param pos position to be checked
+     * @param currentPlayer current Player
+     * @param gameMode current GameMode
+     * @return true if valid position, false if not
+     */
+    protected boolean isValidPositionInGameMode(OccupancyGrid occupancy, Position pos, int currentPlayer,
+                                                GameMode gameMode) {
+        return isValidPositionInGameMode(occupancy, pos.getPosX(), pos.getPosY(), currentPlayer, gameMode);
+    }
+
+    /**
+     * checks if the given coordinates are a valid position in the current gameMode
+     * @param occupancy positions of the players
+     * @param posX x value to be checked
+     * @param posY y value to be checked
+     * @param currentPlayer current Player
+     * @param gameMode current GameMode
+     * @return true if valid position, false if not
+     */
+    protected boolean isValidPositionInGameMode(OccupancyGrid occupancy, int posX, int posY, int currentPlayer,
+                                                GameMode gameMode) {
 
         if (gameMode == GameMode.Preparation_Mode) {
-            while (currentPlayer > -1) {
-                if (pos.isEqualTo(players[currentPlayer].getCurrentPos())) {
-                    return false;
-                } else {
-                    currentPlayer--;
-                }
+            if (occupancy.isTakenUpTo(posX, posY, currentPlayer)) {
+                return false;
             }
-            return this.getSurfaceAt(pos) == Surfaces.ROAD;
+            return this.surfaceAt(posX, posY) == Surfaces.ROAD;
 
         } else if (gameMode == GameMode.Race_Mode) {
-            for (int i = 0; i < players.length; i++) {
-                if (i != currentPlayer && players[i].getCurrentPos().isEqualTo(pos)) {
-                    return false;
-                }
-            }
-            int posX = pos.getPosX();
-            int posY = pos.getPosY();
-            return posX >= 0 && posX < values.length && posY >= 0 && posY < values[0].length;
-        }
-        return true;
-    }
-
-    /**
-     * checks if json data has faulty information in the player position array
-     * @param pos position to be checked
-     * @param players player array
-     * @return true of if position is valid, false if not
-     */
-    protected boolean isValidPosition(Position pos, Player[] players) {
-        int posX = pos.getPosX();
-        int posY = pos.getPosY();
-        if (posX < 0 || posX >= values.length || posY < 0 || posY >= values[0].length) {
-            return false;
-        }
-        for (int i = 0; i < players.length; i++) {
-            if (players[i].isActive()) {
-                for (int j = 0; j < players.length; j++) {
-                    if (i != j && (players[i].getCurrentPos().isEqualTo(players[j].getCurrentPos())
-                    || players[i].getLastPos().isEqualTo(players[j].getLastPos()))) {
-                        return false;
-                    }
-                }
+            if (occupancy.isTakenByOther(posX, posY, currentPlayer)) {
+                return false;
             }
+            return posX >= 0 && posX < width && posY >= 0 && posY < height;
         }
         return true;
     }
@@ -481,40 +704,93 @@ public class Board {
      * @return true if inside board false if not
      */
     protected boolean isOutOfBounds(Position pos) {
-        int posX = pos.getPosX();
-        int posY = pos.getPosY();
-        return posX < 0 || posX >= values.length || posY < 0 || posY >= values[0].length;
+        return isOutOfBounds(pos.getPosX(), pos.getPosY());
+    }
+
+    /**
+     * checks if the given coordinates are outside the board
+     * @param posX x value
+     * @param posY y value
+     * @return true if outside, false if not
+     */
+    protected boolean isOutOfBounds(int posX, int posY) {
+        return posX < 0 || posX >= width || posY < 0 || posY >= height;
     }
 
     /**
-     * helping method to find free position starting from given position
+     * helping method to find free position starting from given position, the road is searched breadth first
+     * so the closest free field is found and the starting line is never crossed
      * @param start position to start searching from
-     * @return found free position
-     */
-    private Position findFreePositionFromPos(Position start, Player[] players, int currentPlayer, GameMode gameMode) {
-        boolean[][] visited = new boolean[this.getLength()][this.getLength(0)];
-        Position[] neighbours = getNeighbours(start);
-        ArrayList<Position> currSL = getCurrStartingLine();
-        boolean found = false;
-
-        for (int i = 0; i < currSL.size(); i++) {
-            visited[currSL.get(i).getPosX()][currSL.get(i).getPosY()] = true;
-        }
-
-        while (!found) {
-            for (int i = 0; i < neighbours.length; i++) {
-                if (isValidPositionInGameMode(players, neighbours[i], currentPlayer, gameMode)
-                        && this.getSurfaceAt(neighbours[i]) == Surfaces.ROAD) {
-                    return neighbours[i];
-                } else if (!visited[neighbours[i].getPosX()][neighbours[i].getPosY()]){
-                    visited[neighbours[i].getPosX()][neighbours[i].getPosY()] = true;
-                    neighbours = getNeighbours(neighbours[i]);
-                }
+     * @return found free position, the start if there is none
+     */
+    private Position findFreePositionFromPos(Position start, OccupancyGrid occupancy, int currentPlayer,
+                                             GameMode gameMode) {
+        if (isOutOfBounds(start.getPosX(), start.getPosY())) {
+            return start;
+        }
+        long[] visited = new long[(int) (((long) width * height + 63) >> 6)];
+        for (int i = 0; i < startCount; i++) {
+            mark(visited, startCells[i] % height * width + startCells[i] / height);
+        }
+        //fields as y * width + x
+        int[] queue = new int[64];
+        int head = 0;
+        int tail = 0;
+        int first = start.getPosY() * width + start.getPosX();
+        mark(visited, first);
+        queue[tail++] = first;
+        while (head < tail) {
+            int cell = queue[head++];
+            int x = cell % width;
+            int y = cell / width;
+            if (surfaceAt(x, y) == Surfaces.ROAD
+                    && isValidPositionInGameMode(occupancy, x, y, currentPlayer, gameMode)) {
+                return new Position(x, y);
+            }
+            if (tail + 4 > queue.length) {
+                //the part of the queue that was already handled is dropped
+                queue = Arrays.copyOfRange(queue, head, Math.max(64, (tail - head) * 2 + 4) + head);
+                tail -= head;
+                head = 0;
+            }
+            if (y > 0 && !isMarked(visited, cell - width)) {
+                mark(visited, cell - width);
+                queue[tail++] = cell - width;
+            }
+            if (x < width - 1 && !isMarked(visited, cell + 1)) {
+                mark(visited, cell + 1);
+                queue[tail++] = cell + 1;
+            }
+            if (y < height - 1 && !isMarked(visited, cell + width)) {
+                mark(visited, cell + width);
+                queue[tail++] = cell + width;
+            }
+            if (x > 0 && !isMarked(visited, cell - 1)) {
+                mark(visited, cell - 1);
+                queue[tail++] = cell - 1;
             }
         }
         return start;
     }
 
+    /**
+     * marks a field in a bit set with one bit per field
+     * @param bits the bit set
+     * @param cell field as y * width + x
+     */
+    private static void mark(long[] bits, int cell) {
+        bits[cell >> 6] |= 1L << cell;
+    }
+
+    /**
+     * @param bits bit set with one bit per field
+     * @param cell field as y * width + x
+     * @return true if the field is marked
+     */
+    private static boolean isMarked(long[] bits, int cell) {
+        return (bits[cell >> 6] & (1L << cell)) != 0;
+    }
+
     /**
      * finds the shortest path for starting line from given position
      * @param start starting position
@@ -528,19 +804,19 @@ public class Board {
         int horCounter = 0;
         int verCounter = 0;
 
-        while (left != null && this.getValues()[left.getPosX()][left.getPosY()] == Surfaces.ROAD) {
+        while (left != null && this.getSurfaceAt(left) == Surfaces.ROAD) {
             horCounter++;
             left = left.getLeftNeighbour();
         }
-        while (right != null && this.getValues()[right.getPosX()][right.getPosY()] == Surfaces.ROAD) {
+        while (right != null && this.getSurfaceAt(right) == Surfaces.ROAD) {
             horCounter++;
             right = right.getRightNeighbour(this);
         }
-        while (top != null && this.getValues()[top.getPosX()][top.getPosY()] == Surfaces.ROAD) {
+        while (top != null && this.getSurfaceAt(top) == Surfaces.ROAD) {
             verCounter++;
             top = top.getTopNeighbour();
         }
-        while (bottom != null && this.getValues()[bottom.getPosX()][bottom.getPosY()] == Surfaces.ROAD) {
+        while (bottom != null && this.getSurfaceAt(bottom) == Surfaces.ROAD) {
             verCounter++;
             bottom = bottom.getBottomNeighbour(this);
         }
@@ -552,10 +828,10 @@ public class Board {
      * @param temp board where line should be deleted
      */
     private void deleteLineUp(Board temp) {
-        temp.setValues(new Surfaces[this.getLength()][this.getLength(0) - 1]);
+        temp.setSize(this.getLength(), this.getLength(0) - 1);
         for (int i = 0; i < this.getLength(); i++) {
             for (int j = 0; j < this.getLength(0) - 1; j++) {
-                temp.setValueAt(i, j, this.getValues()[i][j + 1]);
+                temp.setValueAt(i, j, this.surfaceAt(i, j + 1));
             }
         }
     }
@@ -565,10 +841,10 @@ public class Board {
      * @param temp board where line should be deleted
      */
     private void deleteLineDown(Board temp) {
-        temp.setValues(new Surfaces[this.getLength()][this.getLength(0) - 1]);
+        temp.setSize(this.getLength(), this.getLength(0) - 1);
         for (int i = 0; i < this.getLength(); i++) {
             for (int j = 0; j < this.getLength(0) - 1; j++) {
-                temp.setValueAt(i, j, this.getValues()[i][j]);
+                temp.setValueAt(i, j, this.surfaceAt(i, j));
             }
         }
     }
@@ -578,10 +854,10 @@ public class Board {
      * @param temp board where line should be deleted
      */
     private void deleteLineRight(Board temp) {
-        temp.setValues(new Surfaces[this.getLength() - 1][this.getLength(0)]);
+        temp.setSize(this.getLength() - 1, this.getLength(0));
         for (int i = 0; i < this.getLength() - 1; i++) {
             for (int j = 0; j < this.getLength(0); j++) {
-                temp.setValueAt(i, j, this.getValues()[i][j]);
+                temp.setValueAt(i, j, this.surfaceAt(i, j));
             }
         }
     }
@@ -591,13 +867,13 @@ public class Board {
      * @param temp board where line should be deleted
      */
     private void addLineUp(Board temp) {
-        temp.setValues(new Surfaces[this.getLength()][this.getLength(0) + 1]);
+        temp.setSize(this.getLength(), this.getLength(0) + 1);
         for (int i = 0; i < temp.getLength(); i++) {
             for (int j = 0; j < temp.getLength(0); j++) {
                 if (j == 0) {
                     temp.setValueAt(i, j, Surfaces.GRAVEL);
                 } else {
-                    temp.setValueAt(i, j, this.getValues()[i][j - 1]);
+                    temp.setValueAt(i, j, this.surfaceAt(i, j - 1));
                 }
             }
         }
@@ -608,13 +884,13 @@ public class Board {
      * @param temp board where line should be deleted
      */
     private void addLineDown(Board temp) {
-        temp.setValues(new Surfaces[this.getLength()][this.getLength(0) + 1]);
+        temp.setSize(this.getLength(), this.getLength(0) + 1);
         for (int i = 0; i < temp.getLength(); i++) {
             for (int j = 0; j < temp.getLength(0); j++) {
                 if (j == temp.getLength(0) - 1) {
                     temp.setValueAt(i, j, Surfaces.GRAVEL);
                 } else {
-                    temp.setValueAt(i, j, this.getValues()[i][j]);
+                    temp.setValueAt(i, j, this.surfaceAt(i, j));
                 }
             }
         }
@@ -625,13 +901,13 @@ public class Board {
      * @param temp board where line should be deleted
      */
     private void addLineRight(Board temp) {
-        temp.setValues(new Surfaces[this.getLength() + 1][this.getLength(0)]);
+        temp.setSize(this.getLength() + 1, this.getLength(0));
         for (int i = 0; i < temp.getLength(); i++) {
             for (int j = 0; j < temp.getLength(0); j++) {
                 if (i == temp.getLength() - 1) {
                     temp.setValueAt(i, j, Surfaces.GRAVEL);
                 } else {
-                    temp.setValueAt(i, j, this.getValues()[i][j]);
+                    temp.setValueAt(i, j, this.surfaceAt(i, j));
                 }
             }
         }
@@ -642,13 +918,13 @@ public class Board {
      * @param temp board where line should be deleted
      */
     private void addLineLeft(Board temp) {
-        temp.setValues(new Surfaces[this.getLength() + 1][this.getLength(0)]);
+        temp.setSize(this.getLength() + 1, this.getLength(0));
         for (int i = 0; i < temp.getLength(); i++) {
             for (int j = 0; j < temp.getLength(0); j++) {
                 if (i == 0) {
                     temp.setValueAt(i, j, Surfaces.GRAVEL);
                 } else {
-                    temp.setValueAt(i, j, this.getValues()[i - 1][j]);
+                    temp.setValueAt(i, j, this.surfaceAt(i - 1, j));
                 }
             }
         }
@@ -659,23 +935,37 @@ public class Board {
      * @param temp board where line should be deleted
      */
     private void deleteLineLeft(Board temp) {
-        temp.setValues(new Surfaces[this.getLength() - 1][this.getLength(0)]);
+        temp.setSize(this.getLength() - 1, this.getLength(0));
         for (int i = 0; i < this.getLength() - 1; i++) {
             for (int j = 0; j < this.getLength(0); j++) {
-                temp.setValueAt(i, j, this.getValues()[i + 1][j]);
+                temp.setValueAt(i, j, this.surfaceAt(i + 1, j));
             }
         }
     }
 
+    /**
+     * creates a copy of this board
+     * @return the copy
+     */
+    protected Board copy() {
+        Board temp = new Board();
+        temp.width = width;
+        temp.height = height;
+        temp.cells = cells.copy();
+        temp.startCells = startCells.clone();
+        temp.startCount = startCount;
+        temp.surfaceCounts = surfaceCounts.clone();
+        return temp;
+    }
+
     /**
      * deletes a line from the board
      * @param dir direction of starting line
      */
     protected Board deleteLine(StartCrossDirection dir) {
-        Board temp = new Board();
-        temp.setValues(this.getValues());
+        Board temp = copy();
 
-        if (values[0].length > 10 && (dir == StartCrossDirection.UP || dir == StartCrossDirection.DOWN)) {
+        if (height > 10 && (dir == StartCrossDirection.UP || dir == StartCrossDirection.DOWN)) {
             switch (dir) {
                 case UP:
                     deleteLineUp(temp);
@@ -684,7 +974,7 @@ public class Board {
                     deleteLineDown(temp);
                     break;
             }
-        } else if (values.length > 10) {
+        } else if (width > 10) {
             switch (dir) {
                 case RIGHT:
                     deleteLineRight(temp);
@@ -703,10 +993,9 @@ public class Board {
      * @param dir direction of starting line
      */
     protected Board addLine(StartCrossDirection dir) {
-        Board temp = new Board();
-        temp.setValues(this.getValues());
+        Board temp = copy();
 
-        if (values[0].length < 20 && (dir == StartCrossDirection.UP || dir == StartCrossDirection.DOWN)) {
+        if (height < 20 && (dir == StartCrossDirection.UP || dir == StartCrossDirection.DOWN)) {
             switch (dir) {
                 case UP:
                     addLineUp(temp);
@@ -715,7 +1004,7 @@ public class Board {
                     addLineDown(temp);
                     break;
             }
-        } else if (values.length < 40) {
+        } else if (width < 40) {
             switch (dir) {
                 case RIGHT:
                     addLineRight(temp);
@@ -741,6 +1030,19 @@ public class Board {
      */
     protected Position findFreePositionFromSL(Player[] players, StartCrossDirection dir,
                                            int currentPlayer, GameMode gameMode) {
+        return findFreePositionFromSL(new OccupancyGrid(width, height, players), dir, currentPlayer, gameMode);
+    }
+
+    /**
+     * finds free position in front of starting line for the AI
+     * @param occupancy positions of the players
+     * @param dir direction of start
+     * @param currentPlayer currently active player
+     * @param gameMode game mode
+     * @return free position
+     */
+    protected Position findFreePositionFromSL(OccupancyGrid occupancy, StartCrossDirection dir,
+                                           int currentPlayer, GameMode gameMode) {
         Position freePos = new Position(0,0);
         ArrayList<Position> sl = getCurrStartingLine();
 
@@ -751,10 +1053,10 @@ public class Board {
                 case RIGHT ->freePos = sl.get(i).getLeftNeighbour();
                 case LEFT ->freePos = sl.get(i).getRightNeighbour(this);
             }
-            if (isValidPositionInGameMode(players, freePos, currentPlayer, gameMode)) {
+            if (isValidPositionInGameMode(occupancy, freePos.getPosX(), freePos.getPosY(), currentPlayer, gameMode)) {
                 return freePos;
             }
         }
-        return findFreePositionFromPos(freePos, players, currentPlayer, gameMode);
+        return findFreePositionFromPos(freePos, occupancy, currentPlayer, gameMode);
     }
 }
@@ -0,0 +1,37 @@
+package logic;
+
+/**
+ * read only access to the fields of a map
+ */
+public interface BoardView {
+
+    /**
+     * @return x length of the map
+     */
+    int getWidth();
+
+    /**
+     * @return y length of the map
+     */
+    int getHeight();
+
+    /**
+     * return the surface at given coordinates
+     *
+     * @param x x value
+     * @param y y value
+     * @return surface
+     */
+    Surfaces surfaceAt(int x, int y);
+
+    /**
+     * checks if the given coordinates are inside the map
+     *
+     * @param x x value
+     * @param y y value
+     * @return true if inside, false if not
+     */
+    default boolean contains(int x, int y) {
+        return x >= 0 && x < getWidth() && y >= 0 && y < getHeight();
+    }
+}
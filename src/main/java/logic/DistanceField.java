@@ -0,0 +1,376 @@
+package logic;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * distance of every road field to the starting line, counted in steps to a neighbour field. Used by the AI
+ * to know in which direction the race goes. The values are kept in square tiles that are only created when a
+ * field in them is reached, so large maps with little road need little memory.
+ */
+public class DistanceField {
+
+    //fields per tile side as power of two
+    private static final int TILE_SHIFT = 6;
+
+    private static final int TILE_SIZE = 1 << TILE_SHIFT;
+
+    private static final int TILE_MASK = TILE_SIZE - 1;
+
+    //"RDST" as the first four bytes of every saved field
+    private static final int MAGIC = 0x52445354;
+
+    private static final short VERSION = 1;
+
+    /**
+     * maps with at least this many fields are searched on all cores by default, see ParallelDistanceSearch
+     */
+    public static final long DEFAULT_PARALLEL_THRESHOLD = 1L << 22;
+
+    private static volatile long parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    private final int width;
+
+    private final int height;
+
+    //number of tiles in x direction
+    private final int tilesX;
+
+    //distance + 1 of every reached field, 0 if the field was not reached
+    private final int[][] tiles;
+
+    /**
+     * creates a field where no field is reached
+     *
+     * @param width  x length of the map
+     * @param height y length of the map
+     */
+    protected DistanceField(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.tilesX = (width + TILE_MASK) >> TILE_SHIFT;
+        this.tiles = new int[tilesX * ((height + TILE_MASK) >> TILE_SHIFT)][];
+    }
+
+    /**
+     * sets from which size on maps are searched on all cores
+     *
+     * @param fields number of fields, Long.MAX_VALUE to always search on one thread
+     */
+    public static void setParallelThreshold(long fields) {
+        parallelThreshold = fields;
+    }
+
+    public static long getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * calculates the distance values of a map by a breadth first search starting at the starting line.
+     * Right behind the starting line the search only goes against the direction the line is crossed,
+     * so the values get smaller towards the finish. Maps with at least getParallelThreshold() fields are
+     * searched on all cores, the values are the same.
+     *
+     * @param board     the map
+     * @param direction direction the starting line has to be crossed
+     * @return the distance values
+     */
+    protected static DistanceField calculate(Board board, StartCrossDirection direction) {
+        if ((long) board.getWidth() * board.getHeight() >= parallelThreshold) {
+            return ParallelDistanceSearch.calculate(board, direction, ForkJoinPool.commonPool(),
+                    ParallelDistanceSearch.GRAIN);
+        }
+        return calculateSequential(board, direction);
+    }
+
+    /**
+     * calculates the distance values on the current thread
+     *
+     * @param board     the map
+     * @param direction direction the starting line has to be crossed
+     * @return the distance values
+     */
+    protected static DistanceField calculateSequential(Board board, StartCrossDirection direction) {
+        final int width = board.getWidth();
+        final int height = board.getHeight();
+        DistanceField field = new DistanceField(width, height);
+        //fields of the current and the next step as y * width + x
+        int[] current = new int[64];
+        int currentSize = 0;
+        int[] next = new int[64];
+        ArrayList<Position> startingLine = board.getCurrStartingLine();
+        for (Position start : startingLine) {
+            if (currentSize == current.length) {
+                current = Arrays.copyOf(current, currentSize * 2);
+            }
+            current[currentSize++] = start.getPosY() * width + start.getPosX();
+            field.set(start.getPosX(), start.getPosY(), 0);
+        }
+        final int blocked = blockedNeighbour(direction);
+
+        int stepsFromStart = 1;
+        while (currentSize > 0) {
+            int nextSize = 0;
+            for (int i = 0; i < currentSize; i++) {
+                final int x = current[i] % width;
+                final int y = current[i] / width;
+                for (int j = Logic.TOP; j <= Logic.LEFT; j++) {
+                    final int neighX = j == Logic.RIGHT ? x + 1 : j == Logic.LEFT ? x - 1 : x;
+                    final int neighY = j == Logic.DOWN ? y + 1 : j == Logic.TOP ? y - 1 : y;
+                    if (neighX < 0 || neighX >= width || neighY < 0 || neighY >= height
+                            || board.surfaceAt(neighX, neighY) != Surfaces.ROAD || field.isReached(neighX, neighY)
+                            || (stepsFromStart == 1 && j == blocked)) {
+                        continue;
+                    }
+                    field.set(neighX, neighY, stepsFromStart);
+                    if (nextSize == next.length) {
+                        next = Arrays.copyOf(next, nextSize * 2);
+                    }
+                    next[nextSize++] = neighY * width + neighX;
+                }
+            }
+            int[] temp = current;
+            current = next;
+            currentSize = nextSize;
+            next = temp;
+            stepsFromStart++;
+        }
+        return field;
+    }
+
+    /**
+     * returns the neighbour of a field of the starting line that must not be entered from it, the field the
+     * line is crossed into
+     *
+     * @param direction direction the starting line has to be crossed
+     * @return Logic.TOP, Logic.RIGHT, Logic.DOWN or Logic.LEFT
+     */
+    protected static int blockedNeighbour(StartCrossDirection direction) {
+        return switch (direction) {
+            case UP -> Logic.TOP;
+            case RIGHT -> Logic.RIGHT;
+            case DOWN -> Logic.DOWN;
+            case LEFT -> Logic.LEFT;
+        };
+    }
+
+    /**
+     * @return x length of the map
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return y length of the map
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * returns the distance of a field to the starting line
+     *
+     * @param x x value, has to be inside the map
+     * @param y y value, has to be inside the map
+     * @return the distance, 0 for fields that were not reached
+     */
+    public int get(int x, int y) {
+        int[] tile = tiles[tileIndex(x, y)];
+        if (tile == null) {
+            return 0;
+        }
+        int value = tile[offset(x, y)];
+        return value == 0 ? 0 : value - 1;
+    }
+
+    /**
+     * @param x x value, has to be inside the map
+     * @param y y value, has to be inside the map
+     * @return true if the field was reached from the starting line
+     */
+    public boolean isReached(int x, int y) {
+        int[] tile = tiles[tileIndex(x, y)];
+        return tile != null && tile[offset(x, y)] != 0;
+    }
+
+    /**
+     * sets the distance of a field and marks it as reached
+     *
+     * @param x        x value, has to be inside the map
+     * @param y        y value, has to be inside the map
+     * @param distance distance to the starting line
+     */
+    protected void set(int x, int y, int distance) {
+        int index = tileIndex(x, y);
+        if (tiles[index] == null) {
+            tiles[index] = new int[TILE_SIZE * TILE_SIZE];
+        }
+        tiles[index][offset(x, y)] = distance + 1;
+    }
+
+    /**
+     * sets the distance of a field like set, several threads may call it for different fields at the same time
+     *
+     * @param x        x value, has to be inside the map
+     * @param y        y value, has to be inside the map
+     * @param distance distance to the starting line
+     */
+    protected void setConcurrently(int x, int y, int distance) {
+        int index = tileIndex(x, y);
+        int[] tile = tiles[index];
+        if (tile == null) {
+            synchronized (tiles) {
+                tile = tiles[index];
+                if (tile == null) {
+                    tile = new int[TILE_SIZE * TILE_SIZE];
+                    tiles[index] = tile;
+                }
+            }
+        }
+        tile[offset(x, y)] = distance + 1;
+    }
+
+    /**
+     * marks a field as not reached
+     *
+     * @param x x value, has to be inside the map
+     * @param y y value, has to be inside the map
+     */
+    protected void unset(int x, int y) {
+        int[] tile = tiles[tileIndex(x, y)];
+        if (tile != null) {
+            tile[offset(x, y)] = 0;
+        }
+    }
+
+    /**
+     * @return number of tiles holding values
+     */
+    public int getTileCount() {
+        int count = 0;
+        for (int[] tile : tiles) {
+            if (tile != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return number of bytes the values take on the heap
+     */
+    public long getByteSize() {
+        return (long) tiles.length * Integer.BYTES + (long) getTileCount() * TILE_SIZE * TILE_SIZE * Integer.BYTES;
+    }
+
+    /**
+     * saves the values, only the tiles holding values are written. The file is written to a temporary file of its
+     * own next to the target first and then moved, so readers never see a part of it and games saving the same
+     * values at the same time do not get in each other's way.
+     *
+     * @param file the file, replaced if it exists
+     * @return true if the values were saved, false if the file could not be written
+     */
+    protected boolean write(Path file) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+            writeTiles(temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    //the temporary file stays, the values are not saved either way
+                }
+            }
+            return false;
+        }
+    }
+
+    private void writeTiles(Path temp) throws IOException {
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * (1 + TILE_SIZE * TILE_SIZE));
+            buffer.putInt(MAGIC).putShort(VERSION).putInt(width).putInt(height).putInt(getTileCount());
+            write(channel, buffer);
+            for (int i = 0; i < tiles.length; i++) {
+                if (tiles[i] != null) {
+                    buffer.putInt(i);
+                    buffer.asIntBuffer().put(tiles[i]);
+                    buffer.position(buffer.limit());
+                    write(channel, buffer);
+                }
+            }
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * reads values saved with write
+     *
+     * @param file   the file
+     * @param width  x length the map has to have
+     * @param height y length the map has to have
+     * @return the values, null if the file is no saved field of a map of this size, is incomplete or cannot be read
+     */
+    protected static DistanceField read(Path file, int width, int height) {
+        try {
+            if (Files.size(file) > Integer.MAX_VALUE) {
+                return null;
+            }
+            //read onto the heap instead of mapping it, a mapped file could not be replaced on every system
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION || buffer.getInt() != width
+                    || buffer.getInt() != height) {
+                return null;
+            }
+            DistanceField field = new DistanceField(width, height);
+            int tileCount = buffer.getInt();
+            for (int i = 0; i < tileCount; i++) {
+                int index = buffer.getInt();
+                if (index < 0 || index >= field.tiles.length) {
+                    return null;
+                }
+                int[] tile = new int[TILE_SIZE * TILE_SIZE];
+                IntBuffer values = buffer.asIntBuffer();
+                if (values.remaining() < tile.length) {
+                    return null;
+                }
+                values.get(tile);
+                buffer.position(buffer.position() + tile.length * Integer.BYTES);
+                field.tiles[index] = tile;
+            }
+            return field;
+        } catch (BufferUnderflowException | IOException e) {
+            return null;
+        }
+    }
+
+    private int tileIndex(int x, int y) {
+        return (y >> TILE_SHIFT) * tilesX + (x >> TILE_SHIFT);
+    }
+
+    private static int offset(int x, int y) {
+        return ((y & TILE_MASK) << TILE_SHIFT) | (x & TILE_MASK);
+    }
+}
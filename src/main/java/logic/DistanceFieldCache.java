@@ -0,0 +1,170 @@
+package logic;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * distance values of the maps used since the start of the program, so loading a map again or starting another
+ * race on it does not need a new search. A map is found by a hash of its fields and the direction the starting
+ * line has to be crossed. When the values of all maps take more bytes than the limit, the least recently used
+ * ones are dropped. If a directory is set, calculated values are saved there too and read again after a
+ * restart. Saving is best effort, values that cannot be read or saved are calculated again. The distance values
+ * handed out are shared and must not be changed.
+ */
+public class DistanceFieldCache {
+
+    /**
+     * bytes the values of all maps may take by default
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    private static final DistanceFieldCache INSTANCE = new DistanceFieldCache(DEFAULT_MAX_BYTES);
+
+    private final long maxBytes;
+
+    //least recently used first
+    private final LinkedHashMap<Key, DistanceField> fields = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes;
+
+    //directory the values are saved in, null if they are only kept in memory
+    private Path directory;
+
+    private int hitCount;
+
+    private int calculationCount;
+
+    /**
+     * map the values belong to
+     *
+     * @param hash      content hash of the board, see Board.contentHash
+     * @param width     x length of the map
+     * @param height    y length of the map
+     * @param direction direction the starting line has to be crossed
+     */
+    private record Key(long hash, int width, int height, StartCrossDirection direction) {
+
+        /**
+         * @return name of the file the values are saved in
+         */
+        private String fileName() {
+            return String.format("%016x-%dx%d-%s.dist", hash, width, height, direction);
+        }
+    }
+
+    /**
+     * @param maxBytes bytes the values of all maps may take
+     */
+    protected DistanceFieldCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the cache shared by all games
+     */
+    public static DistanceFieldCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * sets the directory values are saved in
+     *
+     * @param directory existing directory, null to keep the values only in memory
+     */
+    public synchronized void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * returns the distance values of a map. They are taken from memory or the directory if they were
+     * calculated before, otherwise they are calculated and kept.
+     *
+     * @param board     the map
+     * @param direction direction the starting line has to be crossed
+     * @return the distance values, shared with every other game on a map with the same fields
+     */
+    protected DistanceField lookup(Board board, StartCrossDirection direction) {
+        Key key = new Key(board.contentHash(), board.getWidth(), board.getHeight(), direction);
+        Path file;
+        synchronized (this) {
+            DistanceField field = fields.get(key);
+            if (field != null) {
+                hitCount++;
+                return field;
+            }
+            file = directory == null ? null : directory.resolve(key.fileName());
+        }
+        // the search runs outside the lock, so other maps can be looked up meanwhile
+        DistanceField field = file != null && Files.isRegularFile(file)
+                ? DistanceField.read(file, board.getWidth(), board.getHeight()) : null;
+        if (field == null) {
+            field = DistanceField.calculate(board, direction);
+            if (file != null) {
+                //if it cannot be saved, it is only calculated again after a restart
+                field.write(file);
+            }
+            synchronized (this) {
+                calculationCount++;
+            }
+        }
+        return put(key, field);
+    }
+
+    /**
+     * keeps values and drops the least recently used ones until all fit into the limit
+     *
+     * @param key   map the values belong to
+     * @param field the values
+     * @return the kept values, those of another game if it added them first
+     */
+    private synchronized DistanceField put(Key key, DistanceField field) {
+        DistanceField existing = fields.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        long size = field.getByteSize();
+        if (size > maxBytes) {
+            return field;
+        }
+        fields.put(key, field);
+        bytes += size;
+        Iterator<Map.Entry<Key, DistanceField>> eldest = fields.entrySet().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().getValue().getByteSize();
+            eldest.remove();
+        }
+        return field;
+    }
+
+    /**
+     * drops all values kept in memory, saved values stay in the directory
+     */
+    public synchronized void clear() {
+        fields.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return number of maps whose values are kept in memory
+     */
+    public synchronized int size() {
+        return fields.size();
+    }
+
+    /**
+     * @return number of lookups answered from memory
+     */
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of searches run because the values were neither in memory nor in the directory
+     */
+    public synchronized int getCalculationCount() {
+        return calculationCount;
+    }
+}
@@ -0,0 +1,513 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * distance values of a map that is being edited. When a field changes between road and gravel only the fields
+ * whose distance depends on it are searched again, so painting a line costs as much as the region it changes
+ * and not a search of the whole map. Changes of the starting line calculate all values again.
+ * The values follow the rules of DistanceField.calculate. The shortest lap along the values is kept too, after a
+ * change only the part of it from the first field next to a changed value on is followed again, up to where it
+ * meets the old lap behind the changes.
+ */
+public class DynamicDistanceField {
+
+    private final Board board;
+
+    private final StartCrossDirection direction;
+
+    //neighbour that must not be entered from the starting line
+    private final int blocked;
+
+    //the values are not shared, unlike those of the cache
+    private DistanceField field;
+
+    //number of fields looked at by the last change
+    private int lastRepairSize;
+
+    //buffers of the searches, fields as y * width + x
+    private int[] queue = new int[64];
+    private int[] changed = new int[64];
+
+    //fields whose value changed with the last update besides the changed field itself
+    private int changedCount;
+
+    //field changed by the last update as y * width + x, -1 if all values were calculated again
+    private int editedCell = -1;
+
+    //fields of the shortest lap, see getShortestLap. Used as a sparse map from each field to its distance
+    //on the lap, which is its distance value when it joined the lap
+    private DistanceField lap;
+
+    //first field of the lap as y * width + x, -1 if there is no lap
+    private int lapHead = -1;
+
+    //fields that joined and left the lap with the last update
+    private int[] lapAdded = new int[16];
+    private int lapAddedCount;
+    private int[] lapRemoved = new int[16];
+    private int lapRemovedCount;
+
+    /**
+     * calculates the values of the current board
+     *
+     * @param board     the map, every change of a field has to be reported with update
+     * @param direction direction the starting line has to be crossed
+     */
+    protected DynamicDistanceField(Board board, StartCrossDirection direction) {
+        this.board = board;
+        this.direction = direction;
+        this.blocked = DistanceField.blockedNeighbour(direction);
+        this.field = DistanceField.calculate(board, direction);
+        this.lap = new DistanceField(board.getWidth(), board.getHeight());
+        buildLap();
+    }
+
+    /**
+     * @param board     a map
+     * @param direction direction the starting line has to be crossed
+     * @return true if the values belong to the board and direction
+     */
+    protected boolean belongsTo(Board board, StartCrossDirection direction) {
+        return this.board == board && this.direction == direction
+                && field.getWidth() == board.getWidth() && field.getHeight() == board.getHeight();
+    }
+
+    /**
+     * @return the current values, they change with the next update
+     */
+    public DistanceField getValues() {
+        return field;
+    }
+
+    /**
+     * @return number of fields the last update looked at
+     */
+    public int getLastRepairSize() {
+        return lastRepairSize;
+    }
+
+    /**
+     * repairs the values after a field of the board was changed
+     *
+     * @param x   x value of the field
+     * @param y   y value of the field
+     * @param old surface the field had before
+     */
+    protected void update(int x, int y, Surfaces old) {
+        Surfaces sur = board.surfaceAt(x, y);
+        changedCount = 0;
+        editedCell = y * board.getWidth() + x;
+        if (old == Surfaces.START || sur == Surfaces.START) {
+            field = DistanceField.calculate(board, direction);
+            lastRepairSize = board.getWidth() * board.getHeight();
+            editedCell = -1;
+        } else if (old == Surfaces.ROAD && sur != Surfaces.ROAD) {
+            removeRoad(x, y);
+        } else if (old != Surfaces.ROAD && sur == Surfaces.ROAD) {
+            addRoad(x, y);
+        } else {
+            lastRepairSize = 0;
+        }
+        if (editedCell == -1) {
+            buildLap();
+        } else {
+            repairLap();
+        }
+    }
+
+    /**
+     * a field became road, its distance is taken from its neighbours and spreads to every field it makes shorter
+     */
+    private void addRoad(int x, int y) {
+        int best = bestNeighbour(x, y);
+        lastRepairSize = 1;
+        if (best == -1) {
+            return;
+        }
+        final int width = board.getWidth();
+        field.set(x, y, best);
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = y * width + x;
+        while (head < tail) {
+            final int cell = queue[head++];
+            final int cellX = cell % width;
+            final int cellY = cell / width;
+            final int distance = field.get(cellX, cellY) + 1;
+            for (int j = Logic.TOP; j <= Logic.LEFT; j++) {
+                final int neighX = neighbourX(cellX, j);
+                final int neighY = neighbourY(cellY, j);
+                if (isRoad(neighX, neighY)
+                        && (!field.isReached(neighX, neighY) || field.get(neighX, neighY) > distance)) {
+                    field.set(neighX, neighY, distance);
+                    queue = grow(queue, tail);
+                    queue[tail++] = neighY * width + neighX;
+                    lastRepairSize++;
+                }
+            }
+        }
+        changed = grow(changed, tail);
+        System.arraycopy(queue, 1, changed, 0, tail - 1);
+        changedCount = tail - 1;
+    }
+
+    /**
+     * a field is no road anymore. First every field that only got its distance through it is removed, going
+     * outwards one distance after the other, so every field is checked after all fields with a smaller distance
+     * that lost it. Then the removed fields get their distance again from the fields around them that kept it.
+     */
+    private void removeRoad(int x, int y) {
+        lastRepairSize = 1;
+        if (!field.isReached(x, y)) {
+            return;
+        }
+        final int width = board.getWidth();
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = y * width + x;
+        int[] distances = new int[]{field.get(x, y)};
+        field.unset(x, y);
+        while (head < tail) {
+            final int cell = queue[head];
+            final int distance = distances[head++] + 1;
+            final int cellX = cell % width;
+            final int cellY = cell / width;
+            for (int j = Logic.TOP; j <= Logic.LEFT; j++) {
+                final int neighX = neighbourX(cellX, j);
+                final int neighY = neighbourY(cellY, j);
+                if (isRoad(neighX, neighY) && field.isReached(neighX, neighY)
+                        && field.get(neighX, neighY) == distance && bestNeighbour(neighX, neighY) != distance) {
+                    field.unset(neighX, neighY);
+                    queue = grow(queue, tail);
+                    distances = grow(distances, tail);
+                    distances[tail] = distance;
+                    queue[tail++] = neighY * width + neighX;
+                    changed = grow(changed, changedCount);
+                    changed[changedCount++] = neighY * width + neighX;
+                }
+            }
+        }
+        lastRepairSize += changedCount;
+        if (changedCount > 0) {
+            refill();
+        }
+    }
+
+    /**
+     * gives the removed fields their distance again. Fields next to a kept field start with the distance they
+     * get from it, from there the search goes on like the one of DistanceField.calculate.
+     */
+    private void refill() {
+        final int width = board.getWidth();
+        //starting fields sorted by their distance, the distance in the upper half
+        long[] seeds = new long[changedCount];
+        int seedCount = 0;
+        for (int i = 0; i < changedCount; i++) {
+            int best = bestNeighbour(changed[i] % width, changed[i] / width);
+            if (best != -1) {
+                seeds[seedCount++] = (long) best << 32 | changed[i];
+            }
+        }
+        Arrays.sort(seeds, 0, seedCount);
+        int nextSeed = 0;
+        int currentSize = 0;
+        int distance = seedCount == 0 ? 0 : (int) (seeds[0] >>> 32);
+        int[] next = new int[16];
+        while (currentSize > 0 || nextSeed < seedCount) {
+            if (currentSize == 0) {
+                distance = Math.max(distance, (int) (seeds[nextSeed] >>> 32));
+            }
+            while (nextSeed < seedCount && (int) (seeds[nextSeed] >>> 32) == distance) {
+                int cell = (int) seeds[nextSeed++];
+                if (!field.isReached(cell % width, cell / width)) {
+                    field.set(cell % width, cell / width, distance);
+                    queue = grow(queue, currentSize);
+                    queue[currentSize++] = cell;
+                }
+            }
+            int nextSize = 0;
+            for (int i = 0; i < currentSize; i++) {
+                final int cellX = queue[i] % width;
+                final int cellY = queue[i] / width;
+                for (int j = Logic.TOP; j <= Logic.LEFT; j++) {
+                    final int neighX = neighbourX(cellX, j);
+                    final int neighY = neighbourY(cellY, j);
+                    if (isRoad(neighX, neighY) && !field.isReached(neighX, neighY)) {
+                        field.set(neighX, neighY, distance + 1);
+                        next = grow(next, nextSize);
+                        next[nextSize++] = neighY * width + neighX;
+                    }
+                }
+            }
+            int[] temp = queue;
+            queue = next;
+            next = temp;
+            currentSize = nextSize;
+            distance++;
+        }
+    }
+
+    /**
+     * returns the smallest distance a road field gets from the reached fields next to it. A field of the
+     * starting line only gives its distance to fields that are not in the direction it is crossed.
+     *
+     * @param x x value of the field
+     * @param y y value of the field
+     * @return the distance, -1 if no field next to it is reached
+     */
+    private int bestNeighbour(int x, int y) {
+        int best = -1;
+        for (int j = Logic.TOP; j <= Logic.LEFT; j++) {
+            final int neighX = neighbourX(x, j);
+            final int neighY = neighbourY(y, j);
+            if (!board.contains(neighX, neighY) || !field.isReached(neighX, neighY)) {
+                continue;
+            }
+            // the field is in direction (j + 2) % 4 seen from the neighbour
+            if (board.surfaceAt(neighX, neighY) == Surfaces.START && (j + 2) % 4 == blocked) {
+                continue;
+            }
+            int distance = field.get(neighX, neighY) + 1;
+            if (best == -1 || distance < best) {
+                best = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * returns the shortest lap the AI is led along. It starts at the field behind the starting line with the
+     * smallest distance and follows the distance values down to the line, taking the first neighbour in the
+     * order top, right, down, left where there is a choice.
+     *
+     * @return fields of the lap, empty if there is no lap
+     */
+    public ArrayList<Position> getShortestLap() {
+        final int width = board.getWidth();
+        ArrayList<Position> fields = new ArrayList<>();
+        for (int cell = lapHead; cell != -1; cell = nextOnOldLap(cell)) {
+            fields.add(new Position(cell % width, cell / width));
+        }
+        return fields;
+    }
+
+    /**
+     * @return fields that joined the lap with the last update
+     */
+    public Position[] getLapAdded() {
+        return toPositions(lapAdded, lapAddedCount);
+    }
+
+    /**
+     * @return fields that left the lap with the last update
+     */
+    public Position[] getLapRemoved() {
+        return toPositions(lapRemoved, lapRemovedCount);
+    }
+
+    /**
+     * @param x x value of the field
+     * @param y y value of the field
+     * @return true if the field is on the lap
+     */
+    public boolean isOnLap(int x, int y) {
+        return lap.isReached(x, y);
+    }
+
+    /**
+     * follows the whole lap again, every field of the old lap counts as removed and every field of the new one
+     * as added
+     */
+    private void buildLap() {
+        final int width = board.getWidth();
+        lapRemovedCount = 0;
+        for (int cell = lapHead; cell != -1; cell = nextOnOldLap(cell)) {
+            lapRemoved = grow(lapRemoved, lapRemovedCount);
+            lapRemoved[lapRemovedCount++] = cell;
+        }
+        lap = new DistanceField(width, board.getHeight());
+        lapAddedCount = 0;
+        lapHead = findLapHead();
+        for (int cell = lapHead; cell != -1; cell = nextOnLap(cell)) {
+            lap.set(cell % width, cell / width, field.get(cell % width, cell / width));
+            lapAdded = grow(lapAdded, lapAddedCount);
+            lapAdded[lapAddedCount++] = cell;
+        }
+    }
+
+    /**
+     * follows the lap again from the last lap field before the first one that is a changed field or next to one.
+     * The lap before it stays, its fields and their neighbours kept their values. If the first field of the lap
+     * or its value changed, the lap is followed again from the new first field. The new part ends where it meets
+     * a field of the old lap behind all changed fields, since the old lap goes on from there in the same way.
+     */
+    private void repairLap() {
+        final int width = board.getWidth();
+        lapAddedCount = 0;
+        lapRemovedCount = 0;
+        final int head = findLapHead();
+        if (head == -1) {
+            buildLap();
+            return;
+        }
+        //lap field of the highest and the lowest lap value that is changed or next to a changed field
+        int from = -1;
+        int lowest = Integer.MAX_VALUE;
+        for (int i = -1; i < changedCount; i++) {
+            final int cell = i == -1 ? editedCell : changed[i];
+            for (int j = -1; j <= Logic.LEFT; j++) {
+                final int x = j == -1 ? cell % width : neighbourX(cell % width, j);
+                final int y = j == -1 ? cell / width : neighbourY(cell / width, j);
+                if (board.contains(x, y) && lap.isReached(x, y)) {
+                    final int value = lap.get(x, y);
+                    if (from == -1 || value > lap.get(from % width, from / width)) {
+                        from = y * width + x;
+                    }
+                    lowest = Math.min(lowest, value);
+                }
+            }
+        }
+        //first field of the new part and of the replaced old part
+        int first;
+        int oldFirst;
+        if (head != lapHead || !hasLapValue(head) || (from != -1 && !hasLapValue(from))) {
+            first = head;
+            oldFirst = lapHead;
+            lapHead = head;
+        } else if (from != -1) {
+            first = nextOnLap(from);
+            oldFirst = nextOnOldLap(from);
+        } else {
+            return;
+        }
+        //new part of the lap, up to the field where it meets the old lap again
+        int merge = -1;
+        int newCount = 0;
+        for (int cell = first; cell != -1; cell = nextOnLap(cell)) {
+            final int x = cell % width;
+            final int y = cell / width;
+            if (lap.isReached(x, y) && lap.get(x, y) < lowest && hasLapValue(cell)) {
+                merge = cell;
+                break;
+            }
+            queue = grow(queue, newCount);
+            queue[newCount++] = cell;
+        }
+        //old part of the lap that is replaced
+        for (int cell = oldFirst; cell != -1 && cell != merge; cell = nextOnOldLap(cell)) {
+            lapRemoved = grow(lapRemoved, lapRemovedCount);
+            lapRemoved[lapRemovedCount++] = cell;
+        }
+        // every field of the old lap on the new part lies on the replaced part, so it is not reported as added
+        for (int i = 0; i < newCount; i++) {
+            if (!lap.isReached(queue[i] % width, queue[i] / width)) {
+                lapAdded = grow(lapAdded, lapAddedCount);
+                lapAdded[lapAddedCount++] = queue[i];
+            }
+        }
+        for (int i = 0; i < lapRemovedCount; i++) {
+            lap.unset(lapRemoved[i] % width, lapRemoved[i] / width);
+        }
+        for (int i = 0; i < newCount; i++) {
+            lap.set(queue[i] % width, queue[i] / width, field.get(queue[i] % width, queue[i] / width));
+        }
+        int removedCount = 0;
+        for (int i = 0; i < lapRemovedCount; i++) {
+            if (!lap.isReached(lapRemoved[i] % width, lapRemoved[i] / width)) {
+                lapRemoved[removedCount++] = lapRemoved[i];
+            }
+        }
+        lapRemovedCount = removedCount;
+    }
+
+    /**
+     * @return field behind the starting line with the smallest distance as y * width + x, -1 if there is none
+     */
+    private int findLapHead() {
+        int x = -1;
+        int y = -1;
+        for (Position start : board.getCurrStartingLine()) {
+            final int behindX = neighbourX(start.getPosX(), blocked);
+            final int behindY = neighbourY(start.getPosY(), blocked);
+            if (isRoad(behindX, behindY) && field.isReached(behindX, behindY)
+                    && (x == -1 || field.get(behindX, behindY) < field.get(x, y))) {
+                x = behindX;
+                y = behindY;
+            }
+        }
+        return x == -1 ? -1 : y * board.getWidth() + x;
+    }
+
+    /**
+     * @param cell field on the lap as y * width + x
+     * @return true if the field still has the distance it had when it joined the lap
+     */
+    private boolean hasLapValue(int cell) {
+        final int x = cell % board.getWidth();
+        final int y = cell / board.getWidth();
+        return field.isReached(x, y) && field.get(x, y) == lap.get(x, y);
+    }
+
+    /**
+     * @param cell field as y * width + x
+     * @return next field of a lap along the current values, -1 if the starting line is next
+     */
+    private int nextOnLap(int cell) {
+        final int x = cell % board.getWidth();
+        final int y = cell / board.getWidth();
+        final int distance = field.get(x, y) - 1;
+        for (int j = Logic.TOP; j <= Logic.LEFT; j++) {
+            final int neighX = neighbourX(x, j);
+            final int neighY = neighbourY(y, j);
+            if (isRoad(neighX, neighY) && field.isReached(neighX, neighY) && field.get(neighX, neighY) == distance) {
+                return neighY * board.getWidth() + neighX;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param cell field of the kept lap as y * width + x
+     * @return next field of the kept lap, -1 if it is the last one
+     */
+    private int nextOnOldLap(int cell) {
+        final int x = cell % board.getWidth();
+        final int y = cell / board.getWidth();
+        final int distance = lap.get(x, y) - 1;
+        for (int j = Logic.TOP; j <= Logic.LEFT; j++) {
+            final int neighX = neighbourX(x, j);
+            final int neighY = neighbourY(y, j);
+            if (board.contains(neighX, neighY) && lap.isReached(neighX, neighY)
+                    && lap.get(neighX, neighY) == distance) {
+                return neighY * board.getWidth() + neighX;
+            }
+        }
+        return -1;
+    }
+
+    private Position[] toPositions(int[] cells, int count) {
+        Position[] positions = new Position[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = new Position(cells[i] % board.getWidth(), cells[i] / board.getWidth());
+        }
+        return positions;
+    }
+
+    private boolean isRoad(int x, int y) {
+        return board.contains(x, y) && board.surfaceAt(x, y) == Surfaces.ROAD;
+    }
+
+    private static int neighbourX(int x, int j) {
+        return j == Logic.RIGHT ? x + 1 : j == Logic.LEFT ? x - 1 : x;
+    }
+
+    private static int neighbourY(int y, int j) {
+        return j == Logic.DOWN ? y + 1 : j == Logic.TOP ? y - 1 : y;
+    }
+
+    private static int[] grow(int[] array, int size) {
+        return size < array.length ? array : Arrays.copyOf(array, size * 2);
+    }
+}
@@ -1,7 +1,5 @@
 package logic;
 
-import java.util.ArrayList;
-
 /**
  * interface that is implemented by JavaFXGUI for output and FakeGui for testing
  */
@@ -19,11 +17,15 @@ public interface GUIConnector {
     default void updatePlayerPosGUI(Logic logic, Player[] players, boolean isAI, Position oldPos,
                                            Position newPos, int player_number, boolean crashFound) {
     }
+    default void updatePlayerPositionsGUI(Logic logic, Player[] players, Position[] oldPositions) {
+    }
     default void updatePlayerInfoTextField(String s) {
     }
     default void showPossibleField(Position pos, Surfaces sur, StartCrossDirection dir) {
     }
-    default void playReplayMove(Logic logic, ArrayList<ArrayList<Position>> replayData, int moveCount, int animationSpeed) {
+    default void playReplayMove(Logic logic, ReplayData replayData, int moveCount, int animationSpeed) {
+    }
+    default void showReplayMove(Logic logic, ReplayIndex replayIndex, int move) {
     }
 }
 
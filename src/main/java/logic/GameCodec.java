@@ -0,0 +1,436 @@
+package logic;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * reads and writes games as json. The values are streamed by hand written type adapters instead of reflection,
+ * and the same thread safe Gson instance is used for every file. Files are read and written as with a plain
+ * Gson instance, so both can read each other's files.
+ */
+public final class GameCodec {
+
+    private static final TypeAdapter<int[]> INT_ARRAY = new IntArrayAdapter();
+
+    private static final TypeAdapter<int[][]> TRACK = new TrackAdapter();
+
+    private static final TypeAdapter<GameFromAndToJSON.PlayerData> PLAYER = new PlayerAdapter();
+
+    private static final TypeAdapter<GameFromAndToJSON.ReplayEntry> REPLAY = new ReplayAdapter();
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(GameFromAndToJSON.class, new GameAdapter())
+            .create();
+
+    private GameCodec() {
+    }
+
+    /**
+     * reads a game
+     *
+     * @param reader json content
+     * @return the game, null if the content is empty
+     * @throws JsonSyntaxException if the content is no valid game
+     */
+    protected static GameFromAndToJSON read(Reader reader) {
+        return GSON.fromJson(reader, GameFromAndToJSON.class);
+    }
+
+    /**
+     * reads a game from a file
+     *
+     * @param file json file
+     * @return the game, null if the file is empty
+     * @throws IOException         if the file can not be read
+     * @throws JsonSyntaxException if the content is no valid game
+     */
+    protected static GameFromAndToJSON read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             Reader reader = Channels.newReader(channel, StandardCharsets.UTF_8)) {
+            return GSON.fromJson(reader, GameFromAndToJSON.class);
+        }
+    }
+
+    /**
+     * writes a game to a file
+     *
+     * @param game the game
+     * @param file json file, replaced if it exists
+     * @throws IOException if the file can not be written
+     */
+    protected static void write(GameFromAndToJSON game, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+            write(game, writer);
+        }
+    }
+
+    /**
+     * writes a game
+     *
+     * @param game   the game
+     * @param writer target of the json content, not closed
+     * @throws IOException if writing fails
+     */
+    protected static void write(GameFromAndToJSON game, Writer writer) throws IOException {
+        JsonWriter out = GSON.newJsonWriter(writer);
+        GSON.toJson(game, GameFromAndToJSON.class, out);
+        out.flush();
+    }
+
+    /**
+     * reads an int like Gson does for int fields
+     *
+     * @param in           reader positioned at the value
+     * @param defaultValue value if the json value is null
+     * @return the value
+     * @throws IOException if reading fails
+     */
+    private static int readInt(JsonReader in, int defaultValue) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return defaultValue;
+        }
+        try {
+            return in.nextInt();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * reads a boolean like Gson does for boolean fields, strings are parsed
+     *
+     * @param in reader positioned at the value
+     * @return the value, false if the json value is null
+     * @throws IOException if reading fails
+     */
+    private static boolean readBoolean(JsonReader in) throws IOException {
+        return switch (in.peek()) {
+            case NULL -> {
+                in.nextNull();
+                yield false;
+            }
+            case STRING -> Boolean.parseBoolean(in.nextString());
+            default -> in.nextBoolean();
+        };
+    }
+
+    /**
+     * reads a string like Gson does for string fields
+     *
+     * @param in reader positioned at the value
+     * @return the value, booleans and numbers are taken as text
+     * @throws IOException if reading fails
+     */
+    private static String readString(JsonReader in) throws IOException {
+        return switch (in.peek()) {
+            case NULL -> {
+                in.nextNull();
+                yield null;
+            }
+            case BOOLEAN -> Boolean.toString(in.nextBoolean());
+            default -> in.nextString();
+        };
+    }
+
+    /**
+     * numbers of a json array
+     */
+    private static class IntArrayAdapter extends TypeAdapter<int[]> {
+
+        @Override
+        public void write(JsonWriter out, int[] values) throws IOException {
+            if (values == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            for (int value : values) {
+                out.value(value);
+            }
+            out.endArray();
+        }
+
+        @Override
+        public int[] read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            int[] values = new int[16];
+            int size = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (in.peek() == JsonToken.NULL) {
+                    throw new JsonSyntaxException("null in number array at " + in.getPath());
+                }
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                values[size++] = readInt(in, 0);
+            }
+            in.endArray();
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * surfaces of the map as array of columns
+     */
+    private static class TrackAdapter extends TypeAdapter<int[][]> {
+
+        @Override
+        public void write(JsonWriter out, int[][] track) throws IOException {
+            if (track == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            for (int[] column : track) {
+                INT_ARRAY.write(out, column);
+            }
+            out.endArray();
+        }
+
+        @Override
+        public int[][] read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            int[][] track = new int[16][];
+            int size = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (size == track.length) {
+                    track = Arrays.copyOf(track, size * 2);
+                }
+                track[size++] = INT_ARRAY.read(in);
+            }
+            in.endArray();
+            return Arrays.copyOf(track, size);
+        }
+    }
+
+    /**
+     * one player, unknown names are skipped
+     */
+    private static class PlayerAdapter extends TypeAdapter<GameFromAndToJSON.PlayerData> {
+
+        @Override
+        public void write(JsonWriter out, GameFromAndToJSON.PlayerData player) throws IOException {
+            if (player == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("active").value(player.active);
+            out.name("ai").value(player.ai);
+            if (player.name != null) {
+                out.name("name").value(player.name);
+            }
+            if (player.current != null) {
+                INT_ARRAY.write(out.name("current"), player.current);
+            }
+            if (player.last != null) {
+                INT_ARRAY.write(out.name("last"), player.last);
+            }
+            out.name("lap").value(player.lap);
+            out.endObject();
+        }
+
+        @Override
+        public GameFromAndToJSON.PlayerData read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            boolean active = false;
+            boolean ai = false;
+            String name = null;
+            int[] current = null;
+            int[] last = null;
+            byte lap = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "active" -> active = readBoolean(in);
+                    case "ai" -> ai = readBoolean(in);
+                    case "name" -> name = readString(in);
+                    case "current" -> current = INT_ARRAY.read(in);
+                    case "last" -> last = INT_ARRAY.read(in);
+                    case "lap" -> lap = readLap(in, lap);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new GameFromAndToJSON.PlayerData(active, ai, name, current, last, lap);
+        }
+
+        /**
+         * @param in         reader positioned at the lap
+         * @param currentLap lap read so far, kept if the json value is null
+         * @return the lap
+         * @throws IOException if reading fails
+         */
+        private static byte readLap(JsonReader in, byte currentLap) throws IOException {
+            int lap = readInt(in, currentLap);
+            // the same range Gson accepts for bytes
+            if (lap > 255 || lap < Byte.MIN_VALUE) {
+                throw new JsonSyntaxException("lap " + lap + " does not fit into a byte at " + in.getPath());
+            }
+            return (byte) lap;
+        }
+    }
+
+    /**
+     * the moves of one player, unknown names are skipped
+     */
+    private static class ReplayAdapter extends TypeAdapter<GameFromAndToJSON.ReplayEntry> {
+
+        @Override
+        public void write(JsonWriter out, GameFromAndToJSON.ReplayEntry entry) throws IOException {
+            if (entry == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            if (entry.start != null) {
+                INT_ARRAY.write(out.name("start"), entry.start);
+            }
+            out.name("moves").value(entry.moves);
+            if (entry.data != null) {
+                out.name("data").value(entry.data);
+            }
+            out.endObject();
+        }
+
+        @Override
+        public GameFromAndToJSON.ReplayEntry read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            int[] start = null;
+            int moves = 0;
+            String data = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "start" -> start = INT_ARRAY.read(in);
+                    case "moves" -> moves = readInt(in, moves);
+                    case "data" -> data = readString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new GameFromAndToJSON.ReplayEntry(start, moves, data);
+        }
+    }
+
+    /**
+     * the whole game, unknown names are skipped
+     */
+    private static class GameAdapter extends TypeAdapter<GameFromAndToJSON> {
+
+        @Override
+        public void write(JsonWriter out, GameFromAndToJSON game) throws IOException {
+            if (game == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            if (game.getTrack() != null) {
+                TRACK.write(out.name("track"), game.getTrack());
+            }
+            out.name("direction").value(game.getDirection());
+            out.name("currentPlayer").value(game.getCurrentPlayer());
+            GameFromAndToJSON.PlayerData[] players = game.getPlayerData();
+            if (players != null) {
+                out.name("player").beginArray();
+                for (GameFromAndToJSON.PlayerData player : players) {
+                    PLAYER.write(out, player);
+                }
+                out.endArray();
+            }
+            GameFromAndToJSON.ReplayEntry[] replay = game.getReplayEntries();
+            if (replay != null) {
+                out.name("replay").beginArray();
+                for (GameFromAndToJSON.ReplayEntry entry : replay) {
+                    REPLAY.write(out, entry);
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+
+        @Override
+        public GameFromAndToJSON read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            int[][] track = null;
+            int direction = 0;
+            int currentPlayer = 0;
+            GameFromAndToJSON.PlayerData[] players = null;
+            GameFromAndToJSON.ReplayEntry[] replay = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "track" -> track = TRACK.read(in);
+                    case "direction" -> direction = readInt(in, direction);
+                    case "currentPlayer" -> currentPlayer = readInt(in, currentPlayer);
+                    case "player" -> players = readArray(in, PLAYER, new GameFromAndToJSON.PlayerData[0]);
+                    case "replay" -> replay = readArray(in, REPLAY, new GameFromAndToJSON.ReplayEntry[0]);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new GameFromAndToJSON(track, direction, currentPlayer, players, replay);
+        }
+
+        /**
+         * @param in      reader positioned at the array
+         * @param adapter adapter of the elements
+         * @param empty   empty array of the element type
+         * @return the elements, null if the json value is null
+         * @throws IOException if reading fails
+         */
+        private static <T> T[] readArray(JsonReader in, TypeAdapter<T> adapter, T[] empty) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            T[] elements = Arrays.copyOf(empty, Logic.MAX_PLAYER_NUMBER);
+            int size = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (size == elements.length) {
+                    elements = Arrays.copyOf(elements, size * 2);
+                }
+                elements[size++] = adapter.read(in);
+            }
+            in.endArray();
+            return Arrays.copyOf(elements, size);
+        }
+    }
+}
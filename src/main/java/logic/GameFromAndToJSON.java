@@ -1,5 +1,7 @@
 package logic;
 
+import java.util.Base64;
+
 /**
  * saves game data to write to json or that is read from json
  */
@@ -10,13 +12,57 @@ public class GameFromAndToJSON {
     private final int direction;
     private final int currentPlayer;
 
-    private final Player[] player;
+    private final PlayerData[] player;
+
+    private final ReplayEntry[] replay;
 
     public GameFromAndToJSON(int[][] board, int dir, int currentPlayer, Player[] players) {
+        this(board, dir, currentPlayer, players, null);
+    }
+
+    /**
+     * creates the game data of a game including the moves made so far
+     *
+     * @param board         track, indexed by x first
+     * @param dir           direction, 0 up, 1 right, 2 down, 3 left
+     * @param currentPlayer current player
+     * @param players       players
+     * @param replayData    positions of the players during the race, null if there are none
+     */
+    public GameFromAndToJSON(int[][] board, int dir, int currentPlayer, Player[] players, ReplayData replayData) {
+        this.track = board;
+        this.direction = dir;
+        this.currentPlayer = currentPlayer;
+        this.player = new PlayerData[players.length];
+        for (int i = 0; i < players.length; i++) {
+            player[i] = new PlayerData(players[i]);
+        }
+        if (replayData == null) {
+            this.replay = null;
+        } else {
+            this.replay = new ReplayEntry[replayData.size()];
+            for (int i = 0; i < replay.length; i++) {
+                replay[i] = new ReplayEntry(replayData.get(i));
+            }
+        }
+    }
+
+    /**
+     * creates the game data read by the codec
+     *
+     * @param board         track, indexed by x first
+     * @param dir           direction, 0 up, 1 right, 2 down, 3 left
+     * @param currentPlayer current player
+     * @param player        players as written to the file, may be null
+     * @param replay        moves of the players as written to the file, may be null
+     */
+    protected GameFromAndToJSON(int[][] board, int dir, int currentPlayer, PlayerData[] player,
+                                ReplayEntry[] replay) {
         this.track = board;
         this.direction = dir;
         this.currentPlayer = currentPlayer;
-        this.player = players;
+        this.player = player;
+        this.replay = replay;
     }
 
     //Getters and Setters
@@ -24,8 +70,32 @@ public class GameFromAndToJSON {
         return this.track;
     }
 
+    /**
+     * creates the players saved in the file, all of them share one state
+     *
+     * @return the players, null if there are none or one of them is incomplete
+     */
     protected Player[] getPlayers() {
-        return this.player;
+        if (this.player == null) {
+            return null;
+        }
+        PlayerState state = new PlayerState(this.player.length);
+        Player[] players = new Player[this.player.length];
+        for (int i = 0; i < players.length; i++) {
+            PlayerData data = this.player[i];
+            if (data == null || data.current == null || data.current.length != 2
+                    || data.last == null || data.last.length != 2) {
+                return null;
+            }
+            state.setActive(i, data.active);
+            state.setAI(i, data.ai);
+            state.setName(i, data.name == null ? "" : data.name);
+            state.setPosition(i, data.current[0], data.current[1]);
+            state.setLastPosition(i, data.last[0], data.last[1]);
+            state.setLap(i, data.lap);
+            players[i] = new Player(state, i);
+        }
+        return players;
     }
 
     protected int getDirection() {
@@ -35,4 +105,106 @@ public class GameFromAndToJSON {
     protected int getCurrentPlayer() {
         return this.currentPlayer;
     }
+
+    protected PlayerData[] getPlayerData() {
+        return this.player;
+    }
+
+    protected ReplayEntry[] getReplayEntries() {
+        return this.replay;
+    }
+
+    /**
+     * decodes the moves saved in the file
+     *
+     * @return the moves, null if none were saved or one of them is incomplete
+     */
+    protected ReplayData getReplay() {
+        if (this.replay == null) {
+            return null;
+        }
+        ReplayData replayData = new ReplayData(this.replay.length);
+        for (int i = 0; i < this.replay.length; i++) {
+            ReplayEntry entry = this.replay[i];
+            if (entry == null || !replayData.set(i, entry.decode())) {
+                return null;
+            }
+        }
+        return replayData;
+    }
+
+    /**
+     * player as written to the file
+     */
+    protected static class PlayerData {
+
+        protected final boolean active;
+        protected final boolean ai;
+
+        protected final String name;
+
+        protected final int[] current, last;
+
+        protected final byte lap;
+
+        protected PlayerData(boolean active, boolean ai, String name, int[] current, int[] last, byte lap) {
+            this.active = active;
+            this.ai = ai;
+            this.name = name;
+            this.current = current;
+            this.last = last;
+            this.lap = lap;
+        }
+
+        private PlayerData(Player p) {
+            this.active = p.isActive();
+            this.ai = p.isAI();
+            this.name = p.getName();
+            this.current = new int[]{p.getCurrentPos().getPosX(), p.getCurrentPos().getPosY()};
+            this.last = new int[]{p.getLastPos().getPosX(), p.getLastPos().getPosY()};
+            this.lap = p.getLap();
+        }
+    }
+
+    /**
+     * positions of a player during the race as written to the file: the first position and the encoded
+     * changes of speed of all following moves (see ReplayData.Moves.encode)
+     */
+    protected static class ReplayEntry {
+
+        protected final int[] start;
+
+        protected final int moves;
+
+        protected final String data;
+
+        protected ReplayEntry(int[] start, int moves, String data) {
+            this.start = start;
+            this.moves = moves;
+            this.data = data;
+        }
+
+        private ReplayEntry(ReplayData.Moves positions) {
+            this.moves = positions.size();
+            this.start = moves == 0 ? null : new int[]{positions.getX(0), positions.getY(0)};
+            this.data = Base64.getEncoder().encodeToString(positions.encode());
+        }
+
+        /**
+         * @return the positions, null if the entry is incomplete
+         */
+        private ReplayData.Moves decode() {
+            if (moves < 0 || data == null || (moves > 0 && (start == null || start.length != 2))) {
+                return null;
+            }
+            byte[] bytes;
+            try {
+                bytes = Base64.getDecoder().decode(data);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            return moves == 0 ? ReplayData.Moves.decode(0, 0, 0, bytes)
+                    : ReplayData.Moves.decode(start[0], start[1], moves, bytes);
+        }
+    }
 }
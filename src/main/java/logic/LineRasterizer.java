@@ -0,0 +1,183 @@
+package logic;
+
+/**
+ * calculates the fields a player visits between two positions with integer arithmetic,
+ * visited fields are packed into a single int (see pack) so no objects are created per call.
+ * The offset on the short axis after i steps on the long axis is Math.round(d / l * i) = floor((2 * d * i + l) / (2 * l))
+ * with d the signed distance on the short and l the absolute distance on the long axis. The remainder of that
+ * division is kept while walking the route, only if it is zero the field lies exactly halfway and is rounded with
+ * doubles like Logic.calcRoute did, because there the result depends on how the slope was rounded.
+ */
+public final class LineRasterizer {
+
+    /**
+     * receives the fields of a route one after another
+     */
+    public interface CellVisitor {
+
+        /**
+         * @param x x coordinate of the visited field
+         * @param y y coordinate of the visited field
+         * @return false to stop the rasterization
+         */
+        boolean visit(int x, int y);
+    }
+
+    private LineRasterizer() {
+    }
+
+    /**
+     * packs a coordinate pair into a single int. Packed fields can be added to move a field by a packed offset.
+     *
+     * @param x x coordinate, has to fit into 16 bits
+     * @param y y coordinate, has to fit into 16 bits
+     * @return packed field
+     */
+    public static int pack(int x, int y) {
+        return (x << 16) + y;
+    }
+
+    /**
+     * @param packed packed field
+     * @return x coordinate of the field
+     */
+    public static int unpackX(int packed) {
+        return (packed - (short) packed) >> 16;
+    }
+
+    /**
+     * @param packed packed field
+     * @return y coordinate of the field
+     */
+    public static int unpackY(int packed) {
+        return (short) packed;
+    }
+
+    /**
+     * number of fields on the route between two positions
+     *
+     * @param startX  x of start
+     * @param startY  y of start
+     * @param targetX x of target
+     * @param targetY y of target
+     * @return length of the route including start and target
+     */
+    public static int routeLength(int startX, int startY, int targetX, int targetY) {
+        return Math.max(Math.abs(targetX - startX), Math.abs(targetY - startY)) + 1;
+    }
+
+    /**
+     * writes the packed fields of the route into the given buffer, the buffer has to be at least routeLength long
+     *
+     * @param startX  x of start
+     * @param startY  y of start
+     * @param targetX x of target
+     * @param targetY y of target
+     * @param buffer  buffer the fields are written into
+     * @return number of fields written
+     */
+    public static int rasterize(int startX, int startY, int targetX, int targetY, int[] buffer) {
+        BufferWriter writer = new BufferWriter(buffer);
+        visit(startX, startY, targetX, targetY, writer);
+        return writer.count;
+    }
+
+    /**
+     * writes the visited fields packed into a buffer
+     */
+    private static final class BufferWriter implements CellVisitor {
+
+        private final int[] buffer;
+
+        private int count;
+
+        private BufferWriter(int[] buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public boolean visit(int x, int y) {
+            buffer[count++] = pack(x, y);
+            return true;
+        }
+    }
+
+    /**
+     * hands the fields of the route to the visitor until the route ends or the visitor stops it
+     *
+     * @param startX  x of start
+     * @param startY  y of start
+     * @param targetX x of target
+     * @param targetY y of target
+     * @param visitor receives every field
+     * @return true if the whole route was visited
+     */
+    public static boolean visit(int startX, int startY, int targetX, int targetY, CellVisitor visitor) {
+        int dx = targetX - startX;
+        int dy = targetY - startY;
+        int dxAbs = Math.abs(dx);
+        int dyAbs = Math.abs(dy);
+        if (dxAbs >= dyAbs) {
+            int signX = dx > 0 ? 1 : -1;
+            int y = 0;
+            int rest = dxAbs;
+            for (int i = 0; i <= dxAbs; i++) {
+                int offsetY = rest == 0 ? halfwayY(dx, dy, i * signX) : y;
+                if (!visitor.visit(startX + i * signX, startY + offsetY)) {
+                    return false;
+                }
+                rest += 2 * dy;
+                if (rest >= 2 * dxAbs) {
+                    rest -= 2 * dxAbs;
+                    y++;
+                } else if (rest < 0) {
+                    rest += 2 * dxAbs;
+                    y--;
+                }
+            }
+        } else {
+            int signY = dy > 0 ? 1 : -1;
+            int x = 0;
+            int rest = dyAbs;
+            for (int i = 0; i <= dyAbs; i++) {
+                int offsetX = rest == 0 ? halfwayX(dx, dy, i * signY) : x;
+                if (!visitor.visit(startX + offsetX, startY + i * signY)) {
+                    return false;
+                }
+                rest += 2 * dx;
+                if (rest >= 2 * dyAbs) {
+                    rest -= 2 * dyAbs;
+                    x++;
+                } else if (rest < 0) {
+                    rest += 2 * dyAbs;
+                    x--;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * y offset of a field exactly halfway between two fields on a route that is flatter than 45 degrees
+     *
+     * @param dx     distance to travel in x direction
+     * @param dy     distance to travel in y direction
+     * @param offset x offset from start
+     * @return y offset from start as calculated by Logic.calcRoute
+     */
+    private static int halfwayY(int dx, int dy, int offset) {
+        return (int) Math.round((double) dy / dx * offset);
+    }
+
+    /**
+     * x offset of a field exactly halfway between two fields on a route that is steeper than 45 degrees
+     *
+     * @param dx     distance to travel in x direction
+     * @param dy     distance to travel in y direction
+     * @param offset y offset from start
+     * @return x offset from start as calculated by Logic.calcRoute
+     */
+    private static int halfwayX(int dx, int dy, int offset) {
+        return (int) Math.round((1 / ((double) dy / dx)) * offset);
+    }
+}
@@ -1,9 +1,10 @@
 package logic;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Objects;
 
@@ -14,18 +15,53 @@ public class Logic {
 
     private Board board;
 
+    //shared map the game runs on, null if the game has its own board
+    private Track track;
+
     private Player[] players;
 
-    private final GUIConnector guiCon;
+    //values of all players, the Player objects in players are handles to it
+    private PlayerState playerState;
+
+    //number of players a game has, saved games have to contain exactly this many
+    private int playerCount = MAX_PLAYER_NUMBER;
+
+    private GUIConnector guiCon;
 
     protected Position[][] possiblePositions;
 
-    private int[][] distanceValues;
+    private DistanceField distanceValues;
+
+    private AIPlanner aiPlanner;
+
+    //which player stands where, see occupancy()
+    private OccupancyGrid occupancy;
+
+    //route buffer with packed fields, see LineRasterizer
+    private int[] route = new int[16];
+
+    //planned moves of each AI player and the state the player is expected to be in before the next one
+    private int[][] aiPlans;
+    private int[] aiPlanSteps;
+    private int[] aiExpectedPos, aiExpectedVX, aiExpectedVY;
+
+    //number of moves of each AI player that ended in a crash
+    private int[] crashCounts;
 
     private int movesUsed;
 
+    //true while a game is loaded whose moves were read from the file
+    private boolean replayLoaded;
+
     //needs to be protected to test start cross
-    protected ArrayList<ArrayList<Position>> replayData;
+    protected ReplayData replayData;
+
+    private ReplayIndex replayIndex;
+
+    //distance values repaired on every change in the editor, null while the ai line preview is off
+    private DynamicDistanceField editorDistanceValues;
+
+    private final TurnScheduler turns = new TurnScheduler();
 
     private StartCrossDirection direction;
 
@@ -57,12 +93,18 @@ public class Logic {
     public static final String GreenGravel_Color = "#BDCEB4";
 
 
+    //marks that no plan could be found for an AI player, it then falls back to choosing moves one by one
+    private static final int[] NO_AI_PLAN = new int[0];
+
     //time in milliseconds it takes to finish animation
     public static final int HIGHEST_ANIM_SPEED = 50;
     public static final int MIDDLE_ANIM_SPEED = 100;
     public static final int LOWEST_ANIM_SPEED = 200;
     public static final int NO_ANIM_SPEED = 0;
 
+    //moves the AI players make without animation before the gui is updated
+    private static final int FAST_FORWARD_MOVES = 10000;
+
 
     /**
      * initializer for testing purposes
@@ -77,13 +119,58 @@ public class Logic {
         this.guiCon = guiCon;
         this.board = new Board(board, x, y);
         this.direction = direction;
-        this.players = players;
+        setPlayerArray(players);
         if (inRace) gameMode = GameMode.Race_Mode;
         else gameMode = GameMode.Preparation_Mode;
         initializeReplayData();
+        initializeAIPlans();
         guiCon.initializeGame(this.board, this.direction, inRace, players);
     }
 
+    /**
+     * initializer for a game on an existing board, used by the headless simulation
+     *
+     * @param guiCon    instance of the gui connector
+     * @param board     board the race takes place on
+     * @param direction direction the starting line has to be crossed
+     * @param players   players taking part
+     */
+    protected Logic(GUIConnector guiCon, Board board, StartCrossDirection direction, Player[] players) {
+        this.guiCon = guiCon;
+        this.board = board;
+        this.direction = direction;
+        setPlayerArray(players);
+        this.gameMode = GameMode.Preparation_Mode;
+        initializeReplayData();
+        initializeAIPlans();
+    }
+
+    /**
+     * initializer for a game on a shared track. The game uses the board and the distance values of the track
+     * without copying them, so it only needs memory for its players and moves. Changing the board, e.g. in the
+     * editor, gives the game its own copy first.
+     *
+     * @param guiCon  instance of the gui connector
+     * @param track   track the race takes place on
+     * @param players players taking part, the game works on copies of them
+     */
+    public Logic(GUIConnector guiCon, Track track, Player[] players) {
+        this.guiCon = guiCon;
+        this.track = track;
+        this.board = track.getBoard();
+        this.direction = track.getDirection();
+        this.distanceValues = track.getDistanceValues();
+        Player[] own = new Player[players.length];
+        for (int i = 0; i < players.length; i++) {
+            own[i] = new Player(players[i].isActive(), players[i].isAI(), players[i].getName(),
+                    players[i].getLastPos(), players[i].getCurrentPos(), players[i].getLap());
+        }
+        setPlayerArray(own);
+        this.gameMode = GameMode.Preparation_Mode;
+        initializeReplayData();
+        initializeAIPlans();
+    }
+
     /**
      * Initializes logic.
      * Game always starts with default map.
@@ -91,9 +178,21 @@ public class Logic {
      * @param guiCon instance of the gui connector
      */
     public Logic(GUIConnector guiCon) {
+        this(guiCon, MAX_PLAYER_NUMBER);
+    }
+
+    /**
+     * Initializes logic for games with another number of players than the gui supports
+     *
+     * @param guiCon      instance of the gui connector
+     * @param playerCount number of players a game has
+     */
+    public Logic(GUIConnector guiCon, int playerCount) {
         this.guiCon = guiCon;
         this.board = new Board();
+        this.playerCount = playerCount;
         initializeReplayData();
+        initializeAIPlans();
     }
 
     //Getters and Setters
@@ -139,6 +238,19 @@ public class Logic {
         this.currAnimationSpeed = animSpeed;
     }
 
+    /**
+     * lets another gui connector show the game from now on, it is initialized with the current game
+     *
+     * @param guiCon instance of the gui connector
+     */
+    public void setGUIConnector(GUIConnector guiCon) {
+        this.guiCon = guiCon;
+        guiCon.initializeGame(board, direction, gameMode == GameMode.Race_Mode, players);
+        if (editorDistanceValues != null) {
+            showAILine(new Position[0], editorDistanceValues.getShortestLap().toArray(new Position[0]));
+        }
+    }
+
     /**
      * setter for gameMode
      *
@@ -175,12 +287,55 @@ public class Logic {
     }
 
     /**
-     * getter for board
+     * getter for board. Fields are changed with changeBoardCell, which gives a game on a shared track its own
+     * copy first
+     *
+     * @return read only view of the board
+     */
+    public BoardView getBoard() {
+        return this.board.view();
+    }
+
+    /**
+     * returns the board itself, a game on a shared track gets its own copy first
      *
      * @return the board
      */
-    public Board getBoard() {
-        return this.board;
+    protected Board getOwnBoard() {
+        return ownBoard();
+    }
+
+    /**
+     * @return the shared track the game runs on, null if the game has its own board
+     */
+    public Track getTrack() {
+        return track;
+    }
+
+    /**
+     * returns the board to change it. The board of a shared track is copied first and the game leaves the track
+     *
+     * @return board of this game only
+     */
+    private Board ownBoard() {
+        if (track != null) {
+            leaveTrack(board.copy());
+        }
+        return board;
+    }
+
+    /**
+     * replaces the board, the game no longer runs on a shared track
+     *
+     * @param board new board of this game only
+     */
+    private void leaveTrack(Board board) {
+        if (track != null) {
+            track = null;
+            distanceValues = null;
+            aiPlanner = null;
+        }
+        this.board = board;
     }
 
     /**
@@ -221,7 +376,18 @@ public class Logic {
      * @param p value to set to
      */
     public void setPlayers(Player[] p) {
+        setPlayerArray(p);
+    }
+
+    /**
+     * uses the given players for the game, their values are moved into a new player state
+     *
+     * @param p players
+     */
+    private void setPlayerArray(Player[] p) {
         this.players = p;
+        this.playerState = PlayerState.bind(p);
+        this.playerCount = p.length;
     }
 
     /**
@@ -242,14 +408,16 @@ public class Logic {
      */
     public void resetGame() {
         this.currentPlayer = 0;
-        for (int i = 0; i < MAX_PLAYER_NUMBER; i++) {
-            players[i].setLastPos(new Position(0, 0));
-            players[i].setCurrPos(new Position(0, 0));
-            players[i].setLap(0);
+        for (int i = 0; i < playerCount; i++) {
+            playerState.setLastPosition(i, 0, 0);
+            playerState.setPosition(i, 0, 0);
+            playerState.setLap(i, 0);
         }
+        occupancy = null;
         isGameWon = false;
         inReplay = false;
         initializeReplayData();
+        initializeAIPlans();
         movesUsed = 0;
     }
 
@@ -258,24 +426,40 @@ public class Logic {
      *
      * @return number of active players
      */
-    public byte howManyActivePlayers() {
-        byte active = 0;
-        for (int i = 0; i < players.length; i++) {
-            if (players[i].isActive()) {
-                active++;
-            }
-        }
-        return active;
+    public int howManyActivePlayers() {
+        return playerState.getActiveCount();
     }
 
     /**
-     * initializes replay array list
+     * initializes replay data
      */
     private void initializeReplayData() {
-        this.replayData = new ArrayList<>();
-        for (int i = 0; i < MAX_PLAYER_NUMBER; i++) {
-            replayData.add(new ArrayList<Position>());
+        this.replayData = new ReplayData(playerCount);
+    }
+
+    /**
+     * returns the grid of the player positions. It is created again if the board or the players were replaced,
+     * position changes have to be passed to it.
+     *
+     * @return occupancy grid of the current board and players
+     */
+    private OccupancyGrid occupancy() {
+        if (occupancy == null || !occupancy.fits(board, players)) {
+            occupancy = new OccupancyGrid(board.getWidth(), board.getHeight(), players);
         }
+        return occupancy;
+    }
+
+    /**
+     * forgets all planned AI moves
+     */
+    private void initializeAIPlans() {
+        this.aiPlans = new int[playerCount][];
+        this.aiPlanSteps = new int[playerCount];
+        this.aiExpectedPos = new int[playerCount];
+        this.aiExpectedVX = new int[playerCount];
+        this.aiExpectedVY = new int[playerCount];
+        this.crashCounts = new int[playerCount];
     }
 
     /**
@@ -283,16 +467,8 @@ public class Logic {
      *
      * @return first player found, -1 if there is none
      */
-    public byte findFirstActivePlayer() {
-        byte i = 0;
-        while (i < MAX_PLAYER_NUMBER) {
-            if (players[i].isActive()) {
-                return i;
-            } else {
-                i++;
-            }
-        }
-        return -1;
+    public int findFirstActivePlayer() {
+        return playerState.getFirstActive();
     }
 
     /**
@@ -300,16 +476,8 @@ public class Logic {
      *
      * @return last player found, -1 if there is none
      */
-    private byte findLastActivePlayer() {
-        byte i = MAX_PLAYER_NUMBER - 1;
-        while (i >= 0) {
-            if (players[i].isActive()) {
-                return i;
-            } else {
-                i--;
-            }
-        }
-        return -1;
+    private int findLastActivePlayer() {
+        return playerState.getLastActive();
     }
 
     /**
@@ -337,7 +505,8 @@ public class Logic {
     public void showPossibleFieldsToGUI(boolean oldColor) {
         for (int i = 0; i < possiblePositions.length; i++) {
             for (int j = 0; j < possiblePositions[0].length; j++) {
-                if (board.isValidPositionInGameMode(players, possiblePositions[i][j], this.currentPlayer, gameMode)) {
+                if (board.isValidPositionInGameMode(occupancy(), possiblePositions[i][j], this.currentPlayer,
+                        gameMode)) {
                     if (!oldColor) {
                         guiCon.showPossibleField(possiblePositions[i][j],
                                 board.getSurfaceAt(possiblePositions[i][j]), direction);
@@ -381,17 +550,17 @@ public class Logic {
      */
     public void showWallCrashPoint(Position target, boolean exit) {
         if (isInOptions(target) && !inAnimation) {
-            Position[] route = calcRoute(players[currentPlayer].getCurrentPos(), target);
-            for (int i = 0; i < route.length; i++) {
-                if (board.getSurfaceAt(route[i]) == Surfaces.GRAVEL) {
-                    int posX = route[i].getPosX();
-                    int posY = route[i].getPosY();
+            int length = rasterizeRoute(players[currentPlayer].getCurrentPos(), target);
+            for (int i = 0; i < length; i++) {
+                int posX = LineRasterizer.unpackX(route[i]);
+                int posY = LineRasterizer.unpackY(route[i]);
+                if (board.surfaceAt(posX, posY) == Surfaces.GRAVEL) {
                     if (!exit) {
                         guiCon.changeGridPaneCell(posX, posY, Surfaces.RED_GRAVEL, direction, false);
                     } else {
-                        guiCon.showPossibleField(route[i], Surfaces.GRAVEL, direction);
+                        guiCon.showPossibleField(new Position(posX, posY), Surfaces.GRAVEL, direction);
                         if (!isInOptions(new Position(posX, posY))) {
-                            switch (board.getSurfaceAt(new Position(posX, posY))) {
+                            switch (board.surfaceAt(posX, posY)) {
                                 case GRAVEL -> guiCon.changeGridPaneCell(posX, posY, Surfaces.GRAVEL,
                                         direction, false);
                                 case ROAD -> guiCon.changeGridPaneCell(posX, posY, Surfaces.ROAD,
@@ -401,7 +570,7 @@ public class Logic {
                             }
                         }
                     }
-                    i = route.length;
+                    i = length;
                 }
             }
         }
@@ -414,16 +583,7 @@ public class Logic {
      * @return number of next player or -1 if there is none
      */
     public int getNextActivePlayer(int currPl) {
-        if (findLastActivePlayer() == currPl) {
-            return findFirstActivePlayer();
-        } else {
-            for (int i = (currPl + 1); i < MAX_PLAYER_NUMBER; i++) {
-                if (players[i].isActive()) {
-                    return i;
-                }
-            }
-        }
-        return -1;
+        return playerState.getNextActive(currPl);
     }
 
     /**
@@ -434,46 +594,31 @@ public class Logic {
      * @return Position array with all fields the player visits on the way
      */
     protected Position[] calcRoute(Position start, Position target) {
-        ArrayList<Position> route = new ArrayList<>();
-
-        int dx = target.getPosX() - start.getPosX();
-        int dy = target.getPosY() - start.getPosY();
-        int dxAbs = Math.abs(dx);
-        int dyAbs = Math.abs(dy);
-        int signX;
-        int signY;
-
-        if (dx > 0) {
-            signX = 1;
-        } else {
-            signX = -1;
-        }
-        if (dy > 0) {
-            signY = 1;
-        } else {
-            signY = -1;
-        }
-
-        double m = (double) dy / dx;
-
-        if (dxAbs >= dyAbs) {
-            for (int x = start.getPosX(); x != target.getPosX() + signX; x = x + signX) {
-                int y = start.getPosY() + (int) Math.round(m * (x - start.getPosX()));
-                route.add(new Position(x, y));
-            }
-        } else {
-            for (int y = start.getPosY(); y != target.getPosY() + signY; y = y + signY) {
-                int x = start.getPosX() + (int) Math.round((1 / m) * (y - start.getPosY()));
-                route.add(new Position(x, y));
-            }
+        int length = rasterizeRoute(start, target);
+        Position[] arrayRoute = new Position[length];
+        for (int i = 0; i < length; i++) {
+            arrayRoute[i] = new Position(LineRasterizer.unpackX(route[i]), LineRasterizer.unpackY(route[i]));
         }
+        return arrayRoute;
+    }
 
-        Position[] arrayRoute = new Position[route.size()];
-        for (int i = 0; i < route.size(); i++) {
-            arrayRoute[i] = route.get(i);
+    /**
+     * writes the fields of the route into the route buffer, growing it if needed
+     *
+     * @param start  start position
+     * @param target end position
+     * @return number of fields on the route
+     */
+    private int rasterizeRoute(Position start, Position target) {
+        int startX = start.getPosX();
+        int startY = start.getPosY();
+        int targetX = target.getPosX();
+        int targetY = target.getPosY();
+        int length = LineRasterizer.routeLength(startX, startY, targetX, targetY);
+        if (route.length < length) {
+            route = new int[length * 2];
         }
-
-        return arrayRoute;
+        return RouteTable.route(startX, startY, targetX, targetY, route);
     }
 
     /**
@@ -489,15 +634,15 @@ public class Logic {
         boolean crashFound = false;
         for (int i = 0; i < route.length; i++) {
             if (board.getSurfaceAt(route[i]) == Surfaces.GRAVEL
-                    || (isAI && !board.isValidPositionInGameMode(players, route[i], currentPlayer, gameMode))) {
-                while (!board.isValidPositionInGameMode(players, route[i - 1], currentPlayer, gameMode)) {
+                    || (isAI && !board.isValidPositionInGameMode(occupancy(), route[i], currentPlayer, gameMode))) {
+                while (!board.isValidPositionInGameMode(occupancy(), route[i - 1], currentPlayer, gameMode)) {
                     i--;
                 }
                 lastPointOnRoute = route[i - 1];
                 i = route.length;
                 crashFound = true;
             } else if ((route[i].getPosX() == 0 || route[i].getPosY() == 0) && route.length > 2) {
-                while (!board.isValidPositionInGameMode(players, route[i - 1], currentPlayer, gameMode)) {
+                while (!board.isValidPositionInGameMode(occupancy(), route[i - 1], currentPlayer, gameMode)) {
                     i--;
                 }
                 lastPointOnRoute = route[i];
@@ -509,6 +654,52 @@ public class Logic {
     }
 
 
+    /**
+     * same as isRouteValid for the route currently stored in the route buffer
+     *
+     * @param length number of fields in the route buffer
+     * @param newPos last position on route
+     * @param isAI   if route is calculated for AI
+     * @return an instance of RouteResult containing if there is a crash(for GUI) and the final point on the route
+     */
+    private RouteResult isRouteValid(int length, Position newPos, boolean isAI) {
+        for (int i = 0; i < length; i++) {
+            int posX = LineRasterizer.unpackX(route[i]);
+            int posY = LineRasterizer.unpackY(route[i]);
+            if (board.surfaceAt(posX, posY) == Surfaces.GRAVEL
+                    || (isAI && !board.isValidPositionInGameMode(occupancy(), posX, posY, currentPlayer, gameMode))) {
+                while (!isValidRouteField(i - 1)) {
+                    i--;
+                }
+                return new RouteResult(true, routeField(i - 1));
+            } else if ((posX == 0 || posY == 0) && length > 2) {
+                while (!isValidRouteField(i - 1)) {
+                    i--;
+                }
+                return new RouteResult(true, routeField(i));
+            }
+        }
+        return new RouteResult(false, newPos);
+    }
+
+    /**
+     * @param i index in the route buffer
+     * @return true if the current player may stand on the field
+     */
+    private boolean isValidRouteField(int i) {
+        return board.isValidPositionInGameMode(occupancy(), LineRasterizer.unpackX(route[i]),
+                LineRasterizer.unpackY(route[i]), currentPlayer, gameMode);
+    }
+
+    /**
+     * @param i index in the route buffer
+     * @return the field as position
+     */
+    private Position routeField(int i) {
+        return new Position(LineRasterizer.unpackX(route[i]), LineRasterizer.unpackY(route[i]));
+    }
+
+
     //PLAYER
 
     /**
@@ -526,13 +717,14 @@ public class Logic {
                 }
                 updateAIPosition();
                 //checks if chosen position is valid
-            } else if (board.getValues()[newPos.getPosX()][newPos.getPosY()] != Surfaces.ROAD
-                    || !board.isValidPositionInGameMode(players, newPos, currentPlayer, gameMode)) {
+            } else if (board.getSurfaceAt(newPos) != Surfaces.ROAD
+                    || !board.isValidPositionInGameMode(occupancy(), newPos, currentPlayer, gameMode)) {
                 errorCode = ErrorCodes.ChosenPositionInvalid;
                 guiCon.outputErrorMessage(errorCode, "");
             } else {
                 players[currentPlayer].setCurrPos(newPos);
                 players[currentPlayer].setLastPos(newPos);
+                occupancy().setPosition(currentPlayer, newPos.getPosX(), newPos.getPosY());
                 guiCon.updatePlayerPosGUI(this, players, false, new Position(0, 0),
                         newPos, currentPlayer, false);
             }
@@ -547,9 +739,9 @@ public class Logic {
      */
     private void handlePlayerInRace(Position newPos, boolean noFields) {
         if (!players[currentPlayer].isAI() && (isInOptions(newPos)
-                && board.isValidPositionInGameMode(players, newPos, currentPlayer, gameMode)) || noFields) {
-            Position[] route = calcRoute(players[currentPlayer].getCurrentPos(), newPos);
-            RouteResult rr = isRouteValid(route, newPos, false);
+                && board.isValidPositionInGameMode(occupancy(), newPos, currentPlayer, gameMode)) || noFields) {
+            int length = rasterizeRoute(players[currentPlayer].getCurrentPos(), newPos);
+            RouteResult rr = isRouteValid(length, newPos, false);
             replayData.get(currentPlayer).add(rr.getLastPointOnRoute());
             handleStartCross(currentPlayer, rr.getLastPointOnRoute());
             if (currentPlayer == findLastActivePlayer()) {
@@ -573,18 +765,32 @@ public class Logic {
      * @param newPos new position player has chosen
      */
     public void prepareNextMove(Position oldPos, Position newPos, boolean startOfGame) {
+        if (isGameWon || !startOfGame) {
+            finishMove(oldPos, newPos);
+        }
+        startTurn();
+    }
+
+    /**
+     * starts the turn of the current player, unless the game is won. If a turn is running right now,
+     * the new one starts after it
+     */
+    public void startTurn() {
+        turns.schedule(this::runTurn);
+    }
+
+    /**
+     * lets the current player make its move, or shows the human player the possible fields
+     */
+    private void runTurn() {
         if (!isGameWon) {
-            if (!startOfGame) {
-                players[currentPlayer].setLastPos(oldPos);
-                players[currentPlayer].setCurrPos(newPos);
-                currentPlayer = getNextActivePlayer(currentPlayer);
-            }
             if (!players[currentPlayer].isAI()) {
                 calculatePossibleFields(players[currentPlayer]);
                 boolean allFieldsOutside = true;
                 for (int i = 0; i < possiblePositions.length; i++) {
                     for (int j = 0; j < possiblePositions[0].length; j++) {
-                        if (board.isValidPositionInGameMode(players, possiblePositions[i][j], currentPlayer, gameMode)) {
+                        if (board.isValidPositionInGameMode(occupancy(), possiblePositions[i][j], currentPlayer,
+                                gameMode)) {
                             allFieldsOutside = false;
                         }
                     }
@@ -598,9 +804,22 @@ public class Logic {
             } else {
                 updateAIPosition();
             }
-        } else {
-            players[currentPlayer].setLastPos(oldPos);
-            players[currentPlayer].setCurrPos(newPos);
+        }
+    }
+
+    /**
+     * writes a finished move into the player data and passes the turn to the next active player,
+     * without starting the next turn
+     *
+     * @param oldPos last position player had
+     * @param newPos new position of the player
+     */
+    protected void finishMove(Position oldPos, Position newPos) {
+        players[currentPlayer].setLastPos(oldPos);
+        players[currentPlayer].setCurrPos(newPos);
+        occupancy().setPosition(currentPlayer, newPos.getPosX(), newPos.getPosY());
+        if (!isGameWon) {
+            currentPlayer = getNextActivePlayer(currentPlayer);
         }
     }
 
@@ -626,129 +845,194 @@ public class Logic {
      */
     private void updateAIPosition() {
         if (gameMode == GameMode.Preparation_Mode) {
-            Position newAIPos = board.findFreePositionFromSL(players, direction, currentPlayer, gameMode);
-            players[currentPlayer].setCurrPos(newAIPos);
-            players[currentPlayer].setLastPos(newAIPos);
+            Position newAIPos = placeAI();
             guiCon.updatePlayerPosGUI(this, players, true,
                     new Position(0, 0), newAIPos, currentPlayer, false);
-        } else if (gameMode == GameMode.Race_Mode) {
-            RouteResult rr = calculateNextAIMove(players[currentPlayer].getCurrentPos());
-            replayData.get(currentPlayer).add(rr.getLastPointOnRoute());
-            handleStartCross(currentPlayer, rr.getLastPointOnRoute());
-            if (currentPlayer == findLastActivePlayer()) {
-                movesUsed++;
-                checkWon();
+        } else if (gameMode == GameMode.Race_Mode && currAnimationSpeed == NO_ANIM_SPEED) {
+            Position[] oldPositions = new Position[players.length];
+            for (int i = 0; i < players.length; i++) {
+                oldPositions[i] = players[i].getCurrentPos();
             }
+            playAITurns(movesUsed + FAST_FORWARD_MOVES);
+            guiCon.updatePlayerPositionsGUI(this, players, oldPositions);
+        } else if (gameMode == GameMode.Race_Mode) {
+            RouteResult rr = moveAI();
             guiCon.updatePlayerPosGUI(this, players, true, players[currentPlayer].getCurrentPos(),
                     rr.getLastPointOnRoute(), currentPlayer, rr.isCrashFound());
         }
     }
 
     /**
-     * calculates the next move for the AI
+     * plays the turns of the AI players one after the other without waiting for the gui, until a human player
+     * is next, the race is won or the move limit is reached
+     *
+     * @param maxMoves move count at which no further turn is started
+     */
+    protected void playAITurns(int maxMoves) {
+        while (!isGameWon && movesUsed < maxMoves && players[currentPlayer].isAI()) {
+            Position oldPos = players[currentPlayer].getCurrentPos();
+            RouteResult rr = moveAI();
+            if (rr.isCrashFound()) {
+                finishMove(rr.getLastPointOnRoute(), rr.getLastPointOnRoute());
+            } else {
+                finishMove(oldPos, rr.getLastPointOnRoute());
+            }
+        }
+    }
+
+    /**
+     * lets the current AI player choose its starting position in front of the starting line
+     *
+     * @return the chosen position
+     */
+    protected Position placeAI() {
+        Position newAIPos = board.findFreePositionFromSL(occupancy(), direction, currentPlayer, gameMode);
+        players[currentPlayer].setCurrPos(newAIPos);
+        players[currentPlayer].setLastPos(newAIPos);
+        occupancy().setPosition(currentPlayer, newAIPos.getPosX(), newAIPos.getPosY());
+        return newAIPos;
+    }
+
+    /**
+     * calculates the move of the current AI player and books it into replay data, laps and move count.
+     * The gui is not informed and the player position is not changed yet.
+     *
+     * @return RouteResult containing the final field of the calculated route and if there was a crash
+     */
+    protected RouteResult moveAI() {
+        RouteResult rr = calculateNextAIMove(players[currentPlayer].getCurrentPos());
+        if (rr.isCrashFound()) {
+            crashCounts[currentPlayer]++;
+        }
+        replayData.get(currentPlayer).add(rr.getLastPointOnRoute());
+        handleStartCross(currentPlayer, rr.getLastPointOnRoute());
+        if (currentPlayer == findLastActivePlayer()) {
+            movesUsed++;
+            checkWon();
+        }
+        return rr;
+    }
+
+    /**
+     * calculates the next move for the AI, the player is not moved
      *
      * @param start current position of the AI
      * @return RouteResult containing the final field of the calculated route and if there was a crash
      */
-    private RouteResult calculateNextAIMove(Position start) {
+    protected RouteResult calculateNextAIMove(Position start) {
         boolean lookForHighest = false;
         Position bestPossible = new Position(start.getPosX(), start.getPosY());
 
-        if (replayData.get(currentPlayer).size() <= 1) {
+        if (track == null && (replayData.get(currentPlayer).size() <= 1 || distanceValues == null)) {
             instantiateMapDistanceValues();
         }
+        Position planned = nextPlannedAIMove();
+        if (planned != null) {
+            return isRouteValid(rasterizeRoute(start, planned), planned, true);
+        }
         calculatePossibleFields(players[currentPlayer]);
 
         for (int i = 0; i < possiblePositions.length; i++) {
             for (int j = 0; j < possiblePositions[0].length; j++) {
                 final int posX = possiblePositions[i][j].getPosX();
                 final int posY = possiblePositions[i][j].getPosY();
-                Position[] route = calcRoute(start, possiblePositions[i][j]);
-                for (int k = 0; k < route.length; k++) {
+                int length = rasterizeRoute(start, possiblePositions[i][j]);
+                for (int k = 0; k < length - 1; k++) {
                     //start crossed
-                    if (!board.isOutOfBounds(route[k])
-                            && board.getValues()[route[k].getPosX()][route[k].getPosY()] == Surfaces.START
-                            && k < route.length - 1) {
+                    int routeX = LineRasterizer.unpackX(route[k]);
+                    int routeY = LineRasterizer.unpackY(route[k]);
+                    if (!board.isOutOfBounds(routeX, routeY) && board.surfaceAt(routeX, routeY) == Surfaces.START) {
                         lookForHighest = true;
                         bestPossible = start;
                     }
-                    if (!board.isOutOfBounds(possiblePositions[i][j])
-                            && board.getSurfaceAt(possiblePositions[i][j]) != Surfaces.GRAVEL) {
-                        if ((lookForHighest && distanceValues[posX][posY] >
-                                distanceValues[bestPossible.getPosX()][bestPossible.getPosY()])
-                                || (!lookForHighest && distanceValues[posX][posY] <
-                                distanceValues[bestPossible.getPosX()][bestPossible.getPosY()])) {
-                            bestPossible = new Position(posX, posY);
-                        }
+                }
+                if (!board.isOutOfBounds(posX, posY) && board.surfaceAt(posX, posY) != Surfaces.GRAVEL) {
+                    if ((lookForHighest && distanceValues.get(posX, posY) >
+                            distanceValues.get(bestPossible.getPosX(), bestPossible.getPosY()))
+                            || (!lookForHighest && distanceValues.get(posX, posY) <
+                            distanceValues.get(bestPossible.getPosX(), bestPossible.getPosY()))) {
+                        bestPossible = possiblePositions[i][j];
                     }
                 }
             }
         }
-        Position[] routeToBestPossible = calcRoute(start, bestPossible);
-        return isRouteValid(routeToBestPossible, routeToBestPossible[routeToBestPossible.length - 1],
-                true);
+        return isRouteValid(rasterizeRoute(start, bestPossible), bestPossible, true);
     }
 
     /**
-     * gives each field of the map a value how long it takes from it to the starting line
+     * returns the next move of the current AI player from its plan. The plan is made once and only made again
+     * if the player is not where the plan expects it to be, e.g. after a crash into another car.
+     *
+     * @return the next planned position, null if no plan could be found
      */
-    public void instantiateMapDistanceValues() {
-        distanceValues = new int[board.getLength()][board.getLength(0)];
-        int stepsFromStart = 0;
-        boolean[][] visited = new boolean[board.getLength()][board.getLength(0)];
-        ArrayList<Position> temp = new ArrayList<Position>();
-        ArrayList<Position> positionsToCheck = board.getCurrStartingLine();
-        for (int i = 0; i < positionsToCheck.size(); i++) {
-            final int posX = positionsToCheck.get(i).getPosX();
-            final int posY = positionsToCheck.get(i).getPosY();
-            visited[posX][posY] = true;
-            distanceValues[posX][posY] = stepsFromStart;
-        }
-        stepsFromStart++;
-
-        while (!positionsToCheck.isEmpty()) {
-            for (int i = 0; i < positionsToCheck.size(); i++) {
-                Position[] neighbours = board.getNeighbours(positionsToCheck.get(i));
-                for (int j = 0; j < neighbours.length; j++) {
-                    final int neighX = neighbours[j].getPosX();
-                    final int neighY = neighbours[j].getPosY();
-
-                    //traverses the board only in one direction
-                    if (!(stepsFromStart == 1 && j == TOP && board.getValues()[neighX][neighY] == Surfaces.ROAD
-                            && direction == StartCrossDirection.UP) &&
-                            !(stepsFromStart == 1 && j == LEFT && board.getValues()[neighX][neighY] == Surfaces.ROAD
-                                    && direction == StartCrossDirection.LEFT) &&
-                            !(stepsFromStart == 1 && j == DOWN && board.getValues()[neighX][neighY] == Surfaces.ROAD
-                                    && direction == StartCrossDirection.DOWN)
-                            && !(stepsFromStart == 1 && j == RIGHT && board.getValues()[neighX][neighY] == Surfaces.ROAD
-                            && direction == StartCrossDirection.RIGHT)) {
-                        if (!board.isOutOfBounds(neighbours[j]) && !visited[neighX][neighY]
-                                && board.getValues()[neighX][neighY] == Surfaces.ROAD) {
-                            visited[neighX][neighY] = true;
-                            distanceValues[neighX][neighY] = stepsFromStart;
-                            temp.add(neighbours[j]);
-                        }
-                    }
-                }
+    private Position nextPlannedAIMove() {
+        final int height = board.getLength(0);
+        final Position curr = players[currentPlayer].getCurrentPos();
+        final Position last = players[currentPlayer].getLastPos();
+        final int currX = curr.getPosX();
+        final int currY = curr.getPosY();
+        final int vx = currX - last.getPosX();
+        final int vy = currY - last.getPosY();
+
+        int[] plan = aiPlans[currentPlayer];
+        int step = aiPlanSteps[currentPlayer];
+        if (plan == NO_AI_PLAN) {
+            return null;
+        }
+        boolean onPlan = plan != null && step < plan.length && aiExpectedPos[currentPlayer] == currX * height + currY
+                && aiExpectedVX[currentPlayer] == vx && aiExpectedVY[currentPlayer] == vy;
+        if (!onPlan) {
+            if (aiPlanner == null) {
+                aiPlanner = new AIPlanner(board, direction, distanceValues);
             }
-            positionsToCheck = temp;
-            temp = new ArrayList<>();
-            stepsFromStart++;
+            plan = aiPlanner.plan(currX, currY, vx, vy, players[currentPlayer].getLap());
+            step = 0;
+            if (plan == null || plan.length == 0) {
+                aiPlans[currentPlayer] = NO_AI_PLAN;
+                return null;
+            }
+            aiPlans[currentPlayer] = plan;
         }
+        final int target = plan[step];
+        final int targetX = target / height;
+        final int targetY = target % height;
+        aiPlanSteps[currentPlayer] = step + 1;
+        aiExpectedPos[currentPlayer] = target;
+        aiExpectedVX[currentPlayer] = targetX - currX;
+        aiExpectedVY[currentPlayer] = targetY - currY;
+        return new Position(targetX, targetY);
+    }
+
+    /**
+     * gives each field of the map a value how long it takes from it to the starting line. The values are taken
+     * from the cache if the map was used before
+     */
+    public void instantiateMapDistanceValues() {
+        distanceValues = DistanceFieldCache.get().lookup(board, direction);
+        aiPlanner = null;
+    }
+
+    /**
+     * @param player number of the player
+     * @return number of moves of the AI player that ended in a crash
+     */
+    protected int getCrashCount(int player) {
+        return crashCounts[player];
     }
 
 
     /**
      * calculates from which side of the starting line the player came from
      *
-     * @param player number of player
+     * @param moves positions of the player
+     * @param index index of the position the player moved to
      * @return last position before starting line was entered
      */
-    private Position findPositionBeforeCross(int player) {
+    private Position findPositionBeforeCross(ReplayData.Moves moves, int index) {
         Position temp = new Position(0, 0);
-        for (int i = replayData.get(player).size() - 1; i > 0; i--) {
-            if (board.getSurfaceAt(replayData.get(player).get(i - 1)) == Surfaces.ROAD) {
-                temp = replayData.get(player).get(i - 1);
+        for (int i = index; i > 0; i--) {
+            if (board.getSurfaceAt(moves.get(i - 1)) == Surfaces.ROAD) {
+                temp = moves.get(i - 1);
                 i = 0;
             }
         }
@@ -762,50 +1046,63 @@ public class Logic {
      * @param target end of route player took
      */
     protected void handleStartCross(int player, Position target) {
-        Position[] route = calcRoute(players[player].getCurrentPos(), target);
-        for (int i = 0; i < route.length - 1; i++) {
-            if (board.getSurfaceAt(route[i]) == Surfaces.START) {
-                final int startY = route[i].getPosY();
-                final int startX = route[i].getPosX();
-                while (i < (route.length - 1)) {
+        ReplayData.Moves moves = replayData.get(player);
+        int change = startCrossLapChange(players[player].getCurrentPos(), target, moves, moves.size() - 1);
+        if (change > 0) {
+            players[player].addLap();
+        } else if (change < 0) {
+            players[player].removeLap();
+        }
+    }
+
+    /**
+     * checks if and in which direction the starting line is crossed by a move
+     *
+     * @param from   position before the move
+     * @param target end of route player took
+     * @param moves  positions of the player, the target included
+     * @param index  index of the target in the positions
+     * @return 1 if a lap is added, -1 if one is removed, 0 if the lap does not change
+     */
+    protected int startCrossLapChange(Position from, Position target, ReplayData.Moves moves, int index) {
+        int length = rasterizeRoute(from, target);
+        for (int i = 0; i < length - 1; i++) {
+            final int startY = LineRasterizer.unpackY(route[i]);
+            final int startX = LineRasterizer.unpackX(route[i]);
+            if (board.surfaceAt(startX, startY) == Surfaces.START) {
+                while (i < (length - 1)) {
                     i++;
-                    Position posBeforeCross = findPositionBeforeCross(player);
-                    if (board.getSurfaceAt(route[i]) == Surfaces.ROAD) {
-                        switch (direction) {
-                            case UP -> {
-                                if (posBeforeCross.getPosY() > startY && route[i].getPosY() < startY) {
-                                    players[player].addLap();
-                                } else if (posBeforeCross.getPosY() < startY) {
-                                    players[player].removeLap();
-                                }
-                            }
-                            case DOWN -> {
-                                if (posBeforeCross.getPosY() < startY && route[i].getPosY() > startY) {
-                                    players[player].addLap();
-                                } else if (posBeforeCross.getPosY() > startY) {
-                                    players[player].removeLap();
-                                }
-                            }
-                            case RIGHT -> {
-                                if (posBeforeCross.getPosX() < startX && route[i].getPosX() > startX) {
-                                    players[player].addLap();
-                                } else if (posBeforeCross.getPosX() > startX) {
-                                    players[player].removeLap();
-                                }
-                            }
-                            case LEFT -> {
-                                if (posBeforeCross.getPosX() > startX && route[i].getPosX() < startX) {
-                                    players[player].addLap();
-                                } else if (posBeforeCross.getPosX() < startX) {
-                                    players[player].removeLap();
-                                }
-                            }
-                        }
-                        i = route.length;
+                    final int routeX = LineRasterizer.unpackX(route[i]);
+                    final int routeY = LineRasterizer.unpackY(route[i]);
+                    if (board.surfaceAt(routeX, routeY) == Surfaces.ROAD) {
+                        Position posBeforeCross = findPositionBeforeCross(moves, index);
+                        return switch (direction) {
+                            case UP -> crossChange(posBeforeCross.getPosY() > startY && routeY < startY,
+                                    posBeforeCross.getPosY() < startY);
+                            case DOWN -> crossChange(posBeforeCross.getPosY() < startY && routeY > startY,
+                                    posBeforeCross.getPosY() > startY);
+                            case RIGHT -> crossChange(posBeforeCross.getPosX() < startX && routeX > startX,
+                                    posBeforeCross.getPosX() > startX);
+                            case LEFT -> crossChange(posBeforeCross.getPosX() > startX && routeX < startX,
+                                    posBeforeCross.getPosX() < startX);
+                        };
                     }
                 }
             }
         }
+        return 0;
+    }
+
+    /**
+     * @return 1 if the line was crossed forward, -1 if backward, 0 if not at all
+     */
+    private static int crossChange(boolean forward, boolean backward) {
+        if (forward) {
+            return 1;
+        } else if (backward) {
+            return -1;
+        }
+        return 0;
     }
 
     /**
@@ -814,19 +1111,22 @@ public class Logic {
      * @return winning player array
      */
     public Player[] returnWinners() {
-        Player[] winners = new Player[MAX_PLAYER_NUMBER];
+        Player[] winners = new Player[playerCount];
         int maxWinningDistance = 0;
         for (int i = 0; i < players.length; i++) {
             if (players[i].getLap() == 2) {
                 Position lastPos = replayData.get(i).get(replayData.get(i).size() - 1);
                 Position secondToLastPos = replayData.get(i).get(replayData.get(i).size() - 2);
-                Position[] route = calcRoute(secondToLastPos, lastPos);
-                for (int j = 0; j < route.length; j++) {
-                    if (board.getSurfaceAt(route[j]) == Surfaces.START) {
-                        int routeFromStart = calcRoute(route[j], lastPos).length;
+                int length = rasterizeRoute(secondToLastPos, lastPos);
+                for (int j = 0; j < length; j++) {
+                    int routeX = LineRasterizer.unpackX(route[j]);
+                    int routeY = LineRasterizer.unpackY(route[j]);
+                    if (board.surfaceAt(routeX, routeY) == Surfaces.START) {
+                        int routeFromStart = LineRasterizer.routeLength(routeX, routeY,
+                                lastPos.getPosX(), lastPos.getPosY());
                         if (routeFromStart > maxWinningDistance) {
                             maxWinningDistance = routeFromStart;
-                            winners = new Player[MAX_PLAYER_NUMBER];
+                            winners = new Player[playerCount];
                             winners[i] = players[i];
                         } else if (routeFromStart == maxWinningDistance) {
                             winners[i] = players[i];
@@ -861,28 +1161,47 @@ public class Logic {
         guiCon.playReplayMove(this, replayData, move, currAnimationSpeed);
     }
 
+    /**
+     * returns the index of the replay, it is built again if moves were added since the last call
+     *
+     * @return index over the replay data
+     */
+    public ReplayIndex getReplayIndex() {
+        if (replayIndex == null || !replayIndex.isUpToDate(replayData)) {
+            replayIndex = ReplayIndex.build(this);
+        }
+        return replayIndex;
+    }
+
+    /**
+     * shows the players at a move of the replay without playing the moves in between, also backwards
+     *
+     * @param move number of the move that is shown
+     */
+    public void seekReplay(int move) {
+        ReplayIndex index = getReplayIndex();
+        guiCon.showReplayMove(this, index, Math.max(0, Math.min(move, index.getLength() - 1)));
+    }
+
     /**
      * Parses JSON File
      *
      * @param filename filename
      * @return the read data as a class
-     * @throws FileNotFoundException if file not found
+     * @throws IOException if file can not be read
      */
-    private GameFromAndToJSON parseJSON(String filename) throws FileNotFoundException {
-        Gson gson = new Gson();
+    private GameFromAndToJSON parseJSON(String filename) throws IOException {
         GameFromAndToJSON game = null;
         if (filename.contains(System.getProperty("java.io.tmpdir"))) {
             try {
-                game = gson.fromJson(new FileReader(filename), GameFromAndToJSON.class);
+                game = GameCodec.read(Path.of(filename));
             } catch (JsonSyntaxException jsonSyntaxException) {
                 guiCon.outputErrorMessage(ErrorCodes.WrongMapSyntax, "");
             }
         } else {
-            Reader r = new InputStreamReader(Objects.
-                    requireNonNull(this.getClass().getResourceAsStream("/" + filename)));
-
-            try {
-                game = gson.fromJson(r, GameFromAndToJSON.class);
+            try (Reader r = new InputStreamReader(Objects.
+                    requireNonNull(this.getClass().getResourceAsStream("/" + filename)), StandardCharsets.UTF_8)) {
+                game = GameCodec.read(r);
             } catch (JsonSyntaxException jsonSyntaxException) {
                 guiCon.outputErrorMessage(ErrorCodes.WrongMapSyntax, "");
             }
@@ -943,41 +1262,79 @@ public class Logic {
         Board tempBoard = new Board();
         ErrorCodes errorCode = tempBoard.isBoardValid(g.getTrack());
         if (errorCode == ErrorCodes.NoError) {
+            if (track != null) {
+                // the values are replaced, so the board of the track does not have to be copied
+                leaveTrack(new Board());
+            }
             this.board.setValues(Board.convertBoardIntToStates(g.getTrack()));
+            errorCode = validateGameState(g.getDirection(), g.getCurrentPlayer(), g.getPlayers());
         } else {
             guiCon.outputErrorMessage(errorCode, "");
         }
 
-        if (errorCode == ErrorCodes.NoError) {
-            if (g.getDirection() < 0 || g.getDirection() > 3 || g.getCurrentPlayer() < 0
-                    || g.getCurrentPlayer() > (MAX_PLAYER_NUMBER - 1)) {
-                guiCon.outputErrorMessage(ErrorCodes.WrongCurrentPlayerOrDirection, "");
-                errorCode = ErrorCodes.WrongCurrentPlayerOrDirection;
-            } else {
-                convertDirFromIntToEnum(g.getDirection());
-                this.currentPlayer = g.getCurrentPlayer();
-            }
+        if (errorCode == ErrorCodes.NoError && g.getReplayEntries() != null) {
+            errorCode = validateReplay(g.getReplay());
+        }
+        return errorCode;
+    }
+
+    /**
+     * checks if the moves saved with a game end at the current positions of the players and takes them over
+     * if they do
+     *
+     * @param replay the moves, null if they could not be read
+     * @return error code that states if the moves are valid
+     */
+    private ErrorCodes validateReplay(ReplayData replay) {
+        boolean valid = replay != null && replay.size() == playerCount;
+        for (int i = 0; valid && i < playerCount; i++) {
+            ReplayData.Moves moves = replay.get(i);
+            valid = !players[i].isActive() || (moves.size() > 0
+                    && moves.getX(moves.size() - 1) == playerState.getX(i)
+                    && moves.getY(moves.size() - 1) == playerState.getY(i));
+        }
+        if (!valid) {
+            guiCon.outputErrorMessage(ErrorCodes.InvalidPLayerData, "");
+            return ErrorCodes.InvalidPLayerData;
+        }
+        this.replayData = replay;
+        int lastActive = findLastActivePlayer();
+        this.movesUsed = lastActive == -1 ? 0 : Math.max(0, replay.get(lastActive).size() - 1);
+        this.replayLoaded = true;
+        return ErrorCodes.NoError;
+    }
+
+    /**
+     * checks if the direction, current player and players of a loaded game fit the current board and takes
+     * them over if they do
+     *
+     * @param direction     direction as saved in files
+     * @param currentPlayer current player
+     * @param tempPlayers   players, null if they could not be read
+     * @return error code that states if data is valid
+     */
+    private ErrorCodes validateGameState(int direction, int currentPlayer, Player[] tempPlayers) {
+        ErrorCodes errorCode = ErrorCodes.NoError;
+        if (direction < 0 || direction > 3 || currentPlayer < 0 || currentPlayer > (playerCount - 1)) {
+            guiCon.outputErrorMessage(ErrorCodes.WrongCurrentPlayerOrDirection, "");
+            errorCode = ErrorCodes.WrongCurrentPlayerOrDirection;
+        } else {
+            convertDirFromIntToEnum(direction);
+            this.currentPlayer = currentPlayer;
         }
 
         if (errorCode == ErrorCodes.NoError) {
-            if (g.getPlayers() == null || g.getPlayers().length != MAX_PLAYER_NUMBER) {
+            if (tempPlayers == null || tempPlayers.length != playerCount) {
                 errorCode = ErrorCodes.InvalidPLayerData;
                 guiCon.outputErrorMessage(ErrorCodes.InvalidPLayerData, "");
             } else {
-                Player[] tempPlayers = new Player[MAX_PLAYER_NUMBER];
-                for (int i = 0; i < MAX_PLAYER_NUMBER; i++) {
-                    tempPlayers[i] = g.getPlayers()[i];
-                }
-                for (int i = 0; i < MAX_PLAYER_NUMBER; i++) {
-                    if (!tempPlayers[i].isValidPlayer(this.board, tempPlayers)) {
-                        guiCon.outputErrorMessage(ErrorCodes.InvalidPLayerData, "");
-                        errorCode = ErrorCodes.InvalidPLayerData;
-                        i = MAX_PLAYER_NUMBER;
-                    }
-                }
-                if (errorCode == ErrorCodes.NoError) {
-                    this.players = new Player[MAX_PLAYER_NUMBER];
-                    System.arraycopy(tempPlayers, 0, this.players, 0, MAX_PLAYER_NUMBER);
+                PlayerState tempState = PlayerState.bind(tempPlayers);
+                if (!tempState.isValid(this.board)) {
+                    guiCon.outputErrorMessage(ErrorCodes.InvalidPLayerData, "");
+                    errorCode = ErrorCodes.InvalidPLayerData;
+                } else {
+                    this.players = tempPlayers;
+                    this.playerState = tempState;
                 }
             }
         }
@@ -994,56 +1351,97 @@ public class Logic {
         ErrorCodes errorCode = ErrorCodes.NoError;
         try {
             g = parseJSON(filename);
-        } catch (FileNotFoundException e) {
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
         if (g == null) {
             errorCode = ErrorCodes.WrongMapSyntax;
         }
         if (errorCode == ErrorCodes.NoError) {
-
             errorCode = validateGameData(g);
-
             if (errorCode == ErrorCodes.NoError) {
-                byte firstActive = findFirstActivePlayer();
-                if (firstActive == -1) {
-                    gameMode = GameMode.Menu_Mode;
-                    guiCon.initializeGame(this.board, this.direction, false, players);
-                } else {
-                    gameMode = GameMode.Race_Mode;
-                    guiCon.initializeGame(this.board, this.direction, true, players);
-                    guiCon.updatePlayerInfoTextField(players[currentPlayer].getName() + " make your move!");
-                    prepareNextMove(players[firstActive].getLastPos(), players[firstActive].getCurrentPos(), true);
-                    for (int i = 0; i < MAX_PLAYER_NUMBER; i++) {
-                        Position temp = players[i].getCurrentPos();
-                        replayData.get(i).add(new Position(temp.getPosX(), temp.getPosY()));
-                    }
-                }
+                startLoadedGame();
             }
         }
         return errorCode;
     }
 
+    /**
+     * Reads out the needed Data to create a Game from a binary track file. If game is in race, prepares
+     * first player move. Unlike json files, track files may hold maps of any size.
+     *
+     * @param file the track file
+     * @return error code that states if the game could be loaded
+     */
+    public ErrorCodes getGameFromTrackFile(Path file) {
+        TrackFile trackFile = TrackFile.read(file);
+        if (trackFile == null) {
+            guiCon.outputErrorMessage(ErrorCodes.WrongMapSyntax, "");
+            return ErrorCodes.WrongMapSyntax;
+        }
+        ErrorCodes errorCode = trackFile.getBoardError();
+        if (errorCode != ErrorCodes.NoError) {
+            guiCon.outputErrorMessage(errorCode, "");
+            return errorCode;
+        }
+        leaveTrack(trackFile.getBoard());
+        errorCode = validateGameState(trackFile.getDirection(), trackFile.getCurrentPlayer(),
+                trackFile.getPlayers());
+        if (errorCode == ErrorCodes.NoError) {
+            startLoadedGame();
+        }
+        return errorCode;
+    }
+
+    /**
+     * shows a game that was just loaded and prepares the first move if it is in race
+     */
+    private void startLoadedGame() {
+        int firstActive = findFirstActivePlayer();
+        if (firstActive == -1) {
+            gameMode = GameMode.Menu_Mode;
+            guiCon.initializeGame(this.board, this.direction, false, players);
+        } else {
+            gameMode = GameMode.Race_Mode;
+            guiCon.initializeGame(this.board, this.direction, true, players);
+            guiCon.updatePlayerInfoTextField(players[currentPlayer].getName() + " make your move!");
+            prepareNextMove(players[firstActive].getLastPos(), players[firstActive].getCurrentPos(), true);
+            for (int i = 0; i < playerCount && !replayLoaded; i++) {
+                replayData.get(i).add(playerState.getX(i), playerState.getY(i));
+            }
+        }
+        replayLoaded = false;
+    }
+
     /**
      * writes the current gameState to a file
      *
      * @param fileName name of the file
      */
     public void saveGameToJson(String fileName) {
-        GameFromAndToJSON g = new GameFromAndToJSON(Board.convertBoardStatesToInt(this.board.getValues()),
-                convertDirFromEnumToInt(this.direction), this.currentPlayer, this.players);
-        Gson gson = new Gson();
-        String jsonData = gson.toJson(g);
-
-        String filePath = System.getProperty("java.io.tmpdir") + fileName;
-
-        try (FileWriter fileWriter = new FileWriter(filePath)) {
-            fileWriter.write(jsonData);
+        boolean hasMoves = false;
+        for (int i = 0; i < replayData.size(); i++) {
+            hasMoves |= replayData.get(i).size() > 0;
+        }
+        GameFromAndToJSON g = new GameFromAndToJSON(Board.convertBoardStatesToInt(this.board),
+                convertDirFromEnumToInt(this.direction), this.currentPlayer, this.players,
+                hasMoves ? replayData : null);
+        try {
+            GameCodec.write(g, Path.of(System.getProperty("java.io.tmpdir") + fileName));
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * writes the current gameState to a binary track file
+     *
+     * @param file the file, replaced if it exists
+     */
+    public void saveGameToTrackFile(Path file) {
+        TrackFile.write(file, this.board, convertDirFromEnumToInt(this.direction), this.currentPlayer, this.players);
+    }
+
     /**
      * reverses the start cross direction
      */
@@ -1063,12 +1461,13 @@ public class Logic {
      * @param add true if line shall be added false if line shall be deleted
      */
     public void addOrDeleteLine(StartCrossDirection dir, boolean add) {
-        if (add) {
-            this.board = board.addLine(dir);
-        } else {
-            this.board = board.deleteLine(dir);
-        }
+        leaveTrack(add ? board.addLine(dir) : board.deleteLine(dir));
         guiCon.initializeGame(this.board, this.direction, false, players);
+        if (editorDistanceValues != null) {
+            //the gui drew the whole board again, the old line is not shown anymore
+            editorDistanceValues = null;
+            setAILinePreview(true);
+        }
     }
 
     /**
@@ -1083,11 +1482,11 @@ public class Logic {
             Position right = start.getRightNeighbour(this.board);
             this.board.changeBoardCell(start.getPosX(), start.getPosY(), Surfaces.START, this.board, this.guiCon, StartCrossDirection.DOWN);
             this.direction = StartCrossDirection.DOWN;
-            while (left != null && board.getValues()[left.getPosX()][left.getPosY()] == Surfaces.ROAD) {
+            while (left != null && board.getSurfaceAt(left) == Surfaces.ROAD) {
                 this.board.changeBoardCell(left.getPosX(), left.getPosY(), Surfaces.START, this.board, this.guiCon, StartCrossDirection.DOWN);
                 left = left.getLeftNeighbour();
             }
-            while (right != null && board.getValues()[right.getPosX()][right.getPosY()] == Surfaces.ROAD) {
+            while (right != null && board.getSurfaceAt(right) == Surfaces.ROAD) {
                 this.board.changeBoardCell(right.getPosX(), right.getPosY(), Surfaces.START, this.board, this.guiCon, StartCrossDirection.DOWN);
                 right = right.getRightNeighbour(this.board);
             }
@@ -1096,11 +1495,11 @@ public class Logic {
             Position bottom = start.getBottomNeighbour(this.board);
             this.board.changeBoardCell(start.getPosX(), start.getPosY(), Surfaces.START, this.board, this.guiCon, StartCrossDirection.RIGHT);
             this.direction = StartCrossDirection.RIGHT;
-            while (top != null && board.getValues()[top.getPosX()][top.getPosY()] == Surfaces.ROAD) {
+            while (top != null && board.getSurfaceAt(top) == Surfaces.ROAD) {
                 this.board.changeBoardCell(top.getPosX(), top.getPosY(), Surfaces.START, this.board, this.guiCon, StartCrossDirection.RIGHT);
                 top = top.getTopNeighbour();
             }
-            while (bottom != null && board.getValues()[bottom.getPosX()][bottom.getPosY()] == Surfaces.ROAD) {
+            while (bottom != null && board.getSurfaceAt(bottom) == Surfaces.ROAD) {
                 this.board.changeBoardCell(bottom.getPosX(), bottom.getPosY(), Surfaces.START, this.board, this.guiCon, StartCrossDirection.RIGHT);
                 bottom = bottom.getBottomNeighbour(this.board);
             }
@@ -1116,9 +1515,10 @@ public class Logic {
      * @param swDir  true if user used right mouse click on starting line tile
      */
     public void handleTheStartingLine(int indexI, int indexJ, boolean rotate, boolean swDir) {
+        ownBoard();
         ArrayList<Position> oldSL = this.board.getCurrStartingLine();
         Position start = new Position(indexI, indexJ);
-        if (this.board.getValues()[indexI][indexJ] == Surfaces.START) {
+        if (this.board.surfaceAt(indexI, indexJ) == Surfaces.START) {
             if (swDir) {
                 this.direction = reverseStartCrossDir(this.direction);
                 this.board.changeStartingLineCrossDirection(oldSL, this.guiCon, this.direction);
@@ -1133,6 +1533,79 @@ public class Logic {
             this.board.deleteCurrStartingLine(oldSL, this.guiCon, this.direction);
             setStartingLine(board.findShortestPath(start), start);
         }
+        updateAILinePreview();
+    }
+
+    /**
+     * changes a field in the editor
+     *
+     * @param x   x value of the field
+     * @param y   y value of the field
+     * @param sur surface the field gets
+     */
+    public void changeBoardCell(int x, int y, Surfaces sur) {
+        Board own = ownBoard();
+        Surfaces old = own.surfaceAt(x, y);
+        own.changeBoardCell(x, y, sur, own, guiCon, direction);
+        if (editorDistanceValues != null && editorDistanceValues.belongsTo(own, direction)) {
+            editorDistanceValues.update(x, y, old);
+            showAILine(editorDistanceValues.getLapRemoved(), editorDistanceValues.getLapAdded());
+            if (sur == Surfaces.ROAD && editorDistanceValues.isOnLap(x, y)) {
+                //the gui just drew the field as road
+                guiCon.showPossibleField(new Position(x, y), Surfaces.ROAD, direction);
+            }
+        } else {
+            updateAILinePreview();
+        }
+    }
+
+    /**
+     * shows or hides the line the AI is led along while the map is edited. It is updated on every change.
+     *
+     * @param show true to show the line
+     */
+    public void setAILinePreview(boolean show) {
+        if (editorDistanceValues != null) {
+            showAILine(editorDistanceValues.getShortestLap().toArray(new Position[0]), new Position[0]);
+        }
+        editorDistanceValues = show ? new DynamicDistanceField(ownBoard(), direction) : null;
+        if (show) {
+            showAILine(new Position[0], editorDistanceValues.getLapAdded());
+        }
+    }
+
+    /**
+     * @return distance values of the ai line preview, null while it is off
+     */
+    protected DynamicDistanceField getEditorDistanceValues() {
+        return editorDistanceValues;
+    }
+
+    /**
+     * calculates the values of the ai line preview again after the starting line or the whole board changed
+     */
+    private void updateAILinePreview() {
+        if (editorDistanceValues != null) {
+            setAILinePreview(true);
+        }
+    }
+
+    /**
+     * draws the fields that left the ai line as they are again and marks the fields that joined it
+     *
+     * @param removed fields that left the line
+     * @param added   fields that joined the line
+     */
+    private void showAILine(Position[] removed, Position[] added) {
+        for (Position pos : removed) {
+            if (board.contains(pos.getPosX(), pos.getPosY())
+                    && board.surfaceAt(pos.getPosX(), pos.getPosY()) == Surfaces.ROAD) {
+                guiCon.changeGridPaneCell(pos.getPosX(), pos.getPosY(), Surfaces.ROAD, direction, false);
+            }
+        }
+        for (Position pos : added) {
+            guiCon.showPossibleField(pos, Surfaces.ROAD, direction);
+        }
     }
 
     /**
@@ -1141,7 +1614,7 @@ public class Logic {
      * @return true if board is valid, false if not
      */
     public boolean checkBoardValidity() {
-        ErrorCodes error = this.board.isBoardValidForRace(this.board);
+        ErrorCodes error = track != null ? track.getBoardError() : this.board.isBoardValidForRace(this.board);
         this.guiCon.outputErrorMessage(error, "");
         return error == ErrorCodes.NoError;
     }
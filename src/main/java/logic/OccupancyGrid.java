@@ -0,0 +1,197 @@
+package logic;
+
+import java.util.Arrays;
+
+/**
+ * remembers which player stands on which field, so it can be checked without looking at every player
+ * if a field is taken. Has to be told about every position change. Only the fields with players on them are
+ * stored, so the size of the board does not matter.
+ */
+public class OccupancyGrid {
+
+    private static final int FREE = -1;
+
+    private final int width;
+
+    private final int height;
+
+    //open addressing table of the taken fields, every player takes at most one entry
+    private final int hashShift;
+    private final int[] slotCells;
+    private final int[] firstOccupant;
+    private final int[] occupantCount;
+
+    //field of each player as y * width + x, FREE if the player stands outside the board
+    private final int[] playerCells;
+
+    //players the grid was created for, only used to notice when they are replaced
+    private final Player[] players;
+
+    /**
+     * creates the grid for the current positions of the players
+     *
+     * @param width   x length of the board
+     * @param height  y length of the board
+     * @param players players whose positions are registered
+     */
+    protected OccupancyGrid(int width, int height, Player[] players) {
+        this.width = width;
+        this.height = height;
+        this.players = players;
+        //at most a quarter of the table is used, so the searches stay short
+        int bits = 3;
+        while (1 << bits < 4 * players.length) {
+            bits++;
+        }
+        this.hashShift = 32 - bits;
+        this.slotCells = new int[1 << bits];
+        this.firstOccupant = new int[1 << bits];
+        this.occupantCount = new int[1 << bits];
+        this.playerCells = new int[players.length];
+        Arrays.fill(slotCells, FREE);
+        Arrays.fill(playerCells, FREE);
+        for (int i = 0; i < players.length; i++) {
+            if (players[i] != null) {
+                Position pos = players[i].getCurrentPos();
+                setPosition(i, pos.getPosX(), pos.getPosY());
+            }
+        }
+    }
+
+    /**
+     * checks if the grid still belongs to the given board size and players
+     *
+     * @param board   board the grid should belong to
+     * @param players players the grid should belong to
+     * @return true if the grid can be used for them
+     */
+    protected boolean fits(BoardView board, Player[] players) {
+        return this.players == players && width == board.getWidth() && height == board.getHeight();
+    }
+
+    /**
+     * moves a player to a new field
+     *
+     * @param player number of the player
+     * @param x      new x value
+     * @param y      new y value
+     */
+    protected void setPosition(int player, int x, int y) {
+        int oldCell = playerCells[player];
+        int newCell = x >= 0 && x < width && y >= 0 && y < height ? y * width + x : FREE;
+        if (oldCell == newCell) {
+            return;
+        }
+        if (oldCell != FREE) {
+            int slot = findSlot(oldCell);
+            occupantCount[slot]--;
+            if (occupantCount[slot] == 0) {
+                removeSlot(slot);
+            } else if (firstOccupant[slot] == player) {
+                firstOccupant[slot] = findFirstOccupant(oldCell, player);
+            }
+        }
+        playerCells[player] = newCell;
+        if (newCell != FREE) {
+            int slot = findSlot(newCell);
+            if (slotCells[slot] == FREE) {
+                slotCells[slot] = newCell;
+                firstOccupant[slot] = player;
+                occupantCount[slot] = 0;
+            } else if (player < firstOccupant[slot]) {
+                firstOccupant[slot] = player;
+            }
+            occupantCount[slot]++;
+        }
+    }
+
+    /**
+     * searches the lowest player number on a field, only needed if several players share it
+     *
+     * @param cell  field as y * width + x
+     * @param after player numbers up to this one are not on the field
+     * @return lowest player number on the field
+     */
+    private int findFirstOccupant(int cell, int after) {
+        for (int i = after + 1; i < playerCells.length; i++) {
+            if (playerCells[i] == cell) {
+                return i;
+            }
+        }
+        return FREE;
+    }
+
+    /**
+     * @param cell field as y * width + x
+     * @return slot of the field in the table, or the free slot where it would be added
+     */
+    private int findSlot(int cell) {
+        int mask = slotCells.length - 1;
+        int slot = home(cell);
+        while (slotCells[slot] != FREE && slotCells[slot] != cell) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * @param cell field as y * width + x
+     * @return slot the field is put in if it is not taken
+     */
+    private int home(int cell) {
+        return (cell * 0x9E3779B9) >>> hashShift;
+    }
+
+    /**
+     * empties a slot and moves following entries back, so no search stops at the gap too early
+     *
+     * @param slot slot to be emptied
+     */
+    private void removeSlot(int slot) {
+        int mask = slotCells.length - 1;
+        int gap = slot;
+        slotCells[gap] = FREE;
+        for (int i = (gap + 1) & mask; slotCells[i] != FREE; i = (i + 1) & mask) {
+            //an entry may only move back if the gap is not before its home slot
+            if (((i - home(slotCells[i])) & mask) >= ((i - gap) & mask)) {
+                slotCells[gap] = slotCells[i];
+                firstOccupant[gap] = firstOccupant[i];
+                occupantCount[gap] = occupantCount[i];
+                slotCells[i] = FREE;
+                gap = i;
+            }
+        }
+    }
+
+    /**
+     * checks if any player except the given one stands on the field
+     *
+     * @param x      x value
+     * @param y      y value
+     * @param player number of the player that is ignored
+     * @return true if the field is taken by another player
+     */
+    protected boolean isTakenByOther(int x, int y, int player) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return false;
+        }
+        int slot = findSlot(y * width + x);
+        return slotCells[slot] != FREE && (occupantCount[slot] > 1 || firstOccupant[slot] != player);
+    }
+
+    /**
+     * checks if a player with the given number or a lower one stands on the field
+     *
+     * @param x      x value
+     * @param y      y value
+     * @param player highest player number that counts
+     * @return true if the field is taken by such a player
+     */
+    protected boolean isTakenUpTo(int x, int y, int player) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return false;
+        }
+        int slot = findSlot(y * width + x);
+        return slotCells[slot] != FREE && firstOccupant[slot] <= player;
+    }
+}
@@ -0,0 +1,188 @@
+package logic;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * breadth first search of DistanceField.calculate for large maps. The search goes on one distance after the
+ * other, the fields of a distance are split into parts that the threads of a fork join pool search at the same
+ * time. Reached fields are kept in a bitset, every field is claimed by exactly one thread with compareAndSet,
+ * so every field gets the same distance as in the search on one thread.
+ */
+public class ParallelDistanceSearch {
+
+    /**
+     * fields of a distance one thread searches at least
+     */
+    protected static final int GRAIN = 4096;
+
+    private final Board board;
+
+    private final int width;
+
+    private final int height;
+
+    private final int blocked;
+
+    private final int grain;
+
+    private final DistanceField field;
+
+    //one bit for every field as y * width + x, set once the field is reached
+    private final AtomicLongArray reached;
+
+    //fields of the current distance and their number
+    private int[] current;
+    private int currentSize;
+
+    private int stepsFromStart;
+
+    //fields of the next distance found by each part
+    private int[][] parts;
+    private int[] partSizes;
+
+    private ParallelDistanceSearch(Board board, StartCrossDirection direction, int grain) {
+        this.board = board;
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+        this.blocked = DistanceField.blockedNeighbour(direction);
+        this.grain = grain;
+        this.field = new DistanceField(width, height);
+        this.reached = new AtomicLongArray((int) (((long) width * height + 63) >>> 6));
+    }
+
+    /**
+     * calculates the distance values of a map
+     *
+     * @param board     the map
+     * @param direction direction the starting line has to be crossed
+     * @param pool      pool the parts are searched in
+     * @param grain     fields of a distance one thread searches at least
+     * @return the distance values
+     */
+    protected static DistanceField calculate(Board board, StartCrossDirection direction, ForkJoinPool pool,
+                                             int grain) {
+        return new ParallelDistanceSearch(board, direction, grain).search(pool);
+    }
+
+    private DistanceField search(ForkJoinPool pool) {
+        current = new int[64];
+        for (Position start : board.getCurrStartingLine()) {
+            if (currentSize == current.length) {
+                current = Arrays.copyOf(current, currentSize * 2);
+            }
+            int cell = start.getPosY() * width + start.getPosX();
+            claim(cell);
+            current[currentSize++] = cell;
+            field.set(start.getPosX(), start.getPosY(), 0);
+        }
+        stepsFromStart = 1;
+        while (currentSize > 0) {
+            int partCount = (currentSize + grain - 1) / grain;
+            parts = new int[partCount][];
+            partSizes = new int[partCount];
+            if (partCount == 1) {
+                expand(0);
+            } else {
+                pool.invoke(new Expand(0, partCount));
+            }
+            int nextSize = 0;
+            for (int size : partSizes) {
+                nextSize += size;
+            }
+            int[] next = new int[Math.max(nextSize, 64)];
+            nextSize = 0;
+            for (int i = 0; i < partCount; i++) {
+                System.arraycopy(parts[i], 0, next, nextSize, partSizes[i]);
+                nextSize += partSizes[i];
+            }
+            current = next;
+            currentSize = nextSize;
+            stepsFromStart++;
+        }
+        return field;
+    }
+
+    /**
+     * searches the parts from one index to another, splitting them between threads
+     */
+    private class Expand extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+
+        private final int to;
+
+        private Expand(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                expand(from);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Expand(from, middle), new Expand(middle, to));
+            }
+        }
+    }
+
+    /**
+     * reaches the road neighbours of one part of the current fields
+     *
+     * @param part number of the part
+     */
+    private void expand(int part) {
+        final int from = part * grain;
+        final int to = Math.min(currentSize, from + grain);
+        int[] next = new int[Math.max(16, to - from)];
+        int nextSize = 0;
+        for (int i = from; i < to; i++) {
+            final int x = current[i] % width;
+            final int y = current[i] / width;
+            for (int j = Logic.TOP; j <= Logic.LEFT; j++) {
+                final int neighX = j == Logic.RIGHT ? x + 1 : j == Logic.LEFT ? x - 1 : x;
+                final int neighY = j == Logic.DOWN ? y + 1 : j == Logic.TOP ? y - 1 : y;
+                if (neighX < 0 || neighX >= width || neighY < 0 || neighY >= height
+                        || (stepsFromStart == 1 && j == blocked)
+                        || board.surfaceAt(neighX, neighY) != Surfaces.ROAD) {
+                    continue;
+                }
+                final int cell = neighY * width + neighX;
+                if (claim(cell)) {
+                    field.setConcurrently(neighX, neighY, stepsFromStart);
+                    if (nextSize == next.length) {
+                        next = Arrays.copyOf(next, nextSize * 2);
+                    }
+                    next[nextSize++] = cell;
+                }
+            }
+        }
+        parts[part] = next;
+        partSizes[part] = nextSize;
+    }
+
+    /**
+     * marks a field as reached
+     *
+     * @param cell field as y * width + x
+     * @return true if this call reached it, false if it was reached before
+     */
+    private boolean claim(int cell) {
+        final int word = cell >>> 6;
+        final long bit = 1L << cell;
+        long old = reached.get(word);
+        while ((old & bit) == 0) {
+            if (reached.compareAndSet(word, old, old | bit)) {
+                return true;
+            }
+            old = reached.get(word);
+        }
+        return false;
+    }
+}
@@ -1,91 +1,110 @@
 package logic;
 
 /**
- * saves all information for a single player
+ * saves all information for a single player. The values are kept in a PlayerState, a player created on its own
+ * has a state of its own until it is bound to the state of a game.
  */
 public class Player {
 
-    private boolean active;
-    private final boolean ai;
+    private PlayerState state;
 
-    private final String name;
-
-    private int[] current, last;
-
-    private byte lap;
+    private int index;
 
     /**
      * initializes default inactive player for testing purposes
      */
     public Player() {
-        this.active = false;
-        this.ai = false;
-        this.name = "";
-        setLastPos(new Position(0,0));
-        setCurrPos(new Position(0,0));
-        this.lap = 0;
+        this(false, false, "", new Position(0, 0), new Position(0, 0), (byte) 0);
     }
 
     /**
      * initializes player
      */
     public Player(boolean active, boolean ai, String name, Position last, Position current, byte lap) {
-        this.active = active;
-        this.ai = ai;
-        this.name = name;
+        this.state = new PlayerState(1);
+        this.index = 0;
+        state.setActive(0, active);
+        state.setAI(0, ai);
+        state.setName(0, name);
         setLastPos(last);
         setCurrPos(current);
-        this.lap = lap;
+        state.setLap(0, lap);
+    }
+
+    /**
+     * creates a handle to a player of an existing state
+     *
+     * @param state state of all players
+     * @param index number of the player in the state
+     */
+    protected Player(PlayerState state, int index) {
+        this.state = state;
+        this.index = index;
+    }
+
+    /**
+     * copies the values of this player into the given state and uses that state from now on
+     *
+     * @param newState state to move to
+     * @param newIndex number of the player in the new state
+     */
+    protected void bind(PlayerState newState, int newIndex) {
+        newState.setActive(newIndex, isActive());
+        newState.setAI(newIndex, isAI());
+        newState.setName(newIndex, getName());
+        newState.setPosition(newIndex, state.getX(index), state.getY(index));
+        newState.setLastPosition(newIndex, state.getLastX(index), state.getLastY(index));
+        newState.setLap(newIndex, getLap());
+        this.state = newState;
+        this.index = newIndex;
     }
 
     //Getters and Setters
     public boolean isActive() {
-        return active;
+        return state.isActive(index);
     }
 
     public boolean isAI() {
-        return ai;
+        return state.isAI(index);
     }
 
     public Position getLastPos() {
-        Position temp = new Position(last[0],last[1]);
-        return temp;
+        return new Position(state.getLastX(index), state.getLastY(index));
     }
 
     public Position getCurrentPos() {
-        Position temp = new Position(current[0],current[1]);
-        return temp;
+        return new Position(state.getX(index), state.getY(index));
     }
     protected void setActive(boolean active) {
-        this.active = active;
+        state.setActive(index, active);
     }
 
     public byte getLap() {
-        return lap;
+        return state.getLap(index);
     }
 
     public void setCurrPos(Position pos) {
-        this.current = new int[2];
         if (pos != null) {
-            this.current[0] = pos.getPosX();
-            this.current[1] = pos.getPosY();
+            state.setPosition(index, pos.getPosX(), pos.getPosY());
+        } else {
+            state.setPosition(index, 0, 0);
         }
     }
 
     public void setLastPos(Position pos) {
-        this.last = new int[2];
         if (pos != null) {
-            this.last[0] = pos.getPosX();
-            this.last[1] = pos.getPosY();
+            state.setLastPosition(index, pos.getPosX(), pos.getPosY());
+        } else {
+            state.setLastPosition(index, 0, 0);
         }
     }
 
     public String getName() {
-        return this.name;
+        return state.getName(index);
     }
 
     protected void setLap(int i) {
-        this.lap = (byte) i;
+        state.setLap(index, i);
     }
 
 
@@ -93,32 +112,16 @@ public class Player {
      * adds a lap
      */
     protected void addLap() {
-        lap++;
+        state.setLap(index, getLap() + 1);
     }
 
     /**
      * removes a lap
      */
     protected void removeLap() {
-        if (lap > 0) {
-            lap--;
-        }
-    }
-
-    /**
-     * checks if the data in player is correct
-     * @param b board
-     * @param players other players
-     * @return true if data is correct, false if not
-     */
-    protected boolean isValidPlayer(Board b, Player[] players) {
-        if (lap < 0 || lap > 2 || current.length < 0 || current.length > 2 || last.length < 0 || last.length > 2) {
-            return false;
-        }
-        if (!b.isValidPosition(new Position(current[0], current[1]), players)) {
-            return false;
+        if (getLap() > 0) {
+            state.setLap(index, getLap() - 1);
         }
-        return b.isValidPosition(new Position(last[0], last[1]), players);
     }
 
 }
@@ -0,0 +1,238 @@
+package logic;
+
+import java.util.Arrays;
+
+/**
+ * state of all players of a game, stored as one array per value so turns can be processed without creating
+ * objects. Player objects are handles to one entry of such a state.
+ */
+public class PlayerState {
+
+    private static final byte ACTIVE = 1;
+    private static final byte AI = 2;
+
+    private static final int NONE = -1;
+
+    private final int[] x, y, lastX, lastY;
+
+    private final byte[] lap;
+
+    private final byte[] flags;
+
+    private final String[] names;
+
+    //smallest active player number bigger than the index, NONE if there is none
+    private final int[] nextActive;
+
+    private int firstActive = NONE;
+
+    private int lastActive = NONE;
+
+    private int activeCount;
+
+    /**
+     * creates the state for the given number of inactive players standing on 0, 0
+     *
+     * @param playerCount number of players
+     */
+    protected PlayerState(int playerCount) {
+        this.x = new int[playerCount];
+        this.y = new int[playerCount];
+        this.lastX = new int[playerCount];
+        this.lastY = new int[playerCount];
+        this.lap = new byte[playerCount];
+        this.flags = new byte[playerCount];
+        this.names = new String[playerCount];
+        this.nextActive = new int[playerCount];
+        Arrays.fill(names, "");
+        Arrays.fill(nextActive, NONE);
+    }
+
+    /**
+     * creates a state holding the values of the given players and binds the players to it,
+     * so they show the state afterwards
+     *
+     * @param players players to take over, missing players stay inactive
+     * @return the new state
+     */
+    protected static PlayerState bind(Player[] players) {
+        PlayerState state = new PlayerState(players.length);
+        for (int i = 0; i < players.length; i++) {
+            if (players[i] != null) {
+                players[i].bind(state, i);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * @return number of players
+     */
+    public int size() {
+        return x.length;
+    }
+
+    //Getters and Setters
+    public int getX(int player) {
+        return x[player];
+    }
+
+    public int getY(int player) {
+        return y[player];
+    }
+
+    public int getLastX(int player) {
+        return lastX[player];
+    }
+
+    public int getLastY(int player) {
+        return lastY[player];
+    }
+
+    public byte getLap(int player) {
+        return lap[player];
+    }
+
+    public boolean isActive(int player) {
+        return (flags[player] & ACTIVE) != 0;
+    }
+
+    public boolean isAI(int player) {
+        return (flags[player] & AI) != 0;
+    }
+
+    public String getName(int player) {
+        return names[player];
+    }
+
+    protected void setPosition(int player, int posX, int posY) {
+        x[player] = posX;
+        y[player] = posY;
+    }
+
+    protected void setLastPosition(int player, int posX, int posY) {
+        lastX[player] = posX;
+        lastY[player] = posY;
+    }
+
+    protected void setLap(int player, int value) {
+        lap[player] = (byte) value;
+    }
+
+    protected void setName(int player, String name) {
+        names[player] = name;
+    }
+
+    protected void setAI(int player, boolean ai) {
+        flags[player] = (byte) (ai ? flags[player] | AI : flags[player] & ~AI);
+    }
+
+    /**
+     * activates or deactivates a player and updates the turn order
+     *
+     * @param player number of the player
+     * @param active true to activate
+     */
+    protected void setActive(int player, boolean active) {
+        if (active != isActive(player)) {
+            flags[player] = (byte) (active ? flags[player] | ACTIVE : flags[player] & ~ACTIVE);
+            updateTurnOrder();
+        }
+    }
+
+    /**
+     * calculates the next active player for every player, only needed when a player is (de)activated
+     */
+    private void updateTurnOrder() {
+        int next = NONE;
+        activeCount = 0;
+        lastActive = NONE;
+        for (int i = x.length - 1; i >= 0; i--) {
+            nextActive[i] = next;
+            if (isActive(i)) {
+                next = i;
+                activeCount++;
+                if (lastActive == NONE) {
+                    lastActive = i;
+                }
+            }
+        }
+        firstActive = next;
+    }
+
+    /**
+     * @return first active player, -1 if there is none
+     */
+    public int getFirstActive() {
+        return firstActive;
+    }
+
+    /**
+     * @return last active player, -1 if there is none
+     */
+    public int getLastActive() {
+        return lastActive;
+    }
+
+    /**
+     * returns the number of the active player that moves after the given one
+     *
+     * @param player number from which next player is asked for
+     * @return number of next player or -1 if there is none
+     */
+    public int getNextActive(int player) {
+        if (player == lastActive) {
+            return firstActive;
+        }
+        return nextActive[player];
+    }
+
+    /**
+     * @return number of active players
+     */
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    /**
+     * checks if the player data fits the board: every lap is between 0 and 2, every position is on the board
+     * and no active player shares its current or last position with another player
+     *
+     * @param board board the players are on
+     * @return true if the data is valid, false if not
+     */
+    protected boolean isValid(BoardView board) {
+        int width = board.getWidth();
+        for (int i = 0; i < x.length; i++) {
+            if (lap[i] < 0 || lap[i] > 2 || !board.contains(x[i], y[i]) || !board.contains(lastX[i], lastY[i])) {
+                return false;
+            }
+        }
+        //sorted fields of the current and last positions, shared fields are next to each other
+        long[] current = new long[x.length];
+        long[] last = new long[x.length];
+        for (int i = 0; i < x.length; i++) {
+            current[i] = (long) y[i] * width + x[i];
+            last[i] = (long) lastY[i] * width + lastX[i];
+        }
+        Arrays.sort(current);
+        Arrays.sort(last);
+        for (int i = 0; i < x.length; i++) {
+            if (isActive(i) && (isShared(current, (long) y[i] * width + x[i])
+                    || isShared(last, (long) lastY[i] * width + lastX[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param sorted sorted fields
+     * @param field  field that is contained in the array
+     * @return true if the field is contained more than once
+     */
+    private static boolean isShared(long[] sorted, long field) {
+        int index = Arrays.binarySearch(sorted, field);
+        return (index > 0 && sorted[index - 1] == field) || (index < sorted.length - 1 && sorted[index + 1] == field);
+    }
+}
@@ -0,0 +1,95 @@
+package logic;
+
+/**
+ * runs complete AI races without a gui. The turns are advanced in a loop instead of waiting for the
+ * animations of the gui to finish.
+ */
+public class RaceSimulator {
+
+    /**
+     * gui connector that ignores every output
+     */
+    private static final GUIConnector HEADLESS = new GUIConnector() {
+    };
+
+    private RaceSimulator() {
+    }
+
+    /**
+     * simulates a race from the race preparation until the race is won or the move limit is reached.
+     * The given players are not changed.
+     *
+     * @param board     board the race takes place on, has to be valid for a race
+     * @param direction direction the starting line has to be crossed
+     * @param players   players of the race, every active player has to be an AI
+     * @param maxMoves  maximum number of moves before the race is stopped
+     * @return final state of the race
+     */
+    public static SimulationResult simulate(Board board, StartCrossDirection direction, Player[] players,
+                                            int maxMoves) {
+        return simulate(new Logic(HEADLESS, board, direction, copyPlayers(players)), maxMoves);
+    }
+
+    /**
+     * simulates a race on a shared track, so several races on the same map can run at the same time.
+     * The given players are not changed.
+     *
+     * @param track    track the race takes place on, has to be valid for a race
+     * @param players  players of the race, every active player has to be an AI
+     * @param maxMoves maximum number of moves before the race is stopped
+     * @return final state of the race
+     */
+    public static SimulationResult simulate(Track track, Player[] players, int maxMoves) {
+        return simulate(new Logic(HEADLESS, track, copyPlayers(players)), maxMoves);
+    }
+
+    /**
+     * @param players players of the race
+     * @return new players with the same names at the start of a race
+     */
+    private static Player[] copyPlayers(Player[] players) {
+        Player[] racePlayers = new Player[players.length];
+        for (int i = 0; i < players.length; i++) {
+            if (players[i].isActive() && !players[i].isAI()) {
+                throw new IllegalArgumentException("only AI players can be simulated: " + players[i].getName());
+            }
+            racePlayers[i] = new Player(players[i].isActive(), players[i].isAI(), players[i].getName(),
+                    new Position(0, 0), new Position(0, 0), (byte) 0);
+        }
+        return racePlayers;
+    }
+
+    /**
+     * places the players and plays the race
+     *
+     * @param logic    game in the race preparation
+     * @param maxMoves maximum number of moves before the race is stopped
+     * @return final state of the race
+     */
+    private static SimulationResult simulate(Logic logic, int maxMoves) {
+        int firstActive = logic.findFirstActivePlayer();
+        if (firstActive == -1) {
+            throw new IllegalArgumentException("race needs at least one active player");
+        }
+
+        int player = firstActive;
+        do {
+            logic.setCurrentPlayer(player);
+            logic.placeAI();
+            player = logic.getNextActivePlayer(player);
+        } while (player != firstActive);
+
+        logic.setGameMode(GameMode.Race_Mode);
+        logic.setCurrentPlayer(firstActive);
+        logic.playAITurns(maxMoves);
+
+        int playerCount = logic.getPlayers().length;
+        Player[] winners = logic.getIsGameWon() ? logic.returnWinners() : new Player[playerCount];
+        int[] crashes = new int[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            crashes[i] = logic.getCrashCount(i);
+        }
+        return new SimulationResult(logic.getPlayers(), winners, logic.replayData, logic.getMovesUsed(),
+                logic.getIsGameWon(), crashes);
+    }
+}
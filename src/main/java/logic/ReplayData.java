@@ -0,0 +1,260 @@
+package logic;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * positions every player visited during a race, stored as packed ints per player (see LineRasterizer.pack).
+ * For save files the positions of a player can be encoded as the change of the speed in every move, which
+ * takes four bits per move in most cases.
+ */
+public class ReplayData {
+
+    private final Moves[] moves;
+
+    /**
+     * creates empty replay data
+     *
+     * @param playerCount number of players
+     */
+    protected ReplayData(int playerCount) {
+        this.moves = new Moves[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            moves[i] = new Moves();
+        }
+    }
+
+    /**
+     * returns the positions of a player
+     *
+     * @param player number of the player
+     * @return the positions
+     */
+    public Moves get(int player) {
+        return moves[player];
+    }
+
+    /**
+     * @return number of players
+     */
+    public int size() {
+        return moves.length;
+    }
+
+    /**
+     * replaces the positions of a player
+     *
+     * @param player    number of the player
+     * @param positions the positions, nothing is changed if null
+     * @return false if the positions were null
+     */
+    protected boolean set(int player, Moves positions) {
+        if (positions == null) {
+            return false;
+        }
+        moves[player] = positions;
+        return true;
+    }
+
+    /**
+     * positions of a single player in the order they were visited
+     */
+    public static class Moves implements Iterable<Position> {
+
+        //code of a move whose change of speed does not fit into four bits, the change follows after all codes
+        private static final int ESCAPE = 15;
+
+        private int[] positions = new int[16];
+
+        private int size;
+
+        /**
+         * adds a position
+         *
+         * @param pos position
+         */
+        public void add(Position pos) {
+            add(pos.getPosX(), pos.getPosY());
+        }
+
+        /**
+         * adds a position
+         *
+         * @param x x value
+         * @param y y value
+         */
+        public void add(int x, int y) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = LineRasterizer.pack(x, y);
+        }
+
+        /**
+         * returns a position
+         *
+         * @param i index of the position
+         * @return position
+         */
+        public Position get(int i) {
+            return new Position(getX(i), getY(i));
+        }
+
+        public int getX(int i) {
+            return LineRasterizer.unpackX(packed(i));
+        }
+
+        public int getY(int i) {
+            return LineRasterizer.unpackY(packed(i));
+        }
+
+        private int packed(int i) {
+            if (i < 0 || i >= size) {
+                throw new IndexOutOfBoundsException("move " + i + " of " + size);
+            }
+            return positions[i];
+        }
+
+        /**
+         * @return number of positions
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * encodes every position after the first one as the change of speed compared to the move before,
+         * the player is expected to stand still before the first move. Changes of at most one field in
+         * both directions take four bits, other changes, like after a crash, are added at the end.
+         *
+         * @return the encoded moves
+         */
+        protected byte[] encode() {
+            ByteArrayOutputStream escapes = new ByteArrayOutputStream();
+            byte[] codes = new byte[size / 2];
+            for (int i = 1; i < size; i++) {
+                int changeX = getX(i) - 2 * getX(i - 1) + (i > 1 ? getX(i - 2) : getX(i - 1));
+                int changeY = getY(i) - 2 * getY(i - 1) + (i > 1 ? getY(i - 2) : getY(i - 1));
+                int code;
+                if (Math.abs(changeX) <= 1 && Math.abs(changeY) <= 1) {
+                    code = (changeX + 1) * 3 + changeY + 1;
+                } else {
+                    code = ESCAPE;
+                    writeVarInt(escapes, changeX);
+                    writeVarInt(escapes, changeY);
+                }
+                codes[(i - 1) >> 1] |= (byte) (code << (((i - 1) & 1) << 2));
+            }
+            byte[] data = Arrays.copyOf(codes, codes.length + escapes.size());
+            System.arraycopy(escapes.toByteArray(), 0, data, codes.length, escapes.size());
+            return data;
+        }
+
+        /**
+         * decodes moves encoded by encode
+         *
+         * @param startX x value of the first position
+         * @param startY y value of the first position
+         * @param count  number of positions including the first one
+         * @param data   the encoded moves
+         * @return the positions, null if the data does not fit to the number of positions
+         */
+        protected static Moves decode(int startX, int startY, int count, byte[] data) {
+            Moves moves = new Moves();
+            if (count == 0) {
+                return data.length == 0 ? moves : null;
+            }
+            int codeBytes = count / 2;
+            if (data.length < codeBytes) {
+                return null;
+            }
+            int[] read = {codeBytes};
+            moves.positions = new int[count];
+            moves.add(startX, startY);
+            int speedX = 0;
+            int speedY = 0;
+            for (int i = 1; i < count; i++) {
+                int code = (data[(i - 1) >> 1] >> (((i - 1) & 1) << 2)) & 0xF;
+                int changeX;
+                int changeY;
+                if (code == ESCAPE) {
+                    changeX = readVarInt(data, read);
+                    changeY = readVarInt(data, read);
+                    if (read[0] < 0) {
+                        return null;
+                    }
+                } else if (code < 9) {
+                    changeX = code / 3 - 1;
+                    changeY = code % 3 - 1;
+                } else {
+                    return null;
+                }
+                speedX += changeX;
+                speedY += changeY;
+                moves.add(moves.getX(i - 1) + speedX, moves.getY(i - 1) + speedY);
+            }
+            return read[0] == data.length ? moves : null;
+        }
+
+        /**
+         * writes a number with seven bits per byte, small negative numbers take as few bytes as positive ones
+         *
+         * @param out   target
+         * @param value the number
+         */
+        private static void writeVarInt(ByteArrayOutputStream out, int value) {
+            int zigZag = (value << 1) ^ (value >> 31);
+            while ((zigZag & ~0x7F) != 0) {
+                out.write((zigZag & 0x7F) | 0x80);
+                zigZag >>>= 7;
+            }
+            out.write(zigZag);
+        }
+
+        /**
+         * reads a number written by writeVarInt
+         *
+         * @param data  the bytes
+         * @param index position to read from, moved behind the number. Set to -1 if the data ends too early
+         * @return the number
+         */
+        private static int readVarInt(byte[] data, int[] index) {
+            int zigZag = 0;
+            for (int shift = 0; shift < 35 && index[0] >= 0; shift += 7) {
+                if (index[0] >= data.length) {
+                    index[0] = -1;
+                    return 0;
+                }
+                int b = data[index[0]++];
+                zigZag |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (zigZag >>> 1) ^ -(zigZag & 1);
+                }
+            }
+            index[0] = -1;
+            return 0;
+        }
+
+        @Override
+        public Iterator<Position> iterator() {
+            return new Iterator<>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                @Override
+                public Position next() {
+                    if (next >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    return get(next++);
+                }
+            };
+        }
+    }
+}
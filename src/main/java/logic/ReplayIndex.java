@@ -0,0 +1,203 @@
+package logic;
+
+import java.util.Arrays;
+
+/**
+ * state of every player at any move of a replay, without going through the moves before. The positions are
+ * read from the replay data, which already allows to access every move directly. The laps depend on all moves
+ * before, so they are stored every KEYFRAME_INTERVAL moves, together with the few moves where a lap changes.
+ * An index belongs to the replay data it was built for and has to be built again when moves are added.
+ */
+public class ReplayIndex {
+
+    /**
+     * number of moves between two stored states
+     */
+    protected static final int KEYFRAME_INTERVAL = 16;
+
+    private final ReplayData replayData;
+
+    //number of positions of every player when the index was built
+    private final int[] sizes;
+
+    //number of moves of the replay, counted by the first active player
+    private final int length;
+
+    //laps at every keyframe, indexed by keyframe * number of players + player
+    private final byte[] keyLaps;
+
+    //first lap change after every keyframe, indexed like keyLaps
+    private final int[] keyChanges;
+
+    //moves where the lap of a player changes and the lap after the move
+    private final int[][] changeMoves;
+    private final byte[][] changeLaps;
+
+    private ReplayIndex(ReplayData replayData, int length, int[][] changeMoves, byte[][] changeLaps,
+                        byte[] startLaps) {
+        this.replayData = replayData;
+        this.length = length;
+        this.changeMoves = changeMoves;
+        this.changeLaps = changeLaps;
+        final int playerCount = replayData.size();
+        this.sizes = new int[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            sizes[i] = replayData.get(i).size();
+        }
+        int keyframes = Math.max(1, (length + KEYFRAME_INTERVAL - 1) / KEYFRAME_INTERVAL);
+        this.keyLaps = new byte[keyframes * playerCount];
+        this.keyChanges = new int[keyframes * playerCount];
+        for (int player = 0; player < playerCount; player++) {
+            int change = 0;
+            byte lap = startLaps[player];
+            for (int k = 0; k < keyframes; k++) {
+                int move = k * KEYFRAME_INTERVAL;
+                while (change < changeMoves[player].length && changeMoves[player][change] <= move) {
+                    lap = changeLaps[player][change++];
+                }
+                keyLaps[k * playerCount + player] = lap;
+                keyChanges[k * playerCount + player] = change;
+            }
+        }
+    }
+
+    /**
+     * builds the index for the replay data of a game. The laps are calculated with the rules of the game,
+     * starting with the lap that leads to the current lap of the player.
+     *
+     * @param logic the game
+     * @return the index
+     */
+    protected static ReplayIndex build(Logic logic) {
+        ReplayData replayData = logic.replayData;
+        Player[] players = logic.getPlayers();
+        final int playerCount = replayData.size();
+        int[][] changeMoves = new int[playerCount][];
+        byte[][] changeLaps = new byte[playerCount][];
+        byte[] startLaps = new byte[playerCount];
+        for (int player = 0; player < playerCount; player++) {
+            ReplayData.Moves moves = replayData.get(player);
+            int[] lapChanges = new int[moves.size()];
+            for (int i = 1; i < moves.size(); i++) {
+                lapChanges[i] = logic.startCrossLapChange(moves.get(i - 1), moves.get(i), moves, i);
+            }
+            // a replay of a loaded game may start in a later lap
+            int finalLap = players[player] == null ? 0 : players[player].getLap();
+            for (int startLap = 0; startLap <= finalLap; startLap++) {
+                startLaps[player] = (byte) startLap;
+                if (collectLapChanges(lapChanges, startLap, changeMoves, changeLaps, player) == finalLap) {
+                    break;
+                }
+            }
+        }
+        int first = logic.findFirstActivePlayer();
+        int length = first == -1 ? 0 : replayData.get(first).size();
+        return new ReplayIndex(replayData, length, changeMoves, changeLaps, startLaps);
+    }
+
+    /**
+     * stores the moves where the lap of a player changes
+     *
+     * @param lapChanges  change of the lap in every move, see Logic.startCrossLapChange
+     * @param startLap    lap before the first move
+     * @param changeMoves target of the moves
+     * @param changeLaps  target of the laps after the moves
+     * @param player      number of the player
+     * @return lap after the last move
+     */
+    private static int collectLapChanges(int[] lapChanges, int startLap, int[][] changeMoves, byte[][] changeLaps,
+                                         int player) {
+        int[] moves = new int[4];
+        byte[] laps = new byte[4];
+        int count = 0;
+        int lap = startLap;
+        for (int i = 1; i < lapChanges.length; i++) {
+            // the lap can not get below 0, like in Player.removeLap
+            int newLap = Math.max(0, lap + lapChanges[i]);
+            if (newLap != lap) {
+                if (count == moves.length) {
+                    moves = Arrays.copyOf(moves, count * 2);
+                    laps = Arrays.copyOf(laps, count * 2);
+                }
+                moves[count] = i;
+                laps[count++] = (byte) newLap;
+                lap = newLap;
+            }
+        }
+        changeMoves[player] = Arrays.copyOf(moves, count);
+        changeLaps[player] = Arrays.copyOf(laps, count);
+        return lap;
+    }
+
+    /**
+     * @param replayData replay data of the game
+     * @return true if the index belongs to the replay data and no moves were added since it was built
+     */
+    protected boolean isUpToDate(ReplayData replayData) {
+        if (this.replayData != replayData) {
+            return false;
+        }
+        for (int i = 0; i < sizes.length; i++) {
+            if (sizes[i] != replayData.get(i).size()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return number of moves, the last one is length - 1
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @param player number of the player
+     * @param move   number of the move
+     * @return x value of the player after the move, players with less moves stay at their last position
+     */
+    public int getX(int player, int move) {
+        return sizes[player] == 0 ? 0 : replayData.get(player).getX(clamp(player, move));
+    }
+
+    /**
+     * @param player number of the player
+     * @param move   number of the move
+     * @return y value of the player after the move, players with less moves stay at their last position
+     */
+    public int getY(int player, int move) {
+        return sizes[player] == 0 ? 0 : replayData.get(player).getY(clamp(player, move));
+    }
+
+    /**
+     * @param player number of the player
+     * @param move   number of the move
+     * @return position of the player after the move
+     */
+    public Position getPosition(int player, int move) {
+        return new Position(getX(player, move), getY(player, move));
+    }
+
+    /**
+     * returns the lap of a player after a move, starting from the keyframe before the move
+     *
+     * @param player number of the player
+     * @param move   number of the move
+     * @return lap
+     */
+    public int getLap(int player, int move) {
+        int clamped = Math.max(0, move);
+        int keyframe = Math.min(clamped / KEYFRAME_INTERVAL, keyLaps.length / sizes.length - 1);
+        int lap = keyLaps[keyframe * sizes.length + player];
+        int[] moves = changeMoves[player];
+        for (int i = keyChanges[keyframe * sizes.length + player]; i < moves.length && moves[i] <= clamped; i++) {
+            lap = changeLaps[player][i];
+        }
+        return lap;
+    }
+
+    private int clamp(int player, int move) {
+        return Math.max(0, Math.min(move, sizes[player] - 1));
+    }
+}
@@ -0,0 +1,80 @@
+package logic;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * table of the routes of all moves a car can make, a route only depends on the distance travelled so it is
+ * calculated once per (dx, dy) and shared by all games. Entries are created when they are first needed.
+ */
+public final class RouteTable {
+
+    //largest distance in one direction the table holds, boards are at most 40 fields long and a possible field
+    //can be one field outside the board
+    public static final int MAX_DISPLACEMENT = 41;
+
+    private static final int SIDE = 2 * MAX_DISPLACEMENT + 1;
+
+    //packed field offsets relative to the start of the route, see LineRasterizer
+    private static final AtomicReferenceArray<int[]> ROUTES = new AtomicReferenceArray<>(SIDE * SIDE);
+
+    private RouteTable() {
+    }
+
+    /**
+     * checks if the table holds the route for the given distance
+     *
+     * @param dx distance in x direction
+     * @param dy distance in y direction
+     * @return true if inside the table
+     */
+    public static boolean contains(int dx, int dy) {
+        return Math.abs(dx) <= MAX_DISPLACEMENT && Math.abs(dy) <= MAX_DISPLACEMENT;
+    }
+
+    /**
+     * returns the packed field offsets of the route for the given distance. The returned array is shared and
+     * must not be changed.
+     *
+     * @param dx distance in x direction, see contains
+     * @param dy distance in y direction, see contains
+     * @return offsets of all fields on the route relative to its start
+     */
+    public static int[] offsets(int dx, int dy) {
+        int index = (dx + MAX_DISPLACEMENT) * SIDE + dy + MAX_DISPLACEMENT;
+        int[] offsets = ROUTES.get(index);
+        if (offsets == null) {
+            offsets = new int[LineRasterizer.routeLength(0, 0, dx, dy)];
+            LineRasterizer.rasterize(0, 0, dx, dy, offsets);
+            //a route calculated twice by different threads is equal, so whichever is stored first is kept
+            if (!ROUTES.compareAndSet(index, null, offsets)) {
+                offsets = ROUTES.get(index);
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * writes the packed fields of the route into the given buffer, the buffer has to be at least
+     * LineRasterizer.routeLength long. Routes longer than the table are calculated directly.
+     *
+     * @param startX  x of start
+     * @param startY  y of start
+     * @param targetX x of target
+     * @param targetY y of target
+     * @param buffer  buffer the fields are written into
+     * @return number of fields written
+     */
+    public static int route(int startX, int startY, int targetX, int targetY, int[] buffer) {
+        int dx = targetX - startX;
+        int dy = targetY - startY;
+        if (!contains(dx, dy)) {
+            return LineRasterizer.rasterize(startX, startY, targetX, targetY, buffer);
+        }
+        int[] offsets = offsets(dx, dy);
+        int start = LineRasterizer.pack(startX, startY);
+        for (int i = 0; i < offsets.length; i++) {
+            buffer[i] = start + offsets[i];
+        }
+        return offsets.length;
+    }
+}
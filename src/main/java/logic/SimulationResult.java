@@ -0,0 +1,63 @@
+package logic;
+
+/**
+ * final state of a race that was simulated without a gui
+ */
+public class SimulationResult {
+
+    private final Player[] players;
+
+    private final Player[] winners;
+
+    private final ReplayData replayData;
+
+    private final int movesUsed;
+
+    private final boolean gameWon;
+
+    private final int[] crashes;
+
+    protected SimulationResult(Player[] players, Player[] winners, ReplayData replayData,
+                               int movesUsed, boolean gameWon, int[] crashes) {
+        this.players = players;
+        this.winners = winners;
+        this.replayData = replayData;
+        this.movesUsed = movesUsed;
+        this.gameWon = gameWon;
+        this.crashes = crashes;
+    }
+
+    //Getters
+    public Player[] getPlayers() {
+        return players;
+    }
+
+    /**
+     * returns the winning players at their player index, the other indices are null
+     *
+     * @return winning player array, all null if the race was not won within the move limit
+     */
+    public Player[] getWinners() {
+        return winners;
+    }
+
+    public ReplayData getReplayData() {
+        return replayData;
+    }
+
+    public int getMovesUsed() {
+        return movesUsed;
+    }
+
+    public boolean isGameWon() {
+        return gameWon;
+    }
+
+    /**
+     * @param player number of the player
+     * @return number of moves of the player that ended in a crash
+     */
+    public int getCrashes(int player) {
+        return crashes[player];
+    }
+}
@@ -0,0 +1,41 @@
+package logic;
+
+/**
+ * storage of the surfaces of a map, one byte per field holding the ordinal of its surface.
+ * Fields that were never set are gravel.
+ */
+public interface SurfaceStore {
+
+    /**
+     * @return x length of the map
+     */
+    int getWidth();
+
+    /**
+     * @return y length of the map
+     */
+    int getHeight();
+
+    /**
+     * returns the surface ordinal of a field
+     *
+     * @param x x value, has to be inside the map
+     * @param y y value, has to be inside the map
+     * @return ordinal of the surface
+     */
+    byte get(int x, int y);
+
+    /**
+     * changes the surface ordinal of a field
+     *
+     * @param x     x value, has to be inside the map
+     * @param y     y value, has to be inside the map
+     * @param value ordinal of the surface
+     */
+    void set(int x, int y, byte value);
+
+    /**
+     * @return an independent store with the same fields
+     */
+    SurfaceStore copy();
+}
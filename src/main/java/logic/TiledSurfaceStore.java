@@ -0,0 +1,242 @@
+package logic;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * surfaces of a map kept in a memory mapped file instead of the heap, for maps too big for an array.
+ * The file is split into square tiles of TILE_SIZE * TILE_SIZE fields, a tile is mapped when one of its
+ * fields is first used, so only the parts of the map that are looked at are loaded.
+ * A copy shares the file with the store it was made from. Once the file is shared it is not written anymore,
+ * a tile that is changed afterwards is copied onto the heap of the changing store first. The file is closed
+ * when no store uses it anymore, a temporary file is deleted with it.
+ */
+public class TiledSurfaceStore implements SurfaceStore {
+
+    //fields per tile side as power of two
+    private static final int TILE_SHIFT = 8;
+
+    /**
+     * number of fields per tile side
+     */
+    public static final int TILE_SIZE = 1 << TILE_SHIFT;
+
+    private static final int TILE_MASK = TILE_SIZE - 1;
+
+    private static final int TILE_BYTES = TILE_SIZE * TILE_SIZE;
+
+    //closes the files no store uses anymore
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final int width;
+
+    private final int height;
+
+    //number of tiles in x direction
+    private final int tilesX;
+
+    private final TileFile file;
+
+    //tiles row after row, null until the tile is first used. Mapped tiles are direct buffers, tiles copied
+    //onto the heap belong to this store only
+    private final AtomicReferenceArray<ByteBuffer> tiles;
+
+    /**
+     * file the tiles are mapped from, shared by a store and its copies
+     */
+    private static final class TileFile {
+
+        private final FileChannel channel;
+
+        //true once a copy uses the file, from then on it is only read
+        private volatile boolean shared;
+
+        private TileFile(Path path, long length, OpenOption... options) throws IOException {
+            this.channel = FileChannel.open(path, options);
+            CLEANER.register(this, new Closer(channel));
+            if (channel.size() < length) {
+                //writing the last byte extends the file, the gap is not written to the disk
+                channel.write(ByteBuffer.allocate(1), length - 1);
+            }
+        }
+    }
+
+    /**
+     * closes the channel of a file no store uses anymore
+     *
+     * @param channel the channel
+     */
+    private record Closer(FileChannel channel) implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                //nothing is written through the channel, so there is nothing to lose
+            }
+        }
+    }
+
+    /**
+     * opens a map stored in a file, the file is created or extended to the needed size. New fields are gravel.
+     *
+     * @param file   file of the map
+     * @param width  x length
+     * @param height y length
+     * @throws IOException if the file can not be opened
+     */
+    protected TiledSurfaceStore(Path file, int width, int height) throws IOException {
+        this(new TileFile(file, fileLength(width, height), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE), width, height, null);
+    }
+
+    /**
+     * @param file   file of the map
+     * @param width  x length
+     * @param height y length
+     * @param tiles  tiles already used, null if there are none
+     */
+    private TiledSurfaceStore(TileFile file, int width, int height, AtomicReferenceArray<ByteBuffer> tiles) {
+        this.width = width;
+        this.height = height;
+        this.tilesX = (width + TILE_MASK) >> TILE_SHIFT;
+        this.file = file;
+        this.tiles = tiles != null ? tiles
+                : new AtomicReferenceArray<>(tilesX * ((height + TILE_MASK) >> TILE_SHIFT));
+    }
+
+    private static long fileLength(int width, int height) {
+        return (long) ((width + TILE_MASK) >> TILE_SHIFT) * ((height + TILE_MASK) >> TILE_SHIFT) * TILE_BYTES;
+    }
+
+    /**
+     * creates a map of the given size only containing gravel in a temporary file. The file is deleted when no
+     * store uses it anymore or the program ends.
+     *
+     * @param width  x length
+     * @param height y length
+     * @return the store
+     */
+    protected static TiledSurfaceStore createTemporary(int width, int height) {
+        try {
+            Path path = Files.createTempFile("racetrack", ".tiles");
+            path.toFile().deleteOnExit();
+            return new TiledSurfaceStore(new TileFile(path, fileLength(width, height), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE), width, height, null);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public byte get(int x, int y) {
+        return tile(tileIndex(x, y)).get(offset(x, y));
+    }
+
+    @Override
+    public void set(int x, int y, byte value) {
+        final int index = tileIndex(x, y);
+        ByteBuffer tile = tile(index);
+        if (tile.isDirect() && file.shared) {
+            tile = copyOf(tile);
+            tiles.set(index, tile);
+        }
+        tile.put(offset(x, y), value);
+    }
+
+    /**
+     * returns a tile and maps it if it is used the first time
+     *
+     * @param index number of the tile
+     * @return the tile
+     */
+    private ByteBuffer tile(int index) {
+        ByteBuffer tile = tiles.get(index);
+        if (tile == null) {
+            try {
+                tile = file.channel.map(FileChannel.MapMode.READ_WRITE, (long) index * TILE_BYTES, TILE_BYTES);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            //both mappings show the same part of the file, so whichever is stored first is kept
+            if (!tiles.compareAndSet(index, null, tile)) {
+                tile = tiles.get(index);
+            }
+        }
+        return tile;
+    }
+
+    private int tileIndex(int x, int y) {
+        return (y >> TILE_SHIFT) * tilesX + (x >> TILE_SHIFT);
+    }
+
+    private static int offset(int x, int y) {
+        return ((y & TILE_MASK) << TILE_SHIFT) | (x & TILE_MASK);
+    }
+
+    private static ByteBuffer copyOf(ByteBuffer tile) {
+        return ByteBuffer.allocate(TILE_BYTES).put(0, tile, 0, TILE_BYTES);
+    }
+
+    /**
+     * @return number of tiles that have been mapped or copied
+     */
+    public int getMappedTileCount() {
+        int count = 0;
+        for (int i = 0; i < tiles.length(); i++) {
+            if (tiles.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return number of tiles that were changed after the file was shared and are kept on the heap
+     */
+    protected int getCopiedTileCount() {
+        int count = 0;
+        for (int i = 0; i < tiles.length(); i++) {
+            if (tiles.get(i) != null && !tiles.get(i).isDirect()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * shares the file with the copy, only the tiles this store already copied onto the heap are copied again
+     *
+     * @return the copy
+     */
+    @Override
+    public SurfaceStore copy() {
+        file.shared = true;
+        AtomicReferenceArray<ByteBuffer> copied = new AtomicReferenceArray<>(tiles.length());
+        for (int i = 0; i < tiles.length(); i++) {
+            ByteBuffer tile = tiles.get(i);
+            if (tile != null) {
+                copied.set(i, tile.isDirect() ? tile : copyOf(tile));
+            }
+        }
+        return new TiledSurfaceStore(file, width, height, copied);
+    }
+}
@@ -0,0 +1,74 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * runs many AI races on one track at the same time. Every race has its own logic, the track is created once and
+ * only read by all races.
+ */
+public class Tournament {
+
+    private Tournament() {
+    }
+
+    /**
+     * runs the races on all cores
+     *
+     * @param board     board the races take place on, has to be valid for a race
+     * @param direction direction the starting line has to be crossed
+     * @param races     players of every race, every active player has to be an AI
+     * @param maxMoves  maximum number of moves of a race
+     * @return results of all races
+     */
+    public static TournamentResult run(Board board, StartCrossDirection direction, List<Player[]> races,
+                                       int maxMoves) {
+        return run(board, direction, races, maxMoves, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * runs the races on the given number of threads, the board is copied into a track first
+     *
+     * @param board       board the races take place on, has to be valid for a race
+     * @param direction   direction the starting line has to be crossed
+     * @param races       players of every race, every active player has to be an AI
+     * @param maxMoves    maximum number of moves of a race
+     * @param parallelism number of races that run at the same time
+     * @return results of all races
+     */
+    public static TournamentResult run(Board board, StartCrossDirection direction, List<Player[]> races,
+                                       int maxMoves, int parallelism) {
+        return run(Track.of(board, direction), races, maxMoves, parallelism);
+    }
+
+    /**
+     * runs the races on the given number of threads
+     *
+     * @param track       track the races take place on, has to be valid for a race
+     * @param races       players of every race, every active player has to be an AI
+     * @param maxMoves    maximum number of moves of a race
+     * @param parallelism number of races that run at the same time
+     * @return results of all races
+     */
+    public static TournamentResult run(Track track, List<Player[]> races, int maxMoves, int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<SimulationResult> results = pool.submit(() -> races.parallelStream()
+                    .map(players -> RaceSimulator.simulate(track, players, maxMoves))
+                    .toList()).get();
+            return new TournamentResult(races, new ArrayList<>(results));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package logic;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * results of all races of a tournament, players are told apart by their names
+ */
+public class TournamentResult {
+
+    private final List<SimulationResult> results;
+
+    //races, wins and crashes of every player name
+    private final Map<String, int[]> playerStats = new LinkedHashMap<>();
+
+    private static final int RACES = 0;
+    private static final int WINS = 1;
+    private static final int CRASHES = 2;
+
+    private int wonRaces;
+
+    private long totalMoves;
+
+    private long totalCrashes;
+
+    /**
+     * @param races   players of every race
+     * @param results results of the races in the same order
+     */
+    protected TournamentResult(List<Player[]> races, List<SimulationResult> results) {
+        this.results = Collections.unmodifiableList(results);
+        for (int race = 0; race < results.size(); race++) {
+            Player[] players = races.get(race);
+            SimulationResult result = results.get(race);
+            if (result.isGameWon()) {
+                wonRaces++;
+            }
+            totalMoves += result.getMovesUsed();
+            for (int i = 0; i < players.length; i++) {
+                if (players[i].isActive()) {
+                    int[] stats = playerStats.computeIfAbsent(players[i].getName(), name -> new int[3]);
+                    stats[RACES]++;
+                    stats[CRASHES] += result.getCrashes(i);
+                    totalCrashes += result.getCrashes(i);
+                    if (result.getWinners()[i] != null) {
+                        stats[WINS]++;
+                    }
+                }
+            }
+        }
+    }
+
+    //Getters
+    public List<SimulationResult> getResults() {
+        return results;
+    }
+
+    public int getRaces() {
+        return results.size();
+    }
+
+    /**
+     * @return number of races that were won within the move limit
+     */
+    public int getWonRaces() {
+        return wonRaces;
+    }
+
+    /**
+     * @return average number of moves of a race, 0 if there were no races
+     */
+    public double getAverageMoves() {
+        return results.isEmpty() ? 0 : (double) totalMoves / results.size();
+    }
+
+    /**
+     * @return number of crashes in all races
+     */
+    public long getCrashes() {
+        return totalCrashes;
+    }
+
+    /**
+     * @return names of all players that took part
+     */
+    public Set<String> getPlayerNames() {
+        return Collections.unmodifiableSet(playerStats.keySet());
+    }
+
+    /**
+     * @param name name of the player
+     * @return share of the races of the player the player won, shared wins count for everyone, 0 if the player
+     * took part in no race
+     */
+    public double getWinRate(String name) {
+        int[] stats = playerStats.get(name);
+        return stats == null ? 0 : (double) stats[WINS] / stats[RACES];
+    }
+
+    /**
+     * @param name name of the player
+     * @return number of crashes of the player in all races
+     */
+    public int getCrashes(String name) {
+        int[] stats = playerStats.get(name);
+        return stats == null ? 0 : stats[CRASHES];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(getRaces()).append(" races, ").append(wonRaces).append(" won, ")
+                .append(String.format("%.1f", getAverageMoves())).append(" moves on average, ")
+                .append(totalCrashes).append(" crashes\n");
+        for (Map.Entry<String, int[]> entry : playerStats.entrySet()) {
+            int[] stats = entry.getValue();
+            sb.append(entry.getKey()).append(": ").append(stats[WINS]).append('/').append(stats[RACES])
+                    .append(" wins, ").append(stats[CRASHES]).append(" crashes\n");
+        }
+        return sb.toString();
+    }
+}
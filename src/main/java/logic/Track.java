@@ -0,0 +1,136 @@
+package logic;
+
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * map of a race that never changes, so any number of games can share it, also from different threads. It holds
+ * the surfaces, the starting line, the direction the line has to be crossed, the distance values of the AI and
+ * the result of checking the map for a race. All of it is calculated when the track is created. A game on a
+ * track only keeps its players and moves, see Logic(GUIConnector, Track, Player[]).
+ */
+public final class Track {
+
+    private final Board board;
+
+    private final StartCrossDirection direction;
+
+    private final List<Position> startingLine;
+
+    private final ErrorCodes boardError;
+
+    private final DistanceField distanceValues;
+
+    /**
+     * @param board     the map, it is owned by the track and must not be changed by anyone else
+     * @param direction direction the starting line has to be crossed
+     */
+    private Track(Board board, StartCrossDirection direction) {
+        this.board = board;
+        this.direction = direction;
+        this.startingLine = Collections.unmodifiableList(board.getCurrStartingLine());
+        this.boardError = board.isBoardValidForRace(board);
+        this.distanceValues = DistanceFieldCache.get().lookup(board, direction);
+    }
+
+    /**
+     * creates a track from a copy of a board, the board can be changed afterwards without changing the track
+     *
+     * @param board     the map
+     * @param direction direction the starting line has to be crossed
+     * @return the track
+     */
+    public static Track of(Board board, StartCrossDirection direction) {
+        return new Track(board.copy(), direction);
+    }
+
+    /**
+     * reads the map of a saved game, the players of the game are ignored
+     *
+     * @param file json or track file of the game
+     * @return the track, null if the file is no game or its map has wrong contents
+     */
+    public static Track load(Path file) {
+        if (file.getFileName().toString().endsWith(TrackFile.EXTENSION)) {
+            TrackFile trackFile = TrackFile.read(file);
+            if (trackFile == null || trackFile.getBoardError() != ErrorCodes.NoError) {
+                return null;
+            }
+            StartCrossDirection direction = convertDirection(trackFile.getDirection());
+            return direction == null ? null : new Track(trackFile.getBoard(), direction);
+        }
+        GameFromAndToJSON game;
+        try {
+            game = GameCodec.read(file);
+        } catch (JsonParseException e) {
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        if (game == null || new Board().isBoardValid(game.getTrack()) != ErrorCodes.NoError) {
+            return null;
+        }
+        StartCrossDirection direction = convertDirection(game.getDirection());
+        if (direction == null) {
+            return null;
+        }
+        Board board = new Board();
+        board.setValues(Board.convertBoardIntToStates(game.getTrack()));
+        return new Track(board, direction);
+    }
+
+    /**
+     * @param direction direction as saved in files, 0 up, 1 right, 2 down, 3 left
+     * @return the direction, null if the value is no direction
+     */
+    private static StartCrossDirection convertDirection(int direction) {
+        return switch (direction) {
+            case 0 -> StartCrossDirection.UP;
+            case 1 -> StartCrossDirection.RIGHT;
+            case 2 -> StartCrossDirection.DOWN;
+            case 3 -> StartCrossDirection.LEFT;
+            default -> null;
+        };
+    }
+
+    //Getters
+    /**
+     * @return the map, only games on the track may use it and they must not change it
+     */
+    protected Board getBoard() {
+        return board;
+    }
+
+    /**
+     * @return read only view of the map
+     */
+    public BoardView getView() {
+        return board.view();
+    }
+
+    public StartCrossDirection getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return fields of the starting line
+     */
+    public List<Position> getStartingLine() {
+        return startingLine;
+    }
+
+    /**
+     * @return NoError if races can take place on the track, otherwise what is wrong with the map
+     */
+    public ErrorCodes getBoardError() {
+        return boardError;
+    }
+
+    public DistanceField getDistanceValues() {
+        return distanceValues;
+    }
+}
@@ -0,0 +1,333 @@
+package logic;
+
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * game saved in the binary track format. A file starts with a header holding the version, the size of the map,
+ * the direction, the current player and the players, followed by the surfaces packed into two bits per field,
+ * row after row. Files are read through a memory mapping, so no text has to be parsed.
+ */
+public class TrackFile {
+
+    /**
+     * file extension of track files
+     */
+    public static final String EXTENSION = ".track";
+
+    //"RTRK" as the first four bytes of every file
+    private static final int MAGIC = 0x5254524B;
+
+    private static final short VERSION = 1;
+
+    //flags of a player in the player block
+    private static final byte ACTIVE = 1;
+    private static final byte AI = 2;
+
+    private static final int SURFACE_BITS = 2;
+    private static final int FIELDS_PER_BYTE = 8 / SURFACE_BITS;
+    private static final int SURFACE_MASK = (1 << SURFACE_BITS) - 1;
+
+    //bytes written at once when saving
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private static final Surfaces[] SURFACES = Surfaces.values();
+
+    /**
+     * largest x and y length of a map. Routes pack coordinates into 16 bits, see LineRasterizer.pack, and fields
+     * are indexed by ints, which both stay in range up to this size
+     */
+    public static final int MAX_SIDE = Short.MAX_VALUE;
+
+    //bytes of a player with an empty name in the player block
+    private static final int MIN_PLAYER_BYTES = 20;
+
+    private final Board board;
+
+    private final int direction;
+
+    private final int currentPlayer;
+
+    private final Player[] players;
+
+    //result of checking the size, players and surfaces while they were read
+    private final ErrorCodes boardError;
+
+    private TrackFile(Board board, int direction, int currentPlayer, Player[] players, ErrorCodes boardError) {
+        this.board = board;
+        this.direction = direction;
+        this.currentPlayer = currentPlayer;
+        this.players = players;
+        this.boardError = boardError;
+    }
+
+    //Getters and Setters
+    protected Board getBoard() {
+        return board;
+    }
+
+    protected int getDirection() {
+        return direction;
+    }
+
+    protected int getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    protected Player[] getPlayers() {
+        return players;
+    }
+
+    /**
+     * @return NoError, WrongBoardSize if the map is smaller than 10 or larger than MAX_SIDE fields in any
+     * direction, InvalidPLayerData if the file is too short for the number of players or WrongBoardContents if
+     * a field has no valid surface. The board and players are only set with NoError or WrongBoardContents
+     */
+    protected ErrorCodes getBoardError() {
+        return boardError;
+    }
+
+    /**
+     * reads a track file
+     *
+     * @param file the file
+     * @return the read game, null if the file is not a track file of a known version or is incomplete
+     */
+    protected static TrackFile read(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * reads a game from a buffer holding a track file
+     *
+     * @param buffer the file content
+     * @return the read game, null if the content is not a track file of a known version or is incomplete
+     */
+    private static TrackFile read(ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                return null;
+            }
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            int direction = buffer.get();
+            int currentPlayer = buffer.getInt();
+            int playerCount = buffer.getInt();
+            if (width <= 0 || height <= 0 || playerCount < 0) {
+                return null;
+            }
+            if (width > MAX_SIDE || height > MAX_SIDE) {
+                return new TrackFile(null, direction, currentPlayer, null, ErrorCodes.WrongBoardSize);
+            }
+            // checked before the players are created, so a broken count does not allocate huge arrays
+            if (playerCount > buffer.remaining() / MIN_PLAYER_BYTES) {
+                return new TrackFile(null, direction, currentPlayer, null, ErrorCodes.InvalidPLayerData);
+            }
+            Player[] players = readPlayers(buffer, playerCount);
+            long packedLength = ((long) width * height + FIELDS_PER_BYTE - 1) / FIELDS_PER_BYTE;
+            if (buffer.remaining() < packedLength) {
+                return null;
+            }
+            SurfaceStore store = Board.createStore(width, height);
+            boolean validContent = unpack(buffer, store);
+            ErrorCodes boardError = width < 10 || height < 10 ? ErrorCodes.WrongBoardSize
+                    : validContent ? ErrorCodes.NoError : ErrorCodes.WrongBoardContents;
+            return new TrackFile(new Board(store), direction, currentPlayer, players, boardError);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    /**
+     * reads the player block, all players share one state
+     *
+     * @param buffer      the file content, positioned at the player block
+     * @param playerCount number of players in the block
+     * @return the players
+     */
+    private static Player[] readPlayers(ByteBuffer buffer, int playerCount) {
+        PlayerState state = new PlayerState(playerCount);
+        Player[] players = new Player[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            byte flags = buffer.get();
+            state.setActive(i, (flags & ACTIVE) != 0);
+            state.setAI(i, (flags & AI) != 0);
+            state.setLap(i, buffer.get());
+            state.setPosition(i, buffer.getInt(), buffer.getInt());
+            state.setLastPosition(i, buffer.getInt(), buffer.getInt());
+            byte[] name = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(name);
+            state.setName(i, new String(name, StandardCharsets.UTF_8));
+            players[i] = new Player(state, i);
+        }
+        return players;
+    }
+
+    /**
+     * writes the packed surfaces into a store
+     *
+     * @param buffer the file content, positioned at the surfaces
+     * @param store  store of the size of the map
+     * @return false if a field has no valid surface, such fields are gravel
+     */
+    private static boolean unpack(ByteBuffer buffer, SurfaceStore store) {
+        final int width = store.getWidth();
+        final int height = store.getHeight();
+        boolean valid = true;
+        int packed = 0;
+        long field = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++, field++) {
+                int shift = (int) (field % FIELDS_PER_BYTE) * SURFACE_BITS;
+                if (shift == 0) {
+                    packed = buffer.get();
+                }
+                int value = (packed >> shift) & SURFACE_MASK;
+                if (value >= SURFACES.length) {
+                    valid = false;
+                } else if (value != 0) {
+                    store.set(x, y, (byte) value);
+                }
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * writes a game to a track file
+     *
+     * @param file          the file, replaced if it exists
+     * @param board         the map
+     * @param direction     direction the starting line has to be crossed, 0 up, 1 right, 2 down, 3 left
+     * @param currentPlayer current player
+     * @param players       players of the game
+     */
+    protected static void write(Path file, BoardView board, int direction, int currentPlayer, Player[] players) {
+        final int width = board.getWidth();
+        final int height = board.getHeight();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            buffer.putInt(MAGIC).putShort(VERSION).putInt(width).putInt(height).put((byte) direction)
+                    .putInt(currentPlayer).putInt(players.length);
+            for (Player p : players) {
+                byte[] name = p.getName().getBytes(StandardCharsets.UTF_8);
+                if (buffer.remaining() < 20 + name.length) {
+                    flush(channel, buffer);
+                }
+                buffer.put((byte) ((p.isActive() ? ACTIVE : 0) | (p.isAI() ? AI : 0))).put(p.getLap())
+                        .putInt(p.getCurrentPos().getPosX()).putInt(p.getCurrentPos().getPosY())
+                        .putInt(p.getLastPos().getPosX()).putInt(p.getLastPos().getPosY())
+                        .putShort((short) name.length).put(name);
+            }
+            int packed = 0;
+            long field = 0;
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++, field++) {
+                    int shift = (int) (field % FIELDS_PER_BYTE) * SURFACE_BITS;
+                    packed |= board.surfaceAt(x, y).ordinal() << shift;
+                    if (shift == 8 - SURFACE_BITS) {
+                        if (!buffer.hasRemaining()) {
+                            flush(channel, buffer);
+                        }
+                        buffer.put((byte) packed);
+                        packed = 0;
+                    }
+                }
+            }
+            if (field % FIELDS_PER_BYTE != 0) {
+                if (!buffer.hasRemaining()) {
+                    flush(channel, buffer);
+                }
+                buffer.put((byte) packed);
+            }
+            flush(channel, buffer);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * writes the content of a buffer to a channel and empties the buffer
+     *
+     * @param channel target
+     * @param buffer  buffer that is filled
+     * @throws IOException if writing fails
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * converts a game saved as json into a track file
+     *
+     * @param json   the json content
+     * @param target the track file that is written
+     * @return NoError, or the error the json game has. Nothing is written in case of an error
+     */
+    protected static ErrorCodes convertJson(Reader json, Path target) {
+        GameFromAndToJSON game;
+        try {
+            game = GameCodec.read(json);
+        } catch (JsonParseException e) {
+            return ErrorCodes.WrongMapSyntax;
+        }
+        if (game == null) {
+            return ErrorCodes.WrongMapSyntax;
+        }
+        ErrorCodes errorCode = new Board().isBoardValid(game.getTrack());
+        if (errorCode != ErrorCodes.NoError) {
+            return errorCode;
+        }
+        Player[] players = game.getPlayers();
+        if (players == null) {
+            return ErrorCodes.InvalidPLayerData;
+        }
+        Board board = new Board();
+        board.setValues(Board.convertBoardIntToStates(game.getTrack()));
+        write(target, board, game.getDirection(), game.getCurrentPlayer(), players);
+        return ErrorCodes.NoError;
+    }
+
+    /**
+     * converts json games into track files next to them
+     *
+     * @param args paths of the json files
+     */
+    public static void main(String[] args) {
+        for (String arg : args) {
+            Path source = Path.of(arg);
+            String name = source.getFileName().toString();
+            Path target = source.resolveSibling(name.replaceFirst("\\.json$", "") + EXTENSION);
+            ErrorCodes errorCode;
+            try (Reader reader = Files.newBufferedReader(source)) {
+                errorCode = convertJson(reader, target);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            System.out.println(source + " -> " + (errorCode == ErrorCodes.NoError ? target : errorCode));
+        }
+    }
+}
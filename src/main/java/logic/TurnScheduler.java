@@ -0,0 +1,38 @@
+package logic;
+
+import java.util.ArrayDeque;
+
+/**
+ * runs the turns of a game one after the other. A turn that is started while another one is running, for example
+ * by a gui that answers at once instead of after an animation, is queued and run when the current one is done.
+ * So races of any length need the same stack depth.
+ */
+public class TurnScheduler {
+
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+
+    //true while the queue is worked off
+    private boolean running;
+
+    /**
+     * runs a turn at once, or after the running one if it was started from inside a turn
+     *
+     * @param turn the turn
+     */
+    protected void schedule(Runnable turn) {
+        queue.add(turn);
+        if (running) {
+            return;
+        }
+        running = true;
+        try {
+            Runnable next;
+            while ((next = queue.poll()) != null) {
+                next.run();
+            }
+        } finally {
+            running = false;
+            queue.clear();
+        }
+    }
+}
@@ -1,7 +1,26 @@
 package logic;
 
+import com.google.gson.Gson;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
 import static org.junit.Assert.*;
 
 /**
@@ -322,7 +341,7 @@ public class LogicTest {
         }
         players[0].setActive(true);
         Logic logic = new Logic(new FakeGUI(), s, 10, 5, StartCrossDirection.RIGHT, players, true);
-        assertTrue(logic.getBoard().isValidPositionInGameMode(players, new Position(1,1),
+        assertTrue(logic.getOwnBoard().isValidPositionInGameMode(players, new Position(1,1),
                 0, GameMode.Preparation_Mode));
     }
 
@@ -339,7 +358,7 @@ public class LogicTest {
         }
         players[0].setActive(true);
         Logic logic = new Logic(new FakeGUI(), s, 10, 5, StartCrossDirection.RIGHT, players, true);
-        assertFalse(logic.getBoard().isValidPositionInGameMode(players, new Position(0,0),
+        assertFalse(logic.getOwnBoard().isValidPositionInGameMode(players, new Position(0,0),
                0, GameMode.Preparation_Mode));
     }
 
@@ -358,7 +377,7 @@ public class LogicTest {
         players[1].setActive(true);
         players[1].setCurrPos(new Position(1,1));
         Logic logic = new Logic(new FakeGUI(), s, 10, 5, StartCrossDirection.RIGHT, players, true);
-        assertFalse(logic.getBoard().isValidPositionInGameMode(players, new Position(1,1),
+        assertFalse(logic.getOwnBoard().isValidPositionInGameMode(players, new Position(1,1),
                 0, GameMode.Race_Mode));
     }
 
@@ -523,7 +542,7 @@ public class LogicTest {
                         "0000000000\n" +
                         "0111111000\n" +
                         "0100001000\n";
-        assertEquals(result, logic.getBoard().boardToString());
+        assertEquals(result, logic.getOwnBoard().boardToString());
     }
 
     @Test
@@ -536,7 +555,7 @@ public class LogicTest {
         String result = "00000000000\n" +
                         "01111110000\n" +
                         "01000010000\n";
-        assertEquals(result, logic.getBoard().boardToString());
+        assertEquals(result, logic.getOwnBoard().boardToString());
     }
     @Test
     public void addLineLeft() {
@@ -562,7 +581,7 @@ public class LogicTest {
                         "00002010100\n" +
                         "00002110100\n" +
                         "00000011100\n";
-        assertEquals(result, logic.getBoard().boardToString());
+        assertEquals(result, logic.getOwnBoard().boardToString());
     }
     @Test
     public void addLineBottom() {
@@ -589,6 +608,919 @@ public class LogicTest {
                         "0002110100\n" +
                         "0000011100\n" +
                         "0000000000\n";
-        assertEquals(result, logic.getBoard().boardToString());
+        assertEquals(result, logic.getOwnBoard().boardToString());
+    }
+
+    @Test
+    public void simulateAIRaceHeadless() {
+        Logic logic = new Logic(new FakeGUI());
+        logic.getGameFromJson("maps/SimpleOval.json");
+        Player[] players = new Player[4];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new Player(i < 2, true, "AI " + i, new Position(0, 0), new Position(0, 0), (byte) 0);
+        }
+        SimulationResult result = RaceSimulator.simulate(logic.getOwnBoard(), logic.getDir(), players, 500);
+        assertTrue(result.isGameWon());
+        assertTrue(result.getMovesUsed() > 0);
+        assertEquals(result.getMovesUsed(), result.getReplayData().get(0).size());
+        assertTrue(result.getWinners()[0] != null || result.getWinners()[1] != null);
+        assertEquals(0, players[0].getLap());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void simulateRejectsHumanPlayers() {
+        Logic logic = new Logic(new FakeGUI());
+        logic.getGameFromJson("maps/SimpleOval.json");
+        Player[] players = {new Player(true, false, "Human", new Position(0, 0), new Position(0, 0), (byte) 0)};
+        RaceSimulator.simulate(logic.getOwnBoard(), logic.getDir(), players, 500);
+    }
+
+    @Test
+    public void plannedAIRaceWithoutCrash() {
+        Logic logic = new Logic(new FakeGUI());
+        logic.getGameFromJson("maps/SimpleOval.json");
+        Player[] players = new Player[4];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new Player(i == 0, true, "AI " + i, new Position(0, 0), new Position(0, 0), (byte) 0);
+        }
+        SimulationResult result = RaceSimulator.simulate(logic.getOwnBoard(), logic.getDir(), players, 500);
+        assertTrue(result.isGameWon());
+        // the greedy AI needs 20 moves on this map
+        assertTrue(result.getMovesUsed() <= 18);
+        for (Position pos : result.getReplayData().get(0)) {
+            assertNotEquals(Surfaces.GRAVEL, logic.getOwnBoard().getSurfaceAt(pos));
+        }
+    }
+
+    @Test
+    public void rasterizerMatchesRounding() {
+        int[] buffer = new int[64];
+        for (int dx = -30; dx <= 30; dx++) {
+            for (int dy = -30; dy <= 30; dy++) {
+                int length = LineRasterizer.rasterize(5, 7, 5 + dx, 7 + dy, buffer);
+                assertEquals(Math.max(Math.abs(dx), Math.abs(dy)) + 1, length);
+                double m = (double) dy / dx;
+                for (int i = 0; i < length; i++) {
+                    int x;
+                    int y;
+                    if (Math.abs(dx) >= Math.abs(dy)) {
+                        x = 5 + (dx > 0 ? i : -i);
+                        y = 7 + (int) Math.round(m * (x - 5));
+                    } else {
+                        y = 7 + (dy > 0 ? i : -i);
+                        x = 5 + (int) Math.round((1 / m) * (y - 7));
+                    }
+                    assertEquals(x, LineRasterizer.unpackX(buffer[i]));
+                    assertEquals(y, LineRasterizer.unpackY(buffer[i]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rasterizerVisitorStops() {
+        int[] visited = new int[1];
+        boolean complete = LineRasterizer.visit(0, 0, 6, 3, (x, y) -> ++visited[0] < 3);
+        assertFalse(complete);
+        assertEquals(3, visited[0]);
+        assertTrue(LineRasterizer.visit(0, 0, -6, 3, (x, y) -> true));
+    }
+
+    @Test
+    public void routeTableMatchesRasterizer() {
+        int[] expected = new int[128];
+        int[] actual = new int[128];
+        for (int dx = -50; dx <= 50; dx += 7) {
+            for (int dy = -50; dy <= 50; dy++) {
+                int length = LineRasterizer.rasterize(3, -1, 3 + dx, -1 + dy, expected);
+                assertEquals(length, RouteTable.route(3, -1, 3 + dx, -1 + dy, actual));
+                for (int i = 0; i < length; i++) {
+                    assertEquals(expected[i], actual[i]);
+                }
+            }
+        }
+        assertSame(RouteTable.offsets(4, -3), RouteTable.offsets(4, -3));
+    }
+
+    @Test
+    public void boardViewShowsChanges() {
+        Board b = new Board(
+                """
+                        0000000000
+                        0111111000
+                        0100001000
+                        0121111000
+                        0000000000""",
+                10, 5);
+        BoardView view = b.view();
+        assertEquals(10, view.getWidth());
+        assertEquals(5, view.getHeight());
+        assertEquals(Surfaces.START, view.surfaceAt(2, 3));
+        b.changeBoardCell(2, 3, Surfaces.ROAD, b, new FakeGUI(), StartCrossDirection.UP);
+        assertEquals(Surfaces.ROAD, view.surfaceAt(2, 3));
+        assertFalse(view instanceof Board);
+        assertFalse(view.contains(10, 0));
+    }
+
+    @Test
+    public void startIndexStaysConsistent() {
+        Logic logic = new Logic(new FakeGUI());
+        logic.getGameFromJson("maps/SimpleOval.json");
+        Board b = logic.getOwnBoard();
+        assertTrue(b.isIndexConsistent());
+        int starts = b.getSurfaceCount(Surfaces.START);
+        assertEquals(starts, b.getCurrStartingLine().size());
+
+        Random random = new Random(6);
+        Surfaces[] surfaces = {Surfaces.GRAVEL, Surfaces.ROAD, Surfaces.START};
+        for (int i = 0; i < 500; i++) {
+            b = logic.getOwnBoard();
+            b.changeBoardCell(random.nextInt(b.getWidth()), random.nextInt(b.getHeight()),
+                    surfaces[random.nextInt(surfaces.length)], b, new FakeGUI(), logic.getDir());
+            if (i % 50 == 0) {
+                logic.addOrDeleteLine(StartCrossDirection.values()[random.nextInt(4)], random.nextBoolean());
+            }
+            assertTrue(logic.getOwnBoard().isIndexConsistent());
+        }
+        b = logic.getOwnBoard();
+        assertEquals(b.getWidth() * b.getHeight(), b.getSurfaceCount(Surfaces.GRAVEL)
+                + b.getSurfaceCount(Surfaces.ROAD) + b.getSurfaceCount(Surfaces.START));
+    }
+
+    @Test
+    public void occupancyGridMatchesPlayers() {
+        Random random = new Random(7);
+        // width, height and number of players, the last grid has many players on every field
+        for (int[] size : new int[][]{{4, 3, 12}, {10, 20, 12}, {2, 2, 40}}) {
+            Player[] players = new Player[size[2]];
+            for (int i = 0; i < players.length; i++) {
+                players[i] = new Player();
+            }
+            OccupancyGrid grid = new OccupancyGrid(size[0], size[1], players);
+            for (int move = 0; move < 5000; move++) {
+                // players also leave the board
+                int player = random.nextInt(players.length);
+                Position pos = new Position(random.nextInt(size[0] + 1) - 1, random.nextInt(size[1] + 1));
+                players[player].setCurrPos(pos);
+                grid.setPosition(player, pos.getPosX(), pos.getPosY());
+                int x = random.nextInt(size[0]);
+                int y = random.nextInt(size[1]);
+                int current = random.nextInt(players.length);
+                boolean takenByOther = false;
+                boolean takenUpTo = false;
+                for (int i = 0; i < players.length; i++) {
+                    if (players[i].getCurrentPos().isEqualTo(new Position(x, y))) {
+                        takenByOther |= i != current;
+                        takenUpTo |= i <= current;
+                    }
+                }
+                assertEquals(takenByOther, grid.isTakenByOther(x, y, current));
+                assertEquals(takenUpTo, grid.isTakenUpTo(x, y, current));
+            }
+        }
+    }
+
+    /**
+     * creates a ring track, the starting line crosses the left part and is crossed upwards
+     *
+     * @param thickness width of the left and right part
+     * @return the track
+     */
+    private static void assertSameLap(ArrayList<Position> expected, ArrayList<Position> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue(expected.get(i).isEqualTo(actual.get(i)));
+        }
+    }
+
+    private static void assertLapChange(ArrayList<Position> oldLap, DynamicDistanceField values) {
+        ArrayList<Position> newLap = values.getShortestLap();
+        int added = 0;
+        for (Position pos : newLap) {
+            if (oldLap.stream().noneMatch(pos::isEqualTo)) {
+                assertTrue(Arrays.stream(values.getLapAdded()).anyMatch(pos::isEqualTo));
+                added++;
+            }
+        }
+        assertEquals(added, values.getLapAdded().length);
+        int removed = 0;
+        for (Position pos : oldLap) {
+            if (newLap.stream().noneMatch(pos::isEqualTo)) {
+                assertTrue(Arrays.stream(values.getLapRemoved()).anyMatch(pos::isEqualTo));
+                removed++;
+            }
+        }
+        assertEquals(removed, values.getLapRemoved().length);
+    }
+
+    private static Board ringTrack(int thickness) {
+        int width = 2 * thickness + 6;
+        int height = 40;
+        StringBuilder sb = new StringBuilder();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean border = x == 0 || y == 0 || x == width - 1 || y == height - 1;
+                boolean hole = x > thickness && x <= thickness + 4 && y > 3 && y < height - 4;
+                if (border || hole) {
+                    sb.append('0');
+                } else if (y == 7 && x <= thickness) {
+                    sb.append('2');
+                } else {
+                    sb.append('1');
+                }
+            }
+            sb.append('\n');
+        }
+        return new Board(sb.toString(), width, height);
+    }
+
+    private void raceWithManyPlayers(int playerCount) {
+        Board board = ringTrack(16);
+        Player[] players = new Player[playerCount];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new Player(true, true, "AI " + i, new Position(0, 0), new Position(0, 0), (byte) 0);
+        }
+        SimulationResult result = RaceSimulator.simulate(board, StartCrossDirection.UP, players, 0);
+        boolean[] taken = new boolean[board.getWidth() * board.getHeight()];
+        for (Player p : result.getPlayers()) {
+            Position pos = p.getCurrentPos();
+            assertEquals(Surfaces.ROAD, board.getSurfaceAt(pos));
+            assertFalse(taken[pos.getPosY() * board.getWidth() + pos.getPosX()]);
+            taken[pos.getPosY() * board.getWidth() + pos.getPosX()] = true;
+        }
+
+        Logic logic = new Logic(new FakeGUI(), board.boardToString(), board.getWidth(), board.getHeight(),
+                StartCrossDirection.UP, result.getPlayers(), true);
+        assertEquals(playerCount, logic.howManyActivePlayers());
+        logic.setCurrentPlayer(0);
+        for (int turn = 0; turn < 3 * playerCount; turn++) {
+            assertEquals(turn % playerCount, logic.getCurrentPlayer());
+            Position pos = logic.getPlayers()[logic.getCurrentPlayer()].getCurrentPos();
+            logic.finishMove(pos, pos);
+        }
+    }
+
+    @Test
+    public void race64Players() {
+        raceWithManyPlayers(64);
+    }
+
+    @Test
+    public void race256Players() {
+        raceWithManyPlayers(256);
+    }
+
+    @Test
+    public void turnOrderSkipsInactivePlayers() {
+        Player[] players = new Player[256];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new Player(i % 3 == 1, false, "Player " + i,
+                    new Position(i % 32, i / 32), new Position(i % 32, i / 32), (byte) 0);
+        }
+        Logic logic = new Logic(new FakeGUI(), ringTrack(16).boardToString(), 38, 40, StartCrossDirection.UP,
+                players, true);
+        assertEquals(1, logic.findFirstActivePlayer());
+        assertEquals(85, logic.howManyActivePlayers());
+        assertEquals(4, logic.getNextActivePlayer(1));
+        assertEquals(1, logic.getNextActivePlayer(253));
+        players[4].setActive(false);
+        assertEquals(7, logic.getNextActivePlayer(1));
+        assertEquals(84, logic.howManyActivePlayers());
+
+        PlayerState state = PlayerState.bind(players);
+        assertTrue(state.isValid(logic.getBoard()));
+        players[7].setCurrPos(new Position(1, 0));
+        assertFalse(state.isValid(logic.getBoard()));
+    }
+
+    @Test
+    public void roundCourseOnSnakeTrack() {
+        // a one field wide road that winds through the whole map before it reaches the starting line again
+        int size = 401;
+        int[][] track = new int[size][size];
+        for (int y = 1; y < size - 1; y += 2) {
+            for (int x = 3; x < size - 1; x++) {
+                track[x][y] = 1;
+            }
+            if (y + 2 < size - 1) {
+                track[(y / 2) % 2 == 0 ? size - 2 : 3][y + 1] = 1;
+            }
+        }
+        for (int y = 1; y < size - 1; y++) {
+            track[1][y] = 1;
+        }
+        track[2][size - 2] = 1;
+        track[2][1] = 2;
+        Board board = new Board();
+        board.setValues(Board.convertBoardIntToStates(track));
+        assertEquals(ErrorCodes.NoError, board.isBoardValidForRace(board));
+
+        board.changeBoardCell(1, size / 2, Surfaces.GRAVEL, board, new FakeGUI(), StartCrossDirection.RIGHT);
+        assertEquals(ErrorCodes.NoRoundCourse, board.isBoardValidForRace(board));
+        board.changeBoardCell(1, size / 2, Surfaces.ROAD, board, new FakeGUI(), StartCrossDirection.RIGHT);
+        assertEquals(ErrorCodes.NoError, board.isBoardValidForRace(board));
+    }
+
+    @Test
+    public void tiledBoardMatchesArrayBoard() throws IOException {
+        Board small = ringTrack(16);
+        TiledSurfaceStore store = TiledSurfaceStore.createTemporary(2000, 2000);
+        for (int x = 0; x < small.getWidth(); x++) {
+            for (int y = 0; y < small.getHeight(); y++) {
+                store.set(x, y, (byte) small.surfaceAt(x, y).ordinal());
+            }
+        }
+        Board large = new Board(store);
+        assertEquals(small.getCurrStartingLine().size(), large.getCurrStartingLine().size());
+        assertEquals(small.getSurfaceCount(Surfaces.ROAD), large.getSurfaceCount(Surfaces.ROAD));
+        assertEquals(ErrorCodes.NoError, large.isBoardValidForRace(large));
+
+        DistanceField smallField = DistanceField.calculate(small, StartCrossDirection.UP);
+        DistanceField largeField = DistanceField.calculate(large, StartCrossDirection.UP);
+        assertEquals(1, largeField.getTileCount());
+        for (int x = 0; x < small.getWidth(); x++) {
+            for (int y = 0; y < small.getHeight(); y++) {
+                assertEquals(smallField.get(x, y), largeField.get(x, y));
+            }
+        }
+
+        long files = countTileFiles();
+        TiledSurfaceStore copy = (TiledSurfaceStore) store.copy();
+        assertEquals(files, countTileFiles());
+        large.changeBoardCell(1999, 1999, Surfaces.ROAD, large, new FakeGUI(), StartCrossDirection.UP);
+        assertEquals(Surfaces.ROAD, large.surfaceAt(1999, 1999));
+        assertEquals(Surfaces.GRAVEL.ordinal(), copy.get(1999, 1999));
+        assertEquals(small.surfaceAt(5, 7).ordinal(), copy.get(5, 7));
+        // only the changed tiles are copied, by the store changing them
+        assertEquals(1, store.getCopiedTileCount());
+        assertEquals(0, copy.getCopiedTileCount());
+        copy.set(5, 7, (byte) Surfaces.GRAVEL.ordinal());
+        assertEquals(small.surfaceAt(5, 7).ordinal(), store.get(5, 7));
+        assertEquals(1, copy.getCopiedTileCount());
+    }
+
+    @Test
+    public void tiledStoreDeletesUnusedFile() throws IOException, InterruptedException {
+        // some systems remove the file right away, the others once the store is gone
+        long files = countTileFiles();
+        TiledSurfaceStore store = TiledSurfaceStore.createTemporary(2000, 2000);
+        store.set(1, 1, (byte) Surfaces.ROAD.ordinal());
+        assertEquals(Surfaces.ROAD.ordinal(), store.copy().get(1, 1));
+        store = null;
+        for (int i = 0; i < 100 && countTileFiles() > files; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(files, countTileFiles());
+    }
+
+    private static long countTileFiles() throws IOException {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> file.getFileName().toString().matches("racetrack.*\\.tiles")).count();
+        }
+    }
+
+    @Test
+    public void trackFileFromJson() throws IOException {
+        Logic json = new Logic(new FakeGUI());
+        json.getGameFromJson("maps/SimpleOval.json");
+        Path file = Files.createTempFile("SimpleOval", TrackFile.EXTENSION);
+        try (Reader r = new InputStreamReader(Objects.requireNonNull(
+                LogicTest.class.getResourceAsStream("/maps/SimpleOval.json")))) {
+            assertEquals(ErrorCodes.NoError, TrackFile.convertJson(r, file));
+        }
+        Logic track = new Logic(new FakeGUI());
+        assertEquals(ErrorCodes.NoError, track.getGameFromTrackFile(file));
+        assertEquals(json.getOwnBoard().boardToString(), track.getOwnBoard().boardToString());
+        assertEquals(json.getDir(), track.getDir());
+        assertEquals(json.getGameMode(), track.getGameMode());
+        for (int i = 0; i < Logic.MAX_PLAYER_NUMBER; i++) {
+            Player expected = json.getPlayers()[i];
+            Player actual = track.getPlayers()[i];
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.isActive(), actual.isActive());
+            assertEquals(expected.isAI(), actual.isAI());
+            assertTrue(expected.getCurrentPos().isEqualTo(actual.getCurrentPos()));
+        }
+
+        try (Reader r = new InputStreamReader(Objects.requireNonNull(
+                LogicTest.class.getResourceAsStream("/maps/WrongBoardContent.json")))) {
+            assertEquals(ErrorCodes.WrongBoardContents, TrackFile.convertJson(r, file));
+        }
+        Files.delete(file);
+    }
+
+    @Test
+    public void trackFileKeepsLargeMaps() throws IOException {
+        // larger than json files allow and an odd number of fields, so the last byte is not full
+        Board small = ringTrack(16);
+        Surfaces[][] values = new Surfaces[1001][small.getHeight() + 1];
+        for (int x = 0; x < values.length; x++) {
+            for (int y = 0; y < values[x].length; y++) {
+                values[x][y] = small.isOutOfBounds(x, y) ? Surfaces.GRAVEL : small.surfaceAt(x, y);
+            }
+        }
+        Board large = new Board();
+        large.setValues(values);
+        Player[] players = new Player[Logic.MAX_PLAYER_NUMBER];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new Player(false, false, "Spieler " + i, new Position(i, 0), new Position(i, 0), (byte) 0);
+        }
+        Logic logic = new Logic(new FakeGUI(), large, StartCrossDirection.UP, players);
+        Path file = Files.createTempFile("large", TrackFile.EXTENSION);
+        logic.saveGameToTrackFile(file);
+        assertTrue(Files.size(file) < 1001 * 41 / 3);
+
+        Logic loaded = new Logic(new FakeGUI());
+        assertEquals(ErrorCodes.NoError, loaded.getGameFromTrackFile(file));
+        assertEquals(large.boardToString(), loaded.getOwnBoard().boardToString());
+        assertEquals(GameMode.Menu_Mode, loaded.getGameMode());
+        assertEquals(ErrorCodes.NoError, loaded.getOwnBoard().isBoardValidForRace(loaded.getOwnBoard()));
+
+        Files.write(file, new byte[]{'R', 'T', 'R', 'K', 0, 1, 0});
+        assertEquals(ErrorCodes.WrongMapSyntax, loaded.getGameFromTrackFile(file));
+        // header of a map wider than allowed, then of far more players than the file holds
+        ByteBuffer header = ByteBuffer.allocate(23).putInt(0x5254524B).putShort((short) 1)
+                .putInt(TrackFile.MAX_SIDE + 1).putInt(40).put((byte) 0).putInt(0).putInt(4);
+        Files.write(file, header.array());
+        assertEquals(ErrorCodes.WrongBoardSize, loaded.getGameFromTrackFile(file));
+        header.putInt(6, 40).putInt(19, Integer.MAX_VALUE);
+        Files.write(file, header.array());
+        assertEquals(ErrorCodes.InvalidPLayerData, loaded.getGameFromTrackFile(file));
+        Files.delete(file);
+    }
+
+    @Test
+    public void codecMatchesReflectiveGson() throws IOException {
+        for (String map : new String[]{"SimpleOval", "newMap", "WrongBoardContent", "WrongBoardSize",
+                "WrongCPorDir", "WrongPlayerData"}) {
+            GameFromAndToJSON codec;
+            try (Reader r = new InputStreamReader(Objects.requireNonNull(
+                    LogicTest.class.getResourceAsStream("/maps/" + map + ".json")))) {
+                codec = GameCodec.read(r);
+            }
+            StringWriter written = new StringWriter();
+            GameCodec.write(codec, written);
+            assertEquals(map, new Gson().toJson(codec), written.toString());
+            GameFromAndToJSON reflective = new Gson().fromJson(new StringReader(written.toString()),
+                    GameFromAndToJSON.class);
+            assertEquals(map, new Gson().toJson(reflective), written.toString());
+        }
+        Logic logic = new Logic(new FakeGUI());
+        assertEquals(ErrorCodes.NoError, logic.getGameFromJson("maps/SimpleOval.json"));
+        logic.saveGameToJson("/codecTest.json");
+        Path saved = Path.of(System.getProperty("java.io.tmpdir") + "/codecTest.json");
+        Logic loaded = new Logic(new FakeGUI());
+        assertEquals(ErrorCodes.NoError, loaded.getGameFromJson(saved.toString()));
+        assertEquals(logic.getOwnBoard().boardToString(), loaded.getOwnBoard().boardToString());
+        Files.delete(saved);
+    }
+
+    @Test
+    public void replayMovesEncoding() {
+        ReplayData.Moves moves = new ReplayData.Moves();
+        moves.add(5, 5);
+        for (int i = 1; i <= 20; i++) {
+            moves.add(5 + i * (i + 1) / 2, 5);
+        }
+        // constant acceleration only needs four bits per move
+        assertEquals(10, moves.encode().length);
+
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            moves.add(random.nextInt(40), random.nextInt(40));
+        }
+        byte[] data = moves.encode();
+        ReplayData.Moves decoded = ReplayData.Moves.decode(5, 5, moves.size(), data);
+        assertNotNull(decoded);
+        assertEquals(moves.size(), decoded.size());
+        for (int i = 0; i < moves.size(); i++) {
+            assertTrue(moves.get(i).isEqualTo(decoded.get(i)));
+        }
+        assertNull(ReplayData.Moves.decode(5, 5, moves.size(), java.util.Arrays.copyOf(data, data.length - 1)));
+        assertNull(ReplayData.Moves.decode(5, 5, moves.size() + 2, data));
+    }
+
+    @Test
+    public void savedGameKeepsReplay() throws IOException {
+        Logic json = new Logic(new FakeGUI());
+        json.getGameFromJson("maps/SimpleOval.json");
+        Player[] ais = new Player[Logic.MAX_PLAYER_NUMBER];
+        for (int i = 0; i < ais.length; i++) {
+            ais[i] = new Player(i < 2, true, "AI " + i, new Position(0, 0), new Position(0, 0), (byte) 0);
+        }
+        SimulationResult result = RaceSimulator.simulate(json.getOwnBoard(), json.getDir(), ais, 12);
+        // human players, so loading the game does not go on with the race
+        Player[] players = new Player[ais.length];
+        for (int i = 0; i < players.length; i++) {
+            Player p = result.getPlayers()[i];
+            players[i] = new Player(p.isActive(), false, p.getName(), p.getLastPos(), p.getCurrentPos(), p.getLap());
+        }
+        Logic logic = new Logic(new FakeGUI(), json.getOwnBoard(), json.getDir(), players);
+        logic.replayData = result.getReplayData();
+        logic.saveGameToJson("/replayTest.json");
+
+        Path saved = Path.of(System.getProperty("java.io.tmpdir") + "/replayTest.json");
+        Logic loaded = new Logic(new FakeGUI());
+        assertEquals(ErrorCodes.NoError, loaded.getGameFromJson(saved.toString()));
+        assertEquals(GameMode.Race_Mode, loaded.getGameMode());
+        for (int i = 0; i < players.length; i++) {
+            ReplayData.Moves expected = result.getReplayData().get(i);
+            ReplayData.Moves actual = loaded.replayData.get(i);
+            assertEquals(expected.size(), actual.size());
+            for (int j = 0; j < expected.size(); j++) {
+                assertTrue(expected.get(j).isEqualTo(actual.get(j)));
+            }
+        }
+        assertEquals(11, loaded.getMovesUsed());
+
+        String content = Files.readString(saved);
+        assertEquals(content, new Gson().toJson(new Gson().fromJson(content, GameFromAndToJSON.class)));
+
+        // moves that do not end at the position of the player
+        Files.writeString(saved, content.replace("\"start\":[", "\"start\":[1"));
+        assertEquals(ErrorCodes.InvalidPLayerData, new Logic(new FakeGUI()).getGameFromJson(saved.toString()));
+        Files.delete(saved);
+    }
+
+    @Test
+    public void replayIndexMatchesRace() {
+        Logic json = new Logic(new FakeGUI());
+        json.getGameFromJson("maps/SimpleOval.json");
+        Player[] ais = new Player[Logic.MAX_PLAYER_NUMBER];
+        for (int i = 0; i < ais.length; i++) {
+            ais[i] = new Player(i == 0, true, "AI " + i, new Position(0, 0), new Position(0, 0), (byte) 0);
+        }
+        SimulationResult result = RaceSimulator.simulate(json.getOwnBoard(), json.getDir(), ais, 500);
+        assertTrue(result.isGameWon());
+        Logic logic = new Logic(new FakeGUI(), json.getOwnBoard(), json.getDir(), result.getPlayers());
+        logic.replayData = result.getReplayData();
+        ReplayIndex index = logic.getReplayIndex();
+        assertSame(index, logic.getReplayIndex());
+        assertEquals(result.getReplayData().get(0).size(), index.getLength());
+
+        // shorter races end in the state the index has after their last move, checked backwards
+        for (int moves = result.getMovesUsed(); moves > 0; moves--) {
+            SimulationResult part = RaceSimulator.simulate(json.getOwnBoard(), json.getDir(), ais, moves);
+            int last = part.getReplayData().get(0).size() - 1;
+            assertEquals(part.getPlayers()[0].getLap(), index.getLap(0, last));
+            assertTrue(part.getPlayers()[0].getCurrentPos().isEqualTo(index.getPosition(0, last)));
+        }
+        assertEquals(2, index.getLap(0, index.getLength() - 1));
+        assertEquals(index.getLap(0, index.getLength() - 1), index.getLap(0, index.getLength() + 5));
+
+        logic.replayData.get(0).add(new Position(0, 0));
+        assertNotSame(index, logic.getReplayIndex());
+    }
+
+    @Test
+    public void aiTurnsWithoutAnimationInOneUpdate() {
+        Board board = ringTrack(17);
+        int[] updates = new int[2];
+        GUIConnector gui = new GUIConnector() {
+            @Override
+            public void updatePlayerPosGUI(Logic logic, Player[] players, boolean isAI, Position oldPos,
+                                           Position newPos, int player_number, boolean crashFound) {
+                updates[0]++;
+            }
+
+            @Override
+            public void updatePlayerPositionsGUI(Logic logic, Player[] players, Position[] oldPositions) {
+                updates[1]++;
+                logic.startTurn();
+            }
+        };
+        Player[] players = new Player[Logic.MAX_PLAYER_NUMBER];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new Player(i < 2, true, "AI " + i, new Position(0, 0), new Position(0, 0), (byte) 0);
+        }
+        Logic logic = new Logic(gui, board, StartCrossDirection.UP, players);
+        for (int i = 0; i < 2; i++) {
+            logic.setCurrentPlayer(i);
+            logic.placeAI();
+        }
+        logic.setGameMode(GameMode.Race_Mode);
+        logic.setCurrentPlayer(0);
+        logic.setAnimSpeed(Logic.NO_ANIM_SPEED);
+        logic.updatePlayerPosition(new Position(0, 0));
+        assertTrue(logic.getIsGameWon());
+        assertEquals(0, updates[0]);
+        assertEquals(1, updates[1]);
+        assertEquals(logic.getMovesUsed(), logic.replayData.get(1).size());
+    }
+
+    @Test
+    public void turnsOfAnsweringGuiKeepStackDepth() {
+        Board board = ringTrack(17);
+        int[] depths = {Integer.MAX_VALUE, 0};
+        GUIConnector gui = new GUIConnector() {
+            @Override
+            public void updatePlayerPosGUI(Logic logic, Player[] players, boolean isAI, Position oldPos,
+                                           Position newPos, int player_number, boolean crashFound) {
+                int depth = Thread.currentThread().getStackTrace().length;
+                depths[0] = Math.min(depths[0], depth);
+                depths[1] = Math.max(depths[1], depth);
+                // like the gui after the animation, but without waiting
+                logic.prepareNextMove(crashFound ? newPos : oldPos, newPos, false);
+            }
+        };
+        Player[] players = new Player[Logic.MAX_PLAYER_NUMBER];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new Player(true, true, "AI " + i, new Position(0, 0), new Position(0, 0), (byte) 0);
+        }
+        Logic logic = new Logic(gui, board, StartCrossDirection.UP, players);
+        for (int i = 0; i < players.length; i++) {
+            logic.setCurrentPlayer(i);
+            logic.placeAI();
+        }
+        logic.setGameMode(GameMode.Race_Mode);
+        logic.setCurrentPlayer(0);
+        logic.setAnimSpeed(Logic.HIGHEST_ANIM_SPEED);
+        logic.updatePlayerPosition(new Position(0, 0));
+        assertTrue(logic.getIsGameWon());
+        assertTrue(logic.getMovesUsed() > 10);
+        // only the first move is started from a different place, otherwise every move would add frames
+        assertTrue(depths[1] - depths[0] < 10);
+    }
+
+    @Test
+    public void tournamentMatchesSingleRaces() {
+        Logic json = new Logic(new FakeGUI());
+        json.getGameFromJson("maps/SimpleOval.json");
+        List<Player[]> races = new ArrayList<>();
+        for (int race = 0; race < 6; race++) {
+            Player[] players = new Player[Logic.MAX_PLAYER_NUMBER];
+            for (int i = 0; i < players.length; i++) {
+                players[i] = new Player(i == 0 || i == 1 && race % 2 == 1, true, "AI " + i, new Position(0, 0),
+                        new Position(0, 0), (byte) 0);
+            }
+            races.add(players);
+        }
+        TournamentResult tournament = Tournament.run(json.getOwnBoard(), json.getDir(), races, 500, 3);
+        assertEquals(6, tournament.getRaces());
+        long crashes = 0;
+        for (int race = 0; race < races.size(); race++) {
+            SimulationResult expected = RaceSimulator.simulate(json.getOwnBoard(), json.getDir(), races.get(race), 500);
+            SimulationResult actual = tournament.getResults().get(race);
+            assertEquals(expected.getMovesUsed(), actual.getMovesUsed());
+            assertEquals(expected.isGameWon(), actual.isGameWon());
+            for (int i = 0; i < Logic.MAX_PLAYER_NUMBER; i++) {
+                assertTrue(expected.getPlayers()[i].getCurrentPos().isEqualTo(actual.getPlayers()[i].getCurrentPos()));
+                assertEquals(expected.getCrashes(i), actual.getCrashes(i));
+                crashes += actual.getCrashes(i);
+            }
+        }
+        assertEquals(crashes, tournament.getCrashes());
+        assertEquals(2, tournament.getPlayerNames().size());
+        assertEquals(6, tournament.getWonRaces());
+        // the first AI races alone in every second race and wins it
+        assertTrue(tournament.getWinRate("AI 0") >= 0.5);
+        assertEquals(0, tournament.getWinRate("AI 5"), 0);
+    }
+
+    @Test
+    public void gamesShareTrack() throws IOException {
+        Path file = Files.createTempFile("SimpleOval", TrackFile.EXTENSION);
+        try (Reader r = new InputStreamReader(Objects.requireNonNull(
+                LogicTest.class.getResourceAsStream("/maps/SimpleOval.json")))) {
+            assertEquals(ErrorCodes.NoError, TrackFile.convertJson(r, file));
+        }
+        Track track = Track.load(file);
+        Files.writeString(file, "RTRK");
+        assertNull(Track.load(file));
+        Files.delete(file);
+        assertNotNull(track);
+        assertEquals(ErrorCodes.NoError, track.getBoardError());
+        assertFalse(track.getStartingLine().isEmpty());
+
+        Logic json = new Logic(new FakeGUI());
+        json.getGameFromJson("maps/SimpleOval.json");
+        assertEquals(json.getDir(), track.getDirection());
+        Player[] ais = new Player[Logic.MAX_PLAYER_NUMBER];
+        for (int i = 0; i < ais.length; i++) {
+            ais[i] = new Player(i < 2, true, "AI " + i, new Position(0, 0), new Position(0, 0), (byte) 0);
+        }
+        SimulationResult expected = RaceSimulator.simulate(json.getOwnBoard(), json.getDir(), ais, 500);
+        SimulationResult actual = RaceSimulator.simulate(track, ais, 500);
+        assertEquals(expected.getMovesUsed(), actual.getMovesUsed());
+        for (int i = 0; i < ais.length; i++) {
+            assertTrue(expected.getPlayers()[i].getCurrentPos().isEqualTo(actual.getPlayers()[i].getCurrentPos()));
+        }
+
+        // games on the track use its board until they change it
+        Logic first = new Logic(new FakeGUI(), track, ais);
+        Logic second = new Logic(new FakeGUI(), track, ais);
+        assertSame(track, first.getTrack());
+        assertSame(track, second.getTrack());
+        // every game moves its own players
+        Position placed = first.placeAI();
+        assertTrue(first.getPlayers()[0].getCurrentPos().isEqualTo(placed));
+        assertFalse(second.getPlayers()[0].getCurrentPos().isEqualTo(placed));
+        assertTrue(second.getPlayers()[0].getCurrentPos().isEqualTo(new Position(0, 0)));
+        assertTrue(ais[0].getCurrentPos().isEqualTo(new Position(0, 0)));
+        assertNotSame(ais[0], first.getPlayers()[0]);
+        Position start = track.getStartingLine().get(0);
+        assertSame(track.getView(), first.getBoard());
+        assertFalse(first.getBoard() instanceof Board);
+        assertEquals(Surfaces.START, first.getBoard().surfaceAt(start.getPosX(), start.getPosY()));
+        assertSame(track, first.getTrack());
+        first.changeBoardCell(start.getPosX(), start.getPosY(), Surfaces.GRAVEL);
+        assertNull(first.getTrack());
+        assertSame(track, second.getTrack());
+        assertEquals(Surfaces.START, track.getView().surfaceAt(start.getPosX(), start.getPosY()));
+        assertEquals(Surfaces.GRAVEL, first.getBoard().surfaceAt(start.getPosX(), start.getPosY()));
+    }
+
+    @Test
+    public void distanceFieldCacheFindsSameMap() throws IOException, InterruptedException, ExecutionException {
+        DistanceFieldCache shared = DistanceFieldCache.get();
+        Logic first = new Logic(new FakeGUI());
+        first.getGameFromJson("maps/SimpleOval.json");
+        first.instantiateMapDistanceValues();
+        int calculations = shared.getCalculationCount();
+        Logic second = new Logic(new FakeGUI());
+        second.getGameFromJson("maps/SimpleOval.json");
+        second.instantiateMapDistanceValues();
+        assertEquals(calculations, shared.getCalculationCount());
+
+        Board small = ringTrack(6);
+        Board large = ringTrack(17);
+        long smallSize = DistanceField.calculate(small, StartCrossDirection.UP).getByteSize();
+        DistanceFieldCache cache = new DistanceFieldCache(2 * smallSize);
+        DistanceField up = cache.lookup(small, StartCrossDirection.UP);
+        assertSame(up, cache.lookup(small, StartCrossDirection.UP));
+        DistanceField down = cache.lookup(small, StartCrossDirection.DOWN);
+        assertNotSame(up, down);
+        assertEquals(2, cache.getCalculationCount());
+        assertEquals(1, cache.getHitCount());
+        // the same fields on another board object
+        assertSame(up, cache.lookup(ringTrack(6), StartCrossDirection.UP));
+        small.changeBoardCell(3, 20, Surfaces.GRAVEL, small, new FakeGUI(), StartCrossDirection.UP);
+        assertNotSame(up, cache.lookup(small, StartCrossDirection.UP));
+        // down was used least recently and is dropped
+        assertEquals(2, cache.size());
+        assertNotSame(down, cache.lookup(ringTrack(6), StartCrossDirection.DOWN));
+        assertEquals(4, cache.getCalculationCount());
+
+        Path directory = Files.createTempDirectory("distances");
+        cache = new DistanceFieldCache(DistanceFieldCache.DEFAULT_MAX_BYTES);
+        cache.setDirectory(directory);
+        DistanceField calculated = cache.lookup(large, StartCrossDirection.UP);
+        DistanceFieldCache restarted = new DistanceFieldCache(DistanceFieldCache.DEFAULT_MAX_BYTES);
+        restarted.setDirectory(directory);
+        DistanceField read = restarted.lookup(large, StartCrossDirection.UP);
+        assertEquals(0, restarted.getCalculationCount());
+        assertNotSame(calculated, read);
+        for (int x = 0; x < large.getWidth(); x++) {
+            for (int y = 0; y < large.getHeight(); y++) {
+                assertEquals(calculated.isReached(x, y), read.isReached(x, y));
+                assertEquals(calculated.get(x, y), read.get(x, y));
+            }
+        }
+
+        // games missing the same map at the same time save and read it in parallel, some reads find no file
+        Board missed = ringTrack(6);
+        ForkJoinPool pool = new ForkJoinPool(8);
+        try {
+            pool.submit(() -> IntStream.range(0, 160).parallel().forEach(i -> {
+                DistanceFieldCache fresh = new DistanceFieldCache(DistanceFieldCache.DEFAULT_MAX_BYTES);
+                fresh.setDirectory(directory);
+                assertNotNull(fresh.lookup(missed, StartCrossDirection.UP));
+                if (i % 4 == 0) {
+                    try (Stream<Path> files = Files.list(directory)) {
+                        for (Path file : files.toList()) {
+                            Files.deleteIfExists(file);
+                        }
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            })).get();
+        } finally {
+            pool.shutdown();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.noneMatch(file -> file.toString().endsWith(".tmp")));
+        }
+        // a directory that cannot be written to only means the values are not saved
+        DistanceFieldCache unsaved = new DistanceFieldCache(DistanceFieldCache.DEFAULT_MAX_BYTES);
+        unsaved.setDirectory(directory.resolve("missing"));
+        assertNotNull(unsaved.lookup(missed, StartCrossDirection.UP));
+        assertEquals(1, unsaved.getCalculationCount());
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void distanceValuesRepairedWhileEditing() {
+        Random random = new Random(7);
+        for (StartCrossDirection direction : StartCrossDirection.values()) {
+            Board board = ringTrack(6);
+            DynamicDistanceField values = new DynamicDistanceField(board, direction);
+            for (int edit = 0; edit < 300; edit++) {
+                int x = 1 + random.nextInt(board.getWidth() - 2);
+                int y = 1 + random.nextInt(board.getHeight() - 2);
+                Surfaces old = board.surfaceAt(x, y);
+                if (old == Surfaces.START) {
+                    continue;
+                }
+                Surfaces sur = old == Surfaces.ROAD ? Surfaces.GRAVEL : Surfaces.ROAD;
+                ArrayList<Position> oldLap = values.getShortestLap();
+                board.changeBoardCell(x, y, sur, board, new FakeGUI(), direction);
+                values.update(x, y, old);
+                assertLapChange(oldLap, values);
+                DistanceField expected = DistanceField.calculate(board, direction);
+                for (int i = 0; i < board.getWidth(); i++) {
+                    for (int j = 0; j < board.getHeight(); j++) {
+                        assertEquals(expected.isReached(i, j), values.getValues().isReached(i, j));
+                        assertEquals(expected.get(i, j), values.getValues().get(i, j));
+                    }
+                }
+                assertSameLap(new DynamicDistanceField(board, direction).getShortestLap(), values.getShortestLap());
+            }
+        }
+
+        // a field far from the starting line only changes the fields around it
+        Board board = ringTrack(17);
+        DynamicDistanceField values = new DynamicDistanceField(board, StartCrossDirection.UP);
+        board.changeBoardCell(10, 30, Surfaces.GRAVEL, board, new FakeGUI(), StartCrossDirection.UP);
+        values.update(10, 30, Surfaces.ROAD);
+        assertTrue(values.getLastRepairSize() < board.getSurfaceCount(Surfaces.ROAD) / 4);
+
+        // a field next to the lap changes, but the lap stays and nothing has to be drawn again
+        ArrayList<Position> lap = values.getShortestLap();
+        Position onLap = lap.get(lap.size() / 2);
+        board.changeBoardCell(onLap.getPosX() + 1, onLap.getPosY(), Surfaces.GRAVEL, board, new FakeGUI(),
+                StartCrossDirection.UP);
+        values.update(onLap.getPosX() + 1, onLap.getPosY(), Surfaces.ROAD);
+        assertEquals(0, values.getLapAdded().length);
+        assertEquals(0, values.getLapRemoved().length);
+        assertSameLap(lap, values.getShortestLap());
+
+        // blocking the lap only reports the fields that really left or joined it
+        board.changeBoardCell(onLap.getPosX(), onLap.getPosY(), Surfaces.GRAVEL, board, new FakeGUI(),
+                StartCrossDirection.UP);
+        values.update(onLap.getPosX(), onLap.getPosY(), Surfaces.ROAD);
+        assertFalse(values.isOnLap(onLap.getPosX(), onLap.getPosY()));
+        assertLapChange(lap, values);
+        assertSameLap(new DynamicDistanceField(board, StartCrossDirection.UP).getShortestLap(),
+                values.getShortestLap());
+
+        Logic logic = new Logic(new FakeGUI());
+        logic.getGameFromJson("maps/SimpleOval.json");
+        logic.setAILinePreview(true);
+        lap = logic.getEditorDistanceValues().getShortestLap();
+        assertFalse(lap.isEmpty());
+        Position middle = lap.get(lap.size() / 2);
+        logic.changeBoardCell(middle.getPosX(), middle.getPosY(), Surfaces.GRAVEL);
+        ArrayList<Position> detour = logic.getEditorDistanceValues().getShortestLap();
+        assertFalse(detour.isEmpty());
+        for (Position pos : detour) {
+            assertFalse(pos.isEqualTo(middle));
+        }
+        logic.setAILinePreview(false);
+        assertNull(logic.getEditorDistanceValues());
+    }
+
+    @Test
+    public void parallelDistanceSearchMatchesSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (Board board : new Board[]{ringTrack(6), ringTrack(17)}) {
+                for (StartCrossDirection direction : StartCrossDirection.values()) {
+                    DistanceField expected = DistanceField.calculateSequential(board, direction);
+                    // parts of two fields, so every distance is split between threads
+                    DistanceField actual = ParallelDistanceSearch.calculate(board, direction, pool, 2);
+                    for (int x = 0; x < board.getWidth(); x++) {
+                        for (int y = 0; y < board.getHeight(); y++) {
+                            assertEquals(expected.isReached(x, y), actual.isReached(x, y));
+                            assertEquals(expected.get(x, y), actual.get(x, y));
+                        }
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        Board board = ringTrack(17);
+        assertTrue(board.getWidth() * board.getHeight() < DistanceField.getParallelThreshold());
+        DistanceField.setParallelThreshold(board.getWidth() * board.getHeight());
+        try {
+            DistanceField expected = DistanceField.calculateSequential(board, StartCrossDirection.UP);
+            DistanceField actual = DistanceField.calculate(board, StartCrossDirection.UP);
+            for (int x = 0; x < board.getWidth(); x++) {
+                for (int y = 0; y < board.getHeight(); y++) {
+                    assertEquals(expected.get(x, y), actual.get(x, y));
+                }
+            }
+        } finally {
+            DistanceField.setParallelThreshold(DistanceField.DEFAULT_PARALLEL_THRESHOLD);
+        }
     }
 }